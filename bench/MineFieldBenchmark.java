@@ -0,0 +1,630 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * Micro-benchmarks for the hot paths of MineField. The project is built
+ * without a build tool, so rather than depending on JMH this class does the
+ * parts of JMH that matter here:
+ * <ul>
+ *      <li> each (benchmark, size) runs in fresh JVMs (forks), so the JIT
+ *           profile of one benchmark doesn't slow down the next </li>
+ *      <li> warm-up iterations run before the measured ones </li>
+ *      <li> operations without per-operation setup are timed in batches
+ *           long enough that the cost of System.nanoTime doesn't count;
+ *           setUp is never timed </li>
+ *      <li> results go to a blackhole, so the work can't be optimized
+ *           away </li>
+ *      <li> the score is the mean of the measured iterations of every fork,
+ *           with the half-width of its 99.9% confidence interval </li>
+ * </ul>
+ *
+ * Usage: java MineFieldBenchmark [-f forks] [-wi warmups] [-i iterations]
+ * [maxSize] [benchmark ...]
+ * <ul>
+ *      <li> forks: JVMs to run each benchmark in (default 2; 0 runs in this
+ *           JVM) </li>
+ *      <li> warmups, iterations: warm-up and measured iterations per fork
+ *           (default 5 and 10), each about 100 ms </li>
+ *      <li> maxSize: largest board side to run (default 1000; 10000 needs a
+ *           heap of several GB, e.g. -Xmx8g, which forks inherit) </li>
+ *      <li> benchmark: names of the benchmarks to run (default all) </li>
+ * </ul>
+ *
+ * @author Ben Wright
+ * @version 2026.10.18
+ */
+
+public class MineFieldBenchmark {
+    /** Board sizes to run, as { rows, cols } */
+    private static final int[][] SIZES = { { 9, 9 }, { 16, 30 }, { 100, 100 },
+        { 1000, 1000 }, { 10000, 10000 } };
+    /** Nanoseconds each iteration runs for, at least one operation */
+    private static final long ITERATION_NANOS = 100_000_000L;
+    /** Shortest time a timed batch of operations should take */
+    private static final long MIN_BATCH_NANOS = 10_000L;
+    /** Default number of forks */
+    private static final int DEFAULT_FORKS = 2;
+    /** Default number of warm-up iterations per fork */
+    private static final int DEFAULT_WARMUPS = 5;
+    /** Default number of measured iterations per fork */
+    private static final int DEFAULT_ITERATIONS = 10;
+    /** Normal quantile of the 99.9% confidence interval */
+    private static final double Z_999 = 3.2905;
+
+
+    /**
+     * Takes the results of operations so the JIT can't drop the work that
+     * made them, without the cost of a volatile write per operation: each
+     * result is compared with a volatile field that never matches.
+     */
+    static final class Blackhole {
+        /** Never equal to a result; volatile so the compare can't be dropped */
+        private volatile Object trap = new Object();
+        /** Where a result would go if it ever matched trap */
+        volatile Object sink;
+
+
+        /**
+         * Consume a result.
+         *
+         * @param result
+         *            the result of an operation
+         */
+        void consume(Object result) {
+            if (result == trap) {
+                sink = result;
+            }
+        }
+    }
+
+    /** Where benchmark results go */
+    private static final Blackhole blackhole = new Blackhole();
+
+
+    /**
+     * A benchmarked operation. setUp is not timed; run is.
+     */
+    interface Benchmark {
+        /**
+         * Prepare the state for one call to run. Not timed.
+         */
+        default void setUp() {
+        }
+
+
+        /**
+         * Run the operation being measured.
+         *
+         * @return any result, so it isn't optimized away
+         */
+        Object run();
+    }
+
+
+    /**
+     * A benchmark that creates a fresh Benchmark for a board size.
+     */
+    interface BenchmarkFactory {
+        /**
+         * Create the benchmark for a board of size rows x cols.
+         *
+         * @param rows
+         *            number of rows
+         * @param cols
+         *            number of columns
+         * @return the benchmark
+         */
+        Benchmark create(int rows, int cols);
+    }
+
+
+    /** Names of the benchmarks, in the order they are run */
+    private static final List<String> names = new ArrayList<>();
+    /** Factories for the benchmarks, in the same order as names */
+    private static final List<BenchmarkFactory> factories = new ArrayList<>();
+
+
+    /**
+     * Add a benchmark to the list of benchmarks to run.
+     *
+     * @param name
+     *            name to report the benchmark under
+     * @param factory
+     *            creates the benchmark for each board size
+     */
+    static void register(String name, BenchmarkFactory factory) {
+        names.add(name);
+        factories.add(factory);
+    }
+
+
+    static {
+        register("createMineField-sparse",
+            (rows, cols) -> () -> MineField.createMineField(rows, cols,
+                Math.max(1, rows * cols / 100)));
+        register("createMineField-half",
+            (rows, cols) -> () -> MineField.createMineField(rows, cols,
+                rows * cols / 2));
+        register("createMineField-dense",
+            (rows, cols) -> () -> MineField.createMineField(rows, cols,
+                rows * cols * 9 / 10));
+        register("setHint", (rows, cols) -> new Benchmark() {
+            final int[][] field = MineField.createMineField(rows, cols,
+                rows * cols / 5, 1L);
+
+
+            @Override
+            public Object run() {
+                MineField.setHint(field);
+                return field;
+            }
+        });
+        register("exposeCell-empty", (rows, cols) -> new Benchmark() {
+            final int[][] field = new int[rows][cols];
+            boolean[][] exposed;
+
+
+            @Override
+            public void setUp() {
+                exposed = MineField.setUpExposed(rows, cols);
+            }
+
+
+            @Override
+            public Object run() {
+                return MineField.exposeCell(rows / 2, cols / 2, field, exposed);
+            }
+        });
+        register("won", (rows, cols) -> new Benchmark() {
+            final int[][] field = MineField.createMineField(rows, cols,
+                rows * cols / 5, 1L);
+            final boolean[][] exposed = exposeSafeCells(field);
+
+
+            @Override
+            public Object run() {
+                return MineField.won(field, exposed);
+            }
+        });
+        register("Game.reveal-all-safe", (rows, cols) -> new Benchmark() {
+            final int[] safe = safeCells(rows, cols);
+            Game game;
+
+
+            @Override
+            public void setUp() {
+                game = new Game(rows, cols, rows * cols / 5, 1L);
+            }
+
+
+            @Override
+            public Object run() {
+                for (int cell : safe) {
+                    game.reveal(cell / cols, cell % cols);
+                }
+                return game.getStatus();
+            }
+        });
+        register("Game.revealAll-all-safe", (rows, cols) -> new Benchmark() {
+            final int[] safe = safeCells(rows, cols);
+            Game game;
+
+
+            @Override
+            public void setUp() {
+                game = new Game(rows, cols, rows * cols / 5, 1L);
+            }
+
+
+            @Override
+            public Object run() {
+                return game.revealAll(safe);
+            }
+        });
+        register("showBoard", (rows, cols) -> new Benchmark() {
+            final int[][] field = MineField.createMineField(rows, cols,
+                rows * cols / 5, 1L);
+            final boolean[][] exposed = exposeSafeCells(field);
+
+
+            @Override
+            public Object run() {
+                return MineField.showBoard(field, exposed);
+            }
+        });
+        register("writeBoardAscii", (rows, cols) -> new Benchmark() {
+            final int[][] field = MineField.createMineField(rows, cols,
+                rows * cols / 5, 1L);
+            final boolean[][] exposed = exposeSafeCells(field);
+            final OutputStream out = OutputStream.nullOutputStream();
+
+
+            @Override
+            public Object run() {
+                try {
+                    BoardRenderer.writeBoardAscii(out, field, exposed);
+                }
+                catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return out;
+            }
+        });
+        register("fieldToString", (rows, cols) -> new Benchmark() {
+            final int[][] field = MineField.createMineField(rows, cols,
+                rows * cols / 5, 1L);
+
+
+            @Override
+            public Object run() {
+                return MineField.fieldToString(field);
+            }
+        });
+    }
+
+
+    /**
+     * Helper method returns an exposed array with every safe cell of the
+     * field exposed, i.e. the state of a board the player has just won.
+     *
+     * @param field
+     *            the mine field
+     * @return exposed array with all non-mine cells set to true
+     */
+    static boolean[][] exposeSafeCells(int[][] field) {
+        boolean[][] exposed = new boolean[field.length][];
+        for (int r = 0; r < field.length; r++) {
+            exposed[r] = new boolean[field[r].length];
+            for (int c = 0; c < field[r].length; c++) {
+                exposed[r][c] = field[r][c] != -1;
+            }
+        }
+
+        return exposed;
+    }
+
+
+    /**
+     * Helper method returns the flat indices of the safe cells of the game
+     * with seed 1 and 20% mines, in a shuffled order.
+     *
+     * @param rows
+     *            number of rows
+     * @param cols
+     *            number of columns
+     * @return flat indices of the safe cells
+     */
+    static int[] safeCells(int rows, int cols) {
+        int[][] field = MineField.createMineField(rows, cols, rows * cols / 5,
+            1L);
+        int[] safe = new int[rows * cols - rows * cols / 5];
+        int count = 0;
+        for (int i = 0; i < rows * cols; i++) {
+            if (field[i / cols][i % cols] != -1) {
+                safe[count++] = i;
+            }
+        }
+
+        SplittableRandom rand = new SplittableRandom(2);
+        for (int i = safe.length - 1; i > 0; i--) {
+            int j = rand.nextInt(i + 1);
+            int swap = safe[i];
+            safe[i] = safe[j];
+            safe[j] = swap;
+        }
+
+        return safe;
+    }
+
+
+    /**
+     * Run a benchmark in this JVM: warm up, then run the measured
+     * iterations.
+     *
+     * @param benchmark
+     *            the benchmark to run
+     * @param warmups
+     *            number of warm-up iterations
+     * @param iterations
+     *            number of measured iterations
+     * @return average nanoseconds per operation in each measured iteration
+     */
+    static double[] measure(Benchmark benchmark, int warmups,
+        int iterations) {
+        boolean batched = !hasSetUp(benchmark);
+        int batch = batched ? batchSize(benchmark) : 1;
+        for (int i = 0; i < warmups; i++) {
+            iterate(benchmark, batch, batched);
+        }
+
+        // The compiled code is faster, so it may need a bigger batch.
+        batch = batched ? batchSize(benchmark) : 1;
+        double[] scores = new double[iterations];
+        for (int i = 0; i < iterations; i++) {
+            scores[i] = iterate(benchmark, batch, batched);
+        }
+
+        return scores;
+    }
+
+
+    /**
+     * Helper method returns true if a benchmark overrides setUp, so each
+     * operation has to be timed on its own to leave setUp out.
+     *
+     * @param benchmark
+     *            the benchmark
+     * @return true if the benchmark has per-operation setup
+     */
+    private static boolean hasSetUp(Benchmark benchmark) {
+        try {
+            return benchmark.getClass().getMethod("setUp")
+                .getDeclaringClass() != Benchmark.class;
+        }
+        catch (NoSuchMethodException e) {
+            // Every Benchmark has setUp.
+            throw new IllegalStateException(e);
+        }
+    }
+
+
+    /**
+     * Helper method finds how many operations to time at once: the
+     * smallest power of two whose batch takes at least MIN_BATCH_NANOS.
+     *
+     * @param benchmark
+     *            a benchmark without per-operation setup
+     * @return the batch size
+     */
+    private static int batchSize(Benchmark benchmark) {
+        int batch = 1;
+        while (batch < 1 << 30) {
+            long start = System.nanoTime();
+            for (int i = 0; i < batch; i++) {
+                blackhole.consume(benchmark.run());
+            }
+            if (System.nanoTime() - start >= MIN_BATCH_NANOS) {
+                break;
+            }
+            batch *= 2;
+        }
+
+        return batch;
+    }
+
+
+    /**
+     * Helper method runs one iteration: operations until ITERATION_NANOS
+     * have been spent in them, and at least one.
+     *
+     * @param benchmark
+     *            the benchmark to run
+     * @param batch
+     *            number of operations to time at once
+     * @param batched
+     *            false to call setUp before each operation, untimed
+     * @return average nanoseconds per operation
+     */
+    private static double iterate(Benchmark benchmark, int batch,
+        boolean batched) {
+        long spent = 0;
+        long operations = 0;
+        while (spent < ITERATION_NANOS || operations == 0) {
+            if (!batched) {
+                benchmark.setUp();
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < batch; i++) {
+                blackhole.consume(benchmark.run());
+            }
+            spent += System.nanoTime() - start;
+            operations += batch;
+        }
+
+        return (double) spent / operations;
+    }
+
+
+    /**
+     * Helper method runs a benchmark in a fresh JVM, with this JVM's class
+     * path and options, and collects the scores it prints.
+     *
+     * @param name
+     *            the benchmark
+     * @param size
+     *            the board size, { rows, cols }
+     * @param warmups
+     *            number of warm-up iterations
+     * @param iterations
+     *            number of measured iterations
+     * @return average nanoseconds per operation in each measured iteration
+     * @throws IOException
+     *             if the JVM can't be started or fails
+     * @throws InterruptedException
+     *             if interrupted while waiting for it
+     */
+    private static double[] fork(String name, int[] size, int warmups,
+        int iterations) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java")
+            .toString());
+        command.addAll(
+            ManagementFactory.getRuntimeMXBean().getInputArguments());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(MineFieldBenchmark.class.getName());
+        command.add("--fork");
+        command.add(name);
+        command.add(Integer.toString(size[0]));
+        command.add(Integer.toString(size[1]));
+        command.add(Integer.toString(warmups));
+        command.add(Integer.toString(iterations));
+
+        Process process = new ProcessBuilder(command)
+            .redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        double[] scores = new double[iterations];
+        int count = 0;
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+            process.getInputStream(), StandardCharsets.US_ASCII))) {
+            String line;
+            while ((line = in.readLine()) != null && count < iterations) {
+                scores[count++] = Double.parseDouble(line);
+            }
+        }
+        if (process.waitFor() != 0 || count < iterations) {
+            throw new IOException("Fork of " + name + " failed with exit code "
+                + process.exitValue());
+        }
+
+        return scores;
+    }
+
+
+    /**
+     * Helper method returns the half-width of the 99.9% confidence interval
+     * of the mean of some samples, using Student's t distribution.
+     *
+     * @param samples
+     *            the samples
+     * @param mean
+     *            their mean
+     * @return the half-width, or NaN for fewer than two samples
+     */
+    static double error(double[] samples, double mean) {
+        int n = samples.length;
+        if (n < 2) {
+            return Double.NaN;
+        }
+
+        double squares = 0;
+        for (double sample : samples) {
+            squares += (sample - mean) * (sample - mean);
+        }
+        double deviation = Math.sqrt(squares / (n - 1));
+
+        // Cornish-Fisher expansion of the t quantile around the normal one.
+        double z = Z_999;
+        double v = n - 1;
+        double t = z + (z * z * z + z) / (4 * v)
+            + (5 * Math.pow(z, 5) + 16 * z * z * z + 3 * z) / (96 * v * v)
+            + (3 * Math.pow(z, 7) + 19 * Math.pow(z, 5) + 17 * z * z * z
+                - 15 * z) / (384 * v * v * v);
+        return t * deviation / Math.sqrt(n);
+    }
+
+
+    /**
+     * Helper method returns the index of a benchmark.
+     *
+     * @param name
+     *            name of the benchmark
+     * @return its index in names and factories
+     */
+    private static int indexOf(String name) {
+        int i = names.indexOf(name);
+        if (i < 0) {
+            throw new IllegalArgumentException("No benchmark named " + name);
+        }
+
+        return i;
+    }
+
+
+    /**
+     * Run the benchmarks and print one line per (benchmark, size).
+     *
+     * @param args
+     *            options, optional largest board side, then optional
+     *            benchmark names
+     * @throws IOException
+     *             if a fork can't be started or fails
+     * @throws InterruptedException
+     *             if interrupted while waiting for a fork
+     */
+    public static void main(String[] args)
+        throws IOException, InterruptedException {
+        if (args.length == 6 && args[0].equals("--fork")) {
+            Benchmark benchmark = factories.get(indexOf(args[1])).create(
+                Integer.parseInt(args[2]), Integer.parseInt(args[3]));
+            for (double score : measure(benchmark, Integer.parseInt(args[4]),
+                Integer.parseInt(args[5]))) {
+                System.out.println(score);
+            }
+            return;
+        }
+
+        int forks = DEFAULT_FORKS;
+        int warmups = DEFAULT_WARMUPS;
+        int iterations = DEFAULT_ITERATIONS;
+        int maxSize = 1000;
+        List<String> selected = new ArrayList<>();
+        for (int a = 0; a < args.length; a++) {
+            switch (args[a]) {
+                case "-f":
+                    forks = Integer.parseInt(args[++a]);
+                    break;
+                case "-wi":
+                    warmups = Integer.parseInt(args[++a]);
+                    break;
+                case "-i":
+                    iterations = Integer.parseInt(args[++a]);
+                    break;
+                default:
+                    if (args[a].matches("\\d+")) {
+                        maxSize = Integer.parseInt(args[a]);
+                    }
+                    else {
+                        indexOf(args[a]);
+                        selected.add(args[a]);
+                    }
+            }
+        }
+
+        System.out.printf("%-28s %12s %16s %12s %14s%n", "benchmark", "size",
+            "ns/op", "error", "ops/s");
+        for (int i = 0; i < names.size(); i++) {
+            String name = names.get(i);
+            if (!selected.isEmpty() && !selected.contains(name)) {
+                continue;
+            }
+            for (int[] size : SIZES) {
+                if (Math.max(size[0], size[1]) > maxSize) {
+                    continue;
+                }
+
+                double[] scores;
+                if (forks == 0) {
+                    scores = measure(factories.get(i).create(size[0], size[1]),
+                        warmups, iterations);
+                }
+                else {
+                    scores = new double[forks * iterations];
+                    for (int f = 0; f < forks; f++) {
+                        System.arraycopy(fork(name, size, warmups, iterations),
+                            0, scores, f * iterations, iterations);
+                    }
+                }
+
+                double mean = 0;
+                for (double score : scores) {
+                    mean += score / scores.length;
+                }
+                System.out.printf(Locale.ROOT,
+                    "%-28s %12s %16.1f %12s %14.1f%n", name,
+                    size[0] + "x" + size[1], mean, String.format(Locale.ROOT,
+                        "+-%.1f", error(scores, mean)), 1e9 / mean);
+            }
+        }
+    }
+
+}
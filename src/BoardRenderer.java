@@ -0,0 +1,547 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+
+/**
+ * Draws mine fields as text without formatting each cell separately. Every
+ * cell value (-1..8) has its text worked out once, in lookup tables, and rows
+ * are copied from those tables into a reusable row buffer. The text is exactly
+ * what MineField.showBoard and MineField.fieldToString have always produced.
+ *
+ * Boards can be drawn into a String, or written row by row to an Appendable
+ * (writeBoard, writeField) or an OutputStream (writeBoardAscii,
+ * writeFieldAscii) so that huge boards never have to be held in memory as one
+ * String.
+ *
+ * @author Ben Wright
+ * @version 2026.10.18
+ */
+
+public class BoardRenderer {
+    /** Width of a cell drawn by showBoard (" %4d ") */
+    static final int BOARD_CELL_WIDTH = 6;
+    /** Width of a cell drawn by fieldToString (" %2d ") */
+    static final int FIELD_CELL_WIDTH = 4;
+    /** Widest a cell can be, for values outside -1..8 (" -2147483648 ") */
+    private static final int MAX_CELL_WIDTH = 13;
+    /** Line separator written after each row */
+    private static final char[] NEW_LINE =
+        System.lineSeparator().toCharArray();
+
+    /** showBoard text for values -1..8 (index value + 1); 0 is blank */
+    private static final char[][] BOARD_CELLS = new char[10][];
+    /** showBoard text for a hidden cell */
+    static final char[] HIDDEN_CELL = " %4s ".formatted("*").toCharArray();
+    /** showBoard text for a hidden cell with a flag on it */
+    static final char[] FLAGGED_CELL = " %4s ".formatted("F").toCharArray();
+    /** fieldToString text for values -1..8 (index value + 1) */
+    private static final char[][] FIELD_CELLS = new char[10][];
+
+    static {
+        for (int value = -1; value <= 8; value++) {
+            BOARD_CELLS[value + 1] = value == 0
+                ? " %4s ".formatted(" ").toCharArray()
+                : " %4d ".formatted(value).toCharArray();
+            FIELD_CELLS[value + 1] = " %2d ".formatted(value).toCharArray();
+        }
+    }
+
+
+    /**
+     * Return the showBoard text of an exposed cell.
+     *
+     * @param value
+     *            the value of the cell in the mine field
+     * @return the text for the cell
+     */
+    static char[] boardCell(int value) {
+        if (value >= -1 && value <= 8) {
+            return BOARD_CELLS[value + 1];
+        }
+
+        // Not a real mine field value, but draw it the way showBoard would.
+        return " %4d ".formatted(value).toCharArray();
+    }
+
+
+    /**
+     * Return the fieldToString text of a cell.
+     *
+     * @param value
+     *            the value of the cell in the mine field
+     * @return the text for the cell
+     */
+    static char[] fieldCell(int value) {
+        if (value >= -1 && value <= 8) {
+            return FIELD_CELLS[value + 1];
+        }
+
+        return " %2d ".formatted(value).toCharArray();
+    }
+
+
+    /**
+     * Return the text of the mine field with hidden cells drawn as *, the
+     * same as MineField.showBoard.
+     *
+     * @param field
+     *            the mine field
+     * @param exposed
+     *            which cells have been exposed
+     * @return the board as a single string
+     */
+    public static String showBoard(int[][] field, boolean[][] exposed) {
+        StringBuilder sb = new StringBuilder(
+            capacity(field, BOARD_CELL_WIDTH));
+        char[] row = null;
+        for (int r = 0; r < field.length; r++) {
+            row = rowBuffer(row, field[r].length);
+            sb.append(row, 0, boardRow(row, field[r], exposed[r]));
+        }
+
+        return sb.toString();
+    }
+
+
+    /**
+     * Return the text of the mine field with every cell shown, the same as
+     * MineField.fieldToString.
+     *
+     * @param field
+     *            the mine field
+     * @return the field as a single string
+     */
+    public static String fieldToString(int[][] field) {
+        StringBuilder sb = new StringBuilder(
+            capacity(field, FIELD_CELL_WIDTH));
+        char[] row = null;
+        for (int r = 0; r < field.length; r++) {
+            row = rowBuffer(row, field[r].length);
+            sb.append(row, 0, fieldRow(row, field[r]));
+        }
+
+        return sb.toString();
+    }
+
+
+    /**
+     * Write the same text as showBoard to out, one row at a time.
+     *
+     * @param out
+     *            where to write the board
+     * @param field
+     *            the mine field
+     * @param exposed
+     *            which cells have been exposed
+     * @throws IOException
+     *             if out can't be written to
+     */
+    public static void writeBoard(Appendable out, int[][] field,
+        boolean[][] exposed) throws IOException {
+        char[] row = null;
+        for (int r = 0; r < field.length; r++) {
+            row = rowBuffer(row, field[r].length);
+            append(out, row, boardRow(row, field[r], exposed[r]));
+        }
+    }
+
+
+    /**
+     * Write the same text as showBoard to out, one row at a time, as ASCII.
+     *
+     * @param out
+     *            where to write the board
+     * @param field
+     *            the mine field
+     * @param exposed
+     *            which cells have been exposed
+     * @throws IOException
+     *             if out can't be written to
+     */
+    public static void writeBoardAscii(OutputStream out, int[][] field,
+        boolean[][] exposed) throws IOException {
+        char[] row = null;
+        byte[] bytes = null;
+        for (int r = 0; r < field.length; r++) {
+            row = rowBuffer(row, field[r].length);
+            int length = boardRow(row, field[r], exposed[r]);
+            bytes = write(out, row, length, bytes);
+        }
+    }
+
+
+    /**
+     * Write the same text as fieldToString to out, one row at a time.
+     *
+     * @param out
+     *            where to write the field
+     * @param field
+     *            the mine field
+     * @throws IOException
+     *             if out can't be written to
+     */
+    public static void writeField(Appendable out, int[][] field)
+        throws IOException {
+        char[] row = null;
+        for (int r = 0; r < field.length; r++) {
+            row = rowBuffer(row, field[r].length);
+            append(out, row, fieldRow(row, field[r]));
+        }
+    }
+
+
+    /**
+     * Write the same text as fieldToString to out, one row at a time, as
+     * ASCII.
+     *
+     * @param out
+     *            where to write the field
+     * @param field
+     *            the mine field
+     * @throws IOException
+     *             if out can't be written to
+     */
+    public static void writeFieldAscii(OutputStream out, int[][] field)
+        throws IOException {
+        char[] row = null;
+        byte[] bytes = null;
+        for (int r = 0; r < field.length; r++) {
+            row = rowBuffer(row, field[r].length);
+            bytes = write(out, row, fieldRow(row, field[r]), bytes);
+        }
+    }
+
+
+    /**
+     * Return the text of a packed board, drawn like showBoard. Flagged cells
+     * are drawn as F.
+     *
+     * @param board
+     *            the board
+     * @return the board as a single string
+     */
+    public static String showBoard(PackedBoard board) {
+        StringBuilder sb = new StringBuilder();
+        try {
+            writeBoard(sb, board);
+        }
+        catch (IOException e) {
+            // A StringBuilder never throws IOException.
+            throw new UncheckedIOException(e);
+        }
+
+        return sb.toString();
+    }
+
+
+    /**
+     * Write the text of a packed board to out, one row at a time, drawn like
+     * showBoard. Flagged cells are drawn as F.
+     *
+     * @param out
+     *            where to write the board
+     * @param board
+     *            the board
+     * @throws IOException
+     *             if out can't be written to
+     */
+    public static void writeBoard(Appendable out, PackedBoard board)
+        throws IOException {
+        char[] row = rowBuffer(null, board.getCols());
+        for (int r = 0; r < board.getRows(); r++) {
+            append(out, row, packedRow(row, board, r));
+        }
+    }
+
+
+    /**
+     * Write the text of a packed board to out as ASCII, one row at a time,
+     * drawn like showBoard. Flagged cells are drawn as F.
+     *
+     * @param out
+     *            where to write the board
+     * @param board
+     *            the board
+     * @throws IOException
+     *             if out can't be written to
+     */
+    public static void writeBoardAscii(OutputStream out, PackedBoard board)
+        throws IOException {
+        char[] row = rowBuffer(null, board.getCols());
+        byte[] bytes = null;
+        for (int r = 0; r < board.getRows(); r++) {
+            bytes = write(out, row, packedRow(row, board, r), bytes);
+        }
+    }
+
+
+    /**
+     * Return the text of a packed board with every cell shown, drawn like
+     * fieldToString.
+     *
+     * @param board
+     *            the board
+     * @return the field as a single string
+     */
+    public static String fieldToString(PackedBoard board) {
+        char[] row = rowBuffer(null, board.getCols());
+        StringBuilder sb = new StringBuilder();
+        for (int r = 0; r < board.getRows(); r++) {
+            sb.append(row, 0, packedFieldRow(row, board, r));
+        }
+
+        return sb.toString();
+    }
+
+
+    /**
+     * Write the text of a packed board with every cell shown to out as ASCII,
+     * one row at a time, drawn like fieldToString.
+     *
+     * @param out
+     *            where to write the field
+     * @param board
+     *            the board
+     * @throws IOException
+     *             if out can't be written to
+     */
+    public static void writeFieldAscii(OutputStream out, PackedBoard board)
+        throws IOException {
+        char[] row = rowBuffer(null, board.getCols());
+        byte[] bytes = null;
+        for (int r = 0; r < board.getRows(); r++) {
+            bytes = write(out, row, packedFieldRow(row, board, r), bytes);
+        }
+    }
+
+
+    /**
+     * Fill row with the showBoard text of one row of the field, followed by
+     * a line separator.
+     *
+     * @param row
+     *            buffer big enough for the row
+     * @param fieldRow
+     *            one row of the mine field
+     * @param exposedRow
+     *            the same row of the exposed array
+     * @return the number of characters written to row
+     */
+    static int boardRow(char[] row, int[] fieldRow, boolean[] exposedRow) {
+        int length = 0;
+        for (int c = 0; c < fieldRow.length; c++) {
+            char[] cell = exposedRow[c] ? boardCell(fieldRow[c]) : HIDDEN_CELL;
+            length = put(row, length, cell);
+        }
+
+        return put(row, length, NEW_LINE);
+    }
+
+
+    /**
+     * Fill row with the fieldToString text of one row of the field, followed
+     * by a line separator.
+     *
+     * @param row
+     *            buffer big enough for the row
+     * @param fieldRow
+     *            one row of the mine field
+     * @return the number of characters written to row
+     */
+    static int fieldRow(char[] row, int[] fieldRow) {
+        int length = 0;
+        for (int c = 0; c < fieldRow.length; c++) {
+            length = put(row, length, fieldCell(fieldRow[c]));
+        }
+
+        return put(row, length, NEW_LINE);
+    }
+
+
+    /**
+     * Fill row with the showBoard text of one row of a packed board, followed
+     * by a line separator.
+     *
+     * @param row
+     *            buffer big enough for the row
+     * @param board
+     *            the board
+     * @param r
+     *            which row of the board to draw
+     * @return the number of characters written to row
+     */
+    static int packedRow(char[] row, PackedBoard board, int r) {
+        byte[] cells = board.cells();
+        int start = r * board.getCols();
+        int length = 0;
+        for (int i = start; i < start + board.getCols(); i++) {
+            int cell = cells[i];
+            char[] text;
+            if ((cell & PackedBoard.EXPOSED) != 0) {
+                text = BOARD_CELLS[PackedBoard.valueOf(cell) + 1];
+            }
+            else if ((cell & PackedBoard.FLAGGED) != 0) {
+                text = FLAGGED_CELL;
+            }
+            else {
+                text = HIDDEN_CELL;
+            }
+            length = put(row, length, text);
+        }
+
+        return put(row, length, NEW_LINE);
+    }
+
+
+    /**
+     * Fill row with the fieldToString text of one row of a packed board,
+     * followed by a line separator.
+     *
+     * @param row
+     *            buffer big enough for the row
+     * @param board
+     *            the board
+     * @param r
+     *            which row of the board to draw
+     * @return the number of characters written to row
+     */
+    static int packedFieldRow(char[] row, PackedBoard board, int r) {
+        byte[] cells = board.cells();
+        int start = r * board.getCols();
+        int length = 0;
+        for (int i = start; i < start + board.getCols(); i++) {
+            length = put(row, length,
+                FIELD_CELLS[PackedBoard.valueOf(cells[i]) + 1]);
+        }
+
+        return put(row, length, NEW_LINE);
+    }
+
+
+    /**
+     * Return how big a row buffer has to be for a row of cols cells, for use
+     * with boardRow, fieldRow, packedRow and packedFieldRow.
+     *
+     * @param cols
+     *            number of cells in the row
+     * @return the number of chars the buffer needs
+     */
+    static int rowCapacity(int cols) {
+        return cols * MAX_CELL_WIDTH + NEW_LINE.length;
+    }
+
+
+    /**
+     * Helper method copies text into row at position length.
+     *
+     * @param row
+     *            the row buffer
+     * @param length
+     *            where to start copying
+     * @param text
+     *            the text to copy
+     * @return the new length of the row
+     */
+    private static int put(char[] row, int length, char[] text) {
+        System.arraycopy(text, 0, row, length, text.length);
+        return length + text.length;
+    }
+
+
+    /**
+     * Helper method returns a row buffer big enough for cols cells of any
+     * width plus a line separator, reusing buffer when it is.
+     *
+     * @param buffer
+     *            the current buffer, or null
+     * @param cols
+     *            number of cells in the row
+     * @return a buffer at least as big as needed
+     */
+    private static char[] rowBuffer(char[] buffer, int cols) {
+        int needed = rowCapacity(cols);
+        if (buffer == null || buffer.length < needed) {
+            return new char[needed];
+        }
+
+        return buffer;
+    }
+
+
+    /**
+     * Helper method returns the number of characters needed for the whole
+     * field, capped at what a StringBuilder can hold.
+     *
+     * @param field
+     *            the mine field
+     * @param width
+     *            width of each cell
+     * @return the capacity to give the StringBuilder
+     */
+    private static int capacity(int[][] field, int width) {
+        int cols = field.length == 0 ? 0 : field[0].length;
+        long needed = (long) field.length * (cols * (long) width
+            + NEW_LINE.length);
+        return (int) Math.min(needed, Integer.MAX_VALUE - 8);
+    }
+
+
+    /**
+     * Helper method appends the first length characters of row to out,
+     * without copying them into a String first where out allows that.
+     *
+     * @param out
+     *            where to write
+     * @param row
+     *            the row buffer
+     * @param length
+     *            number of characters to write
+     * @throws IOException
+     *             if out can't be written to
+     */
+    private static void append(Appendable out, char[] row, int length)
+        throws IOException {
+        if (out instanceof StringBuilder) {
+            ((StringBuilder) out).append(row, 0, length);
+        }
+        else if (out instanceof Writer) {
+            ((Writer) out).write(row, 0, length);
+        }
+        else {
+            out.append(CharBuffer.wrap(row, 0, length));
+        }
+    }
+
+
+    /**
+     * Helper method writes the first length characters of row to out as
+     * ASCII bytes.
+     *
+     * @param out
+     *            where to write
+     * @param row
+     *            the row buffer
+     * @param length
+     *            number of characters to write
+     * @param bytes
+     *            byte buffer from the previous row, or null
+     * @return the byte buffer, to be reused for the next row
+     * @throws IOException
+     *             if out can't be written to
+     */
+    private static byte[] write(OutputStream out, char[] row, int length,
+        byte[] bytes) throws IOException {
+        if (bytes == null || bytes.length < length) {
+            bytes = new byte[row.length];
+        }
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) row[i];
+        }
+        out.write(bytes, 0, length);
+
+        return bytes;
+    }
+
+}
@@ -0,0 +1,324 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Holds the chunks of an InfiniteMineField within a memory budget. Chunks are
+ * kept in least recently used order, and when there are more than the budget
+ * allows the coldest one is evicted.
+ *
+ * A chunk's mines and hints can always be generated again from the field's
+ * seed, so only its exposed and flagged cells are saved when it is evicted,
+ * as one fixed-size record in a spill file. A chunk with nothing exposed or
+ * flagged is just dropped. When an evicted chunk is generated again,
+ * InfiniteMineField hands it to add, which reads its record back.
+ *
+ * The spill file is only created when the first chunk is spilled. A store
+ * made without a file uses a temporary one, deleted by close.
+ *
+ * @author Ben Wright
+ * @version 2026.10.18
+ */
+
+public class ChunkStore implements Closeable {
+    /** Approximate heap bytes used by one chunk held in memory */
+    public static final long CHUNK_BYTES = 3 * (16
+        + 8L * InfiniteMineField.CHUNK_SIZE) + 16
+        + InfiniteMineField.CHUNK_CELLS + 96;
+    /** Bytes in one spill record: the exposed and flagged bitsets */
+    private static final int RECORD_BYTES = 2 * 8
+        * InfiniteMineField.CHUNK_SIZE;
+
+    /** Most chunks held in memory */
+    private final long maxChunks;
+    /** Chunks held in memory, least recently used first */
+    private final LinkedHashMap<Long, InfiniteMineField.Chunk> chunks;
+    /** Where each spilled chunk's record is in the spill file */
+    private final Map<Long, Long> spilled = new HashMap<>();
+    /** The spill file, or null for a temporary one */
+    private Path file;
+    /** Whether the spill file is temporary */
+    private final boolean temporary;
+    /** The open spill file, or null until the first spill */
+    private FileChannel channel;
+    /** Buffer for one record */
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+    /** Number of chunks evicted so far */
+    private long evictions;
+    /** Number of chunks read back from the spill file so far */
+    private long reloads;
+
+
+    /**
+     * Create a store with no memory budget, which never evicts.
+     */
+    public ChunkStore() {
+        this(Long.MAX_VALUE);
+    }
+
+
+    /**
+     * Create a store that spills to a temporary file.
+     *
+     * @param maxBytes
+     *            memory budget for chunks held in memory, in bytes; at least
+     *            one chunk is always held
+     */
+    public ChunkStore(long maxBytes) {
+        this(maxBytes, null);
+    }
+
+
+    /**
+     * Create a store that spills to the given file. Anything already in the
+     * file is overwritten.
+     *
+     * @param maxBytes
+     *            memory budget for chunks held in memory, in bytes; at least
+     *            one chunk is always held
+     * @param file
+     *            the spill file, or null for a temporary one
+     */
+    public ChunkStore(long maxBytes, Path file) {
+        this.maxChunks = Math.max(1, maxBytes / CHUNK_BYTES);
+        this.file = file;
+        this.temporary = file == null;
+        this.chunks = new LinkedHashMap<>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(
+                Map.Entry<Long, InfiniteMineField.Chunk> eldest) {
+                if (size() <= maxChunks) {
+                    return false;
+                }
+
+                spill(eldest.getKey(), eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+
+    /**
+     * Return a chunk held in memory, marking it as just used.
+     *
+     * @param key
+     *            the chunk's key
+     * @return the chunk, or null if it isn't held in memory
+     */
+    InfiniteMineField.Chunk get(long key) {
+        return chunks.get(key);
+    }
+
+
+    /**
+     * Add a newly generated chunk, reading back its exposed and flagged
+     * cells if it was spilled, and evict the coldest chunk if that puts the
+     * store over budget. The chunk added is never the one evicted.
+     *
+     * @param key
+     *            the chunk's key
+     * @param chunk
+     *            the chunk, with its mines and values set
+     */
+    void add(long key, InfiniteMineField.Chunk chunk) {
+        Long position = spilled.get(key);
+        if (position != null) {
+            read(position, chunk);
+            reloads++;
+        }
+        chunks.put(key, chunk);
+    }
+
+
+    /**
+     * Return whether a chunk not held in memory has exposed or flagged cells
+     * saved in the spill file.
+     *
+     * @param key
+     *            the chunk's key
+     * @return true if the chunk was spilled
+     */
+    boolean isSpilled(long key) {
+        return spilled.containsKey(key);
+    }
+
+
+    /**
+     * Helper method saves an evicted chunk's exposed and flagged cells,
+     * reusing its record if it was spilled before.
+     *
+     * @param key
+     *            the chunk's key
+     * @param chunk
+     *            the chunk
+     */
+    private void spill(long key, InfiniteMineField.Chunk chunk) {
+        evictions++;
+        Long position = spilled.get(key);
+        if (position == null && isBlank(chunk)) {
+            return;
+        }
+
+        try {
+            if (channel == null) {
+                open();
+            }
+            if (position == null) {
+                position = (long) spilled.size() * RECORD_BYTES;
+                spilled.put(key, position);
+            }
+            record.clear();
+            record.asLongBuffer().put(chunk.exposed).put(chunk.flagged);
+            while (record.hasRemaining()) {
+                channel.write(record, position + record.position());
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    /**
+     * Helper method reads a chunk's exposed and flagged cells from its
+     * record.
+     *
+     * @param position
+     *            where the record is in the spill file
+     * @param chunk
+     *            the chunk to fill in
+     */
+    private void read(long position, InfiniteMineField.Chunk chunk) {
+        try {
+            record.clear();
+            while (record.hasRemaining()) {
+                if (channel.read(record, position + record.position()) < 0) {
+                    throw new IOException("Spill file is truncated");
+                }
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        record.flip();
+        record.asLongBuffer().get(chunk.exposed).get(chunk.flagged);
+    }
+
+
+    /**
+     * Helper method opens the spill file, creating a temporary one if no
+     * file was given.
+     *
+     * @throws IOException
+     *             if the file can't be created or opened
+     */
+    private void open() throws IOException {
+        if (temporary) {
+            file = Files.createTempFile("chunks", ".spill");
+            file.toFile().deleteOnExit();
+        }
+        channel = FileChannel.open(file, StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+
+    /**
+     * Helper method tests whether a chunk has nothing exposed or flagged.
+     *
+     * @param chunk
+     *            the chunk
+     * @return true if the chunk is as it was generated
+     */
+    private static boolean isBlank(InfiniteMineField.Chunk chunk) {
+        for (int r = 0; r < InfiniteMineField.CHUNK_SIZE; r++) {
+            if ((chunk.exposed[r] | chunk.flagged[r]) != 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Return the number of chunks held in memory.
+     *
+     * @return number of chunks
+     */
+    public int size() {
+        return chunks.size();
+    }
+
+
+    /**
+     * Return the most chunks held in memory at once.
+     *
+     * @return the memory budget in chunks
+     */
+    public long getMaxChunks() {
+        return maxChunks;
+    }
+
+
+    /**
+     * Return the number of chunks with records in the spill file.
+     *
+     * @return number of spilled chunks
+     */
+    public int getSpilledChunks() {
+        return spilled.size();
+    }
+
+
+    /**
+     * Return the number of chunks evicted so far.
+     *
+     * @return number of evictions
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+
+    /**
+     * Return the number of chunks read back from the spill file so far.
+     *
+     * @return number of reloads
+     */
+    public long getReloads() {
+        return reloads;
+    }
+
+
+    /**
+     * Close the spill file, deleting it if it is temporary. The store can't
+     * be used afterwards.
+     *
+     * @throws IOException
+     *             if the file can't be closed or deleted
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel == null) {
+            return;
+        }
+
+        channel.close();
+        if (temporary) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+}
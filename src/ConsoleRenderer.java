@@ -0,0 +1,222 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * Prints the board for the console game. After the first full drawing, only
+ * the rows that a guess changed are drawn again.
+ *
+ * On a terminal that understands ANSI escape codes, the board is drawn once
+ * at the top of the screen, and each changed row is redrawn in place by
+ * moving the cursor to it. Everything else (prompts, messages) goes below the
+ * board. When the output isn't an ANSI terminal (e.g. it is piped to a file),
+ * the whole board is printed after every guess, as the game always did.
+ *
+ * @author Ben Wright
+ * @version 2026.10.18
+ */
+
+public class ConsoleRenderer {
+    /** Escape sequence that clears the screen and moves to the top left */
+    private static final String CLEAR_SCREEN = "\033[2J\033[H";
+    /** Escape sequence that clears from the cursor to the end of the screen */
+    private static final String CLEAR_BELOW = "\033[J";
+
+    /** Where the board is printed */
+    private final PrintStream out;
+    /** True to redraw changed rows in place with ANSI escape codes */
+    private final boolean ansi;
+    /** True to print the fully revealed field under the board */
+    private final boolean debugOn;
+    /** Screen line (1-based) just below everything drawn by drawFull */
+    private int promptLine;
+    /** Buffer for the text of one row */
+    private char[] row = new char[0];
+    /** Buffer for the ASCII bytes of one row */
+    private byte[] bytes = new byte[0];
+
+
+    /**
+     * Create a renderer that prints to out.
+     *
+     * @param out
+     *            where the board is printed
+     * @param ansi
+     *            true if out is a terminal that understands ANSI escape codes
+     * @param debugOn
+     *            if true, also print the mine field with all values shown
+     */
+    public ConsoleRenderer(PrintStream out, boolean ansi, boolean debugOn) {
+        this.out = out;
+        this.ansi = ansi;
+        this.debugOn = debugOn;
+    }
+
+
+    /**
+     * Return true if standard output looks like a terminal that understands
+     * ANSI escape codes, and a board of the given height fits on it.
+     * Terminals that report their height in the LINES environment variable
+     * are checked against it, because rows that have scrolled off the top of
+     * the screen can't be redrawn.
+     *
+     * @param rows
+     *            number of rows in the board
+     * @param debugOn
+     *            true if the debug field is printed under the board
+     * @return true if ANSI redrawing can be used
+     */
+    public static boolean ansiSupported(int rows, boolean debugOn) {
+        String term = System.getenv("TERM");
+        if (System.console() == null || term == null || term.equals("dumb")) {
+            return false;
+        }
+
+        String lines = System.getenv("LINES");
+        if (lines != null && lines.matches("\\d+")) {
+            // Board, debug field and a few lines for prompts and messages.
+            int needed = 2 + rows + (debugOn ? rows + 1 : 0) + 3;
+            return needed <= Integer.parseInt(lines);
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Print the whole board (and the debug field, if debug mode is on).
+     *
+     * @param board
+     *            the board
+     */
+    public void drawFull(PackedBoard board) {
+        try {
+            printHeader();
+            BoardRenderer.writeBoardAscii(out, board);
+            out.println();
+            if (debugOn) {
+                BoardRenderer.writeFieldAscii(out, board);
+                out.println();
+            }
+        }
+        catch (IOException e) {
+            // PrintStream doesn't throw IOException, but OutputStream can.
+            throw new UncheckedIOException(e);
+        }
+
+        setPromptLine(board.getRows());
+    }
+
+
+    /**
+     * Print the board again after a guess. On an ANSI terminal only the rows
+     * marked in dirtyRows are drawn, and the lines below the board are
+     * cleared for the next prompt; otherwise the whole board is printed.
+     *
+     * @param board
+     *            the board
+     * @param dirtyRows
+     *            rows that changed since the last drawing; all entries are
+     *            set back to false
+     */
+    public void redraw(PackedBoard board, boolean[] dirtyRows) {
+        if (!ansi) {
+            drawFull(board);
+            Arrays.fill(dirtyRows, false);
+            return;
+        }
+
+        growBuffers(board.getCols());
+        for (int r = 0; r < dirtyRows.length; r++) {
+            if (dirtyRows[r]) {
+                dirtyRows[r] = false;
+                moveToRow(r);
+                writeRow(BoardRenderer.packedRow(row, board, r));
+            }
+        }
+        moveToPrompt();
+    }
+
+
+    /**
+     * Helper method clears the screen (ANSI) or skips a line (plain), then
+     * prints the title line above the board.
+     */
+    private void printHeader() {
+        if (ansi) {
+            out.print(CLEAR_SCREEN);
+            out.println("Board:");
+        }
+        else {
+            out.println("\nBoard:");
+        }
+    }
+
+
+    /**
+     * Helper method works out the screen line below a full drawing of a board
+     * with the given number of rows, and flushes the output.
+     *
+     * @param rows
+     *            number of rows in the board
+     */
+    private void setPromptLine(int rows) {
+        // "Board:", the rows, a blank line, and the debug field + blank line.
+        promptLine = 1 + rows + 1 + (debugOn ? rows + 1 : 0) + 1;
+        out.flush();
+    }
+
+
+    /**
+     * Helper method moves the cursor to the start of a row of the board.
+     *
+     * @param r
+     *            the row of the board
+     */
+    private void moveToRow(int r) {
+        // Row r of the board is on screen line r + 2, under "Board:".
+        out.print("\033[" + (r + 2) + ";1H");
+    }
+
+
+    /**
+     * Helper method moves the cursor below the board and clears the old
+     * prompts and messages there.
+     */
+    private void moveToPrompt() {
+        out.print("\033[" + promptLine + ";1H" + CLEAR_BELOW);
+        out.flush();
+    }
+
+
+    /**
+     * Helper method makes sure the row buffers can hold a row of cols cells.
+     *
+     * @param cols
+     *            number of cells in the row
+     */
+    private void growBuffers(int cols) {
+        int needed = BoardRenderer.rowCapacity(cols);
+        if (row.length < needed) {
+            row = new char[needed];
+            bytes = new byte[needed];
+        }
+    }
+
+
+    /**
+     * Helper method writes the first length characters of the row buffer at
+     * the cursor.
+     *
+     * @param length
+     *            number of characters in the row buffer
+     */
+    private void writeRow(int length) {
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) row[i];
+        }
+        out.write(bytes, 0, length);
+    }
+
+}
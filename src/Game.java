@@ -0,0 +1,749 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A game of MineField with no console input or output, so that it can be
+ * played from other code (bots, test harnesses, servers) as fast as the
+ * board allows. The console game in MineField.main is one client of this
+ * class.
+ *
+ * A game is set up from its size, number of mines and a seed, and played
+ * with reveal, flag and chord. None of these ever exit the program: once a
+ * mine is revealed the game's status is LOST, and once every safe cell is
+ * revealed it is WON. Moves made after that are ignored.
+ *
+ * Games made with firstClickSafe don't place their mines until the first
+ * cell is revealed, and keep that cell (and normally its neighbors) clear,
+ * so the first move can't lose. Nothing but an empty board is set up until
+ * then, so games that are abandoned before the first move cost little.
+ *
+ * @author Ben Wright
+ * @version 2026.10.18
+ */
+
+public class Game {
+    /**
+     * Whether a game is still going, and if not how it ended.
+     */
+    public enum Status {
+        /** Safe cells are still hidden and no mine has been revealed */
+        PLAYING,
+        /** Every safe cell has been revealed */
+        WON,
+        /** A mine has been revealed */
+        LOST
+    }
+
+    /**
+     * What a call to revealAll did.
+     */
+    public static class BatchResult {
+        /** Flat indices of the cells that were exposed, in order */
+        private final int[] exposedCells;
+        /** Status of the game after the batch */
+        private final Status status;
+
+
+        /**
+         * Create a batch result.
+         *
+         * @param exposedCells
+         *            flat indices of the cells that were exposed
+         * @param status
+         *            status of the game after the batch
+         */
+        BatchResult(int[] exposedCells, Status status) {
+            this.exposedCells = exposedCells;
+            this.status = status;
+        }
+
+
+        /**
+         * Return the cells that the batch exposed, including the cells of
+         * any openings, in the order they were exposed.
+         *
+         * @return flat indices (row * cols + col) of the exposed cells
+         */
+        public int[] getExposedCells() {
+            return exposedCells;
+        }
+
+
+        /**
+         * Return the status of the game after the batch.
+         *
+         * @return PLAYING, or WON or LOST if the batch ended the game
+         */
+        public Status getStatus() {
+            return status;
+        }
+    }
+
+    /** Value returned by getVisibleValue for a hidden cell */
+    public static final int HIDDEN = -2;
+    /** Value returned by getVisibleValue for a hidden, flagged cell */
+    public static final int FLAG = -3;
+
+    /** The board being played; empty until the mines are placed */
+    private PackedBoard board;
+    /** The seed the board was generated from */
+    private final long seed;
+    /** False if the board was given rather than generated from seed */
+    private final boolean seeded;
+    /** Number of mines on the board, once they are placed */
+    private final int mines;
+    /** True if the mines are placed on the first reveal */
+    private final boolean firstClickSafe;
+    /** True to keep the neighbors of the first reveal clear as well */
+    private final boolean clearNeighbors;
+    /** Flat index of the first reveal, or -1 before it */
+    private int firstCell = -1;
+    /** Rows changed by moves, passed on to the board; may be null */
+    private boolean[] dirtyRows;
+    /** Number of moves made so far */
+    private int moves;
+    /** Where moves are recorded; may be null */
+    private MoveJournal journal;
+    /** True to reveal openings with an OpeningIndex */
+    private boolean indexOpenings;
+
+
+    /**
+     * Start a game with a random layout.
+     *
+     * @param rows
+     *            number of rows in the board
+     * @param cols
+     *            number of columns in the board
+     * @param mines
+     *            number of mines on the board
+     */
+    public Game(int rows, int cols, int mines) {
+        this(rows, cols, mines, ThreadLocalRandom.current().nextLong());
+    }
+
+
+    /**
+     * Start a game whose layout is generated from seed. The same
+     * (rows, cols, mines, seed) always gives the same layout.
+     *
+     * @param rows
+     *            number of rows in the board
+     * @param cols
+     *            number of columns in the board
+     * @param mines
+     *            number of mines on the board
+     * @param seed
+     *            seed for the mine layout
+     */
+    public Game(int rows, int cols, int mines, long seed) {
+        this.board = PackedBoard.create(rows, cols, mines,
+            new SplittableRandom(seed));
+        this.seed = seed;
+        this.seeded = true;
+        this.mines = board.getMineCount();
+        this.firstClickSafe = false;
+        this.clearNeighbors = false;
+    }
+
+
+    /**
+     * Helper constructor for firstClickSafe: sets up an empty board.
+     *
+     * @param rows
+     *            number of rows in the board
+     * @param cols
+     *            number of columns in the board
+     * @param mines
+     *            number of mines on the board
+     * @param seed
+     *            seed for the mine layout
+     * @param clearNeighbors
+     *            true to keep the first cell's neighbors clear too
+     */
+    private Game(int rows, int cols, int mines, long seed,
+        boolean clearNeighbors) {
+        this.board = new PackedBoard(rows, cols);
+        this.seed = seed;
+        this.seeded = true;
+        if (mines < 0 || mines > rows * cols - 1) {
+            throw new IllegalArgumentException("Can't place " + mines
+                + " mines around a safe cell on a " + rows + " x " + cols
+                + " board");
+        }
+        this.mines = mines;
+        this.firstClickSafe = true;
+        this.clearNeighbors = clearNeighbors;
+    }
+
+
+    /**
+     * Start a game whose mines are placed when the first cell is revealed,
+     * away from that cell and its neighbors, so the first move opens an
+     * area. The layout is random.
+     *
+     * @param rows
+     *            number of rows in the board
+     * @param cols
+     *            number of columns in the board
+     * @param mines
+     *            number of mines, at most rows * cols - 1
+     * @return the new game
+     */
+    public static Game firstClickSafe(int rows, int cols, int mines) {
+        return firstClickSafe(rows, cols, mines,
+            ThreadLocalRandom.current().nextLong(), true);
+    }
+
+
+    /**
+     * Start a game whose mines are placed when the first cell is revealed,
+     * away from that cell. The same (rows, cols, mines, seed, first cell,
+     * clearNeighbors) always gives the same layout.
+     *
+     * @param rows
+     *            number of rows in the board
+     * @param cols
+     *            number of columns in the board
+     * @param mines
+     *            number of mines, at most rows * cols - 1
+     * @param seed
+     *            seed for the mine layout
+     * @param clearNeighbors
+     *            true to keep the first cell's neighbors clear too, when
+     *            there is room for the mines elsewhere
+     * @return the new game
+     * @throws IllegalArgumentException
+     *             if mines is negative or leaves no safe cell
+     */
+    public static Game firstClickSafe(int rows, int cols, int mines,
+        long seed, boolean clearNeighbors) {
+        return new Game(rows, cols, mines, seed, clearNeighbors);
+    }
+
+
+    /**
+     * Start a game on an existing mine field, e.g. one built by hand for a
+     * test. Nothing is exposed yet.
+     *
+     * @param field
+     *            the mine field (-1 for mines, 0..8 for hints)
+     */
+    public Game(int[][] field) {
+        this(PackedBoard.fromField(field));
+    }
+
+
+    /**
+     * Start a game on a board that has already been generated, e.g. by
+     * NoGuessGenerator. The board is played as it is, not copied.
+     *
+     * @param board
+     *            the board, with nothing exposed
+     */
+    Game(PackedBoard board) {
+        this.board = board;
+        this.seed = 0;
+        this.seeded = false;
+        this.mines = board.getMineCount();
+        this.firstClickSafe = false;
+        this.clearNeighbors = false;
+    }
+
+
+    /**
+     * Start a game again from what GameFile saves: its settings and seed,
+     * with the mines placed if the saved game had placed them. Nothing is
+     * exposed or flagged yet.
+     *
+     * @param rows
+     *            number of rows in the board
+     * @param cols
+     *            number of columns in the board
+     * @param mines
+     *            number of mines on the board
+     * @param seed
+     *            seed for the mine layout
+     * @param firstClickSafe
+     *            true if the game places its mines on the first reveal
+     * @param clearNeighbors
+     *            true if the first reveal's neighbors are kept clear too
+     * @param firstCell
+     *            flat index of the first reveal, or -1 if there was none
+     * @param moves
+     *            number of moves made
+     * @return the game
+     */
+    static Game restore(int rows, int cols, int mines, long seed,
+        boolean firstClickSafe, boolean clearNeighbors, int firstCell,
+        int moves) {
+        Game game = firstClickSafe
+            ? new Game(rows, cols, mines, seed, clearNeighbors)
+            : new Game(rows, cols, mines, seed);
+        if (firstCell >= 0) {
+            game.placeMines(firstCell);
+        }
+        game.moves = moves;
+        return game;
+    }
+
+
+    /**
+     * Start a game again on a saved board, exposed and flagged cells and
+     * all.
+     *
+     * @param board
+     *            the board
+     * @param moves
+     *            number of moves made
+     * @return the game
+     */
+    static Game restore(PackedBoard board, int moves) {
+        Game game = new Game(board);
+        game.moves = moves;
+        return game;
+    }
+
+
+    /**
+     * Reveal a cell, and the opening around it if it is a zero. Flagged
+     * cells can't be revealed; unflag them first.
+     *
+     * @param row
+     *            cell row
+     * @param col
+     *            cell column
+     * @return the status of the game after the move
+     */
+    public Status reveal(int row, int col) {
+        if (getStatus() != Status.PLAYING || board.isFlagged(row, col)) {
+            return getStatus();
+        }
+
+        placeMines(row * getCols() + col);
+        if (board.exposeCell(row, col) > 0) {
+            moves++;
+            record(MoveJournal.REVEAL, row, col);
+        }
+        return getStatus();
+    }
+
+
+    /**
+     * Reveal many cells in one call, e.g. all the moves a bot has decided on
+     * for one turn. The cells are revealed in order, as if reveal had been
+     * called on each, stopping at the first mine; flagged cells are skipped.
+     * Every reveal shares one flood fill queue.
+     *
+     * @param cells
+     *            flat indices (row * cols + col) of the cells to reveal
+     * @return the cells that were exposed and the status of the game
+     */
+    public BatchResult revealAll(int[] cells) {
+        return revealAll(cells, cells.length);
+    }
+
+
+    /**
+     * Reveal the first count cells of an array, like revealAll(cells). Lets
+     * a bot reuse one array for its moves.
+     *
+     * @param cells
+     *            flat indices (row * cols + col) of the cells to reveal
+     * @param count
+     *            number of cells of the array to reveal
+     * @return the cells that were exposed and the status of the game
+     */
+    public BatchResult revealAll(int[] cells, int count) {
+        board.startBatch();
+        for (int i = 0; i < count; i++) {
+            int cell = cells[i];
+            if (getStatus() != Status.PLAYING) {
+                break;
+            }
+            if (board.isFlagged(cell)) {
+                continue;
+            }
+
+            if (firstCell < 0 && firstClickSafe) {
+                placeMines(cell);
+                board.startBatch();
+            }
+            if (board.exposeInBatch(cell) > 0) {
+                moves++;
+                if (journal != null) {
+                    journal.append(MoveJournal.REVEAL, cell);
+                }
+            }
+        }
+
+        return new BatchResult(board.batchExposed(), getStatus());
+    }
+
+
+    /**
+     * Helper method places the mines of a firstClickSafe game, keeping cell
+     * clear, if they haven't been placed yet. Hints are set as the board is
+     * made, counted outward from the mines on sparse boards. Flags placed
+     * before the first move are kept.
+     *
+     * @param cell
+     *            flat index of the first cell revealed
+     */
+    private void placeMines(int cell) {
+        if (!firstClickSafe || firstCell >= 0) {
+            return;
+        }
+
+        int rows = board.getRows();
+        int cols = board.getCols();
+        if (cell < 0 || cell >= rows * cols) {
+            throw new IndexOutOfBoundsException(
+                "Cell " + cell + " is outside a " + rows + " x " + cols
+                    + " board");
+        }
+        PackedBoard placed = PackedBoard.create(rows, cols, mines,
+            new SplittableRandom(seed), cell / cols, cell % cols,
+            clearNeighbors);
+        for (int i = 0; i < rows * cols; i++) {
+            if (board.isFlagged(i)) {
+                placed.setFlagged(i / cols, i % cols, true);
+            }
+        }
+        placed.setDirtyRows(dirtyRows);
+        if (indexOpenings) {
+            placed.setOpeningIndex(OpeningIndex.build(placed));
+        }
+        board = placed;
+        firstCell = cell;
+    }
+
+
+    /**
+     * Return true once the mines are on the board. Games made with
+     * firstClickSafe have no mines until the first cell is revealed; other
+     * games always have them.
+     *
+     * @return true if the mines have been placed
+     */
+    public boolean minesPlaced() {
+        return !firstClickSafe || firstCell >= 0;
+    }
+
+
+    /**
+     * Return the first cell revealed in a firstClickSafe game, which the
+     * layout depends on.
+     *
+     * @return flat index of the first cell revealed, or -1 if there hasn't
+     *         been one or the game isn't firstClickSafe
+     */
+    public int getFirstCell() {
+        return firstCell;
+    }
+
+
+    /**
+     * Return true if the game's mines are placed on the first reveal.
+     *
+     * @return true for games made with firstClickSafe
+     */
+    public boolean isFirstClickSafe() {
+        return firstClickSafe;
+    }
+
+
+    /**
+     * Return true if a firstClickSafe game keeps the first reveal's
+     * neighbors clear as well as the cell itself.
+     *
+     * @return true if neighbors are kept clear
+     */
+    boolean clearsNeighbors() {
+        return clearNeighbors;
+    }
+
+
+    /**
+     * Place a flag on a hidden cell, or take it off if there is one already.
+     * Exposed cells can't be flagged.
+     *
+     * @param row
+     *            cell row
+     * @param col
+     *            cell column
+     * @return the status of the game after the move
+     */
+    public Status flag(int row, int col) {
+        if (getStatus() != Status.PLAYING || board.isExposed(row, col)) {
+            return getStatus();
+        }
+
+        moves++;
+        board.setFlagged(row, col, !board.isFlagged(row, col));
+        record(MoveJournal.FLAG, row, col);
+        return getStatus();
+    }
+
+
+    /**
+     * Chord on an exposed hint: if it has as many flagged neighbors as its
+     * hint, reveal all of its other hidden neighbors. If a flag is wrong this
+     * reveals a mine and the game is lost. Does nothing otherwise.
+     *
+     * @param row
+     *            cell row
+     * @param col
+     *            cell column
+     * @return the status of the game after the move
+     */
+    public Status chord(int row, int col) {
+        if (getStatus() != Status.PLAYING || !board.isExposed(row, col)) {
+            return getStatus();
+        }
+
+        int hint = board.getValue(row, col);
+        int firstRow = Math.max(row - 1, 0);
+        int lastRow = Math.min(row + 1, board.getRows() - 1);
+        int firstCol = Math.max(col - 1, 0);
+        int lastCol = Math.min(col + 1, board.getCols() - 1);
+
+        int flags = 0;
+        for (int r = firstRow; r <= lastRow; r++) {
+            for (int c = firstCol; c <= lastCol; c++) {
+                if (board.isFlagged(r, c)) {
+                    flags++;
+                }
+            }
+        }
+        if (hint <= 0 || flags != hint) {
+            return getStatus();
+        }
+
+        int exposed = 0;
+        for (int r = firstRow; r <= lastRow; r++) {
+            for (int c = firstCol; c <= lastCol; c++) {
+                if (!board.isFlagged(r, c) && !board.isExposed(r, c)) {
+                    exposed += board.exposeCell(r, c);
+                }
+            }
+        }
+        if (exposed > 0) {
+            moves++;
+            record(MoveJournal.CHORD, row, col);
+        }
+        return getStatus();
+    }
+
+
+    /**
+     * Helper method records a move in the journal, if there is one.
+     *
+     * @param type
+     *            MoveJournal.REVEAL, FLAG or CHORD
+     * @param row
+     *            cell row
+     * @param col
+     *            cell column
+     */
+    private void record(int type, int row, int col) {
+        if (journal != null) {
+            journal.append(type, row * getCols() + col);
+        }
+    }
+
+
+    /**
+     * Return whether the game is still going, won, or lost.
+     *
+     * @return the status of the game
+     */
+    public Status getStatus() {
+        if (board.lost()) {
+            return Status.LOST;
+        }
+        if (board.won()) {
+            return Status.WON;
+        }
+
+        return Status.PLAYING;
+    }
+
+
+    /**
+     * Return what a player can see of a cell.
+     *
+     * @param row
+     *            cell row
+     * @param col
+     *            cell column
+     * @return HIDDEN or FLAG for hidden cells, otherwise the cell's value
+     *         (-1 for a mine, 0..8 for a hint)
+     */
+    public int getVisibleValue(int row, int col) {
+        if (board.isExposed(row, col)) {
+            return board.getValue(row, col);
+        }
+
+        return board.isFlagged(row, col) ? FLAG : HIDDEN;
+    }
+
+
+    /**
+     * Return what a player can see of the cell at a flat index, like
+     * getVisibleValue(row, col) without the bounds check on row and col.
+     *
+     * @param cell
+     *            flat index (row * cols + col) of the cell
+     * @return HIDDEN or FLAG for hidden cells, otherwise the cell's value
+     */
+    int getVisibleValue(int cell) {
+        int bits = board.cells()[cell];
+        if ((bits & PackedBoard.EXPOSED) != 0) {
+            return PackedBoard.valueOf(bits);
+        }
+
+        return (bits & PackedBoard.FLAGGED) != 0 ? FLAG : HIDDEN;
+    }
+
+
+    /**
+     * Have moves mark the rows of the board they change. See
+     * PackedBoard.setDirtyRows.
+     *
+     * @param dirtyRows
+     *            one entry per row, or null to stop marking rows
+     */
+    public void setDirtyRows(boolean[] dirtyRows) {
+        this.dirtyRows = dirtyRows;
+        board.setDirtyRows(dirtyRows);
+    }
+
+
+    /**
+     * Index the openings of the layout, so that revealing a zero cell looks
+     * its opening up instead of filling it (see OpeningIndex). Building the
+     * index takes about as long as one flood fill over the whole board, so
+     * it pays off for games with many reveals, e.g. on a busy server. A
+     * firstClickSafe game builds it when its mines are placed.
+     *
+     * @param enabled
+     *            true to use an index, false to fill as usual
+     */
+    public void setOpeningIndex(boolean enabled) {
+        indexOpenings = enabled;
+        board.setOpeningIndex(enabled && minesPlaced()
+            ? OpeningIndex.build(board) : null);
+    }
+
+
+    /**
+     * Return the board as the player sees it, like MineField.showBoard.
+     *
+     * @return the board with hidden cells drawn as * and flags as F
+     */
+    public String showBoard() {
+        return BoardRenderer.showBoard(board);
+    }
+
+
+    /**
+     * Return the board with every cell shown, like MineField.fieldToString.
+     * Before the mines of a firstClickSafe game are placed, every cell is 0.
+     *
+     * @return the whole mine field
+     */
+    public String fieldToString() {
+        return BoardRenderer.fieldToString(board);
+    }
+
+
+    /**
+     * Record every move from now on in a journal, so the game can be
+     * replayed with Replay. The journal should have been created for this
+     * game in its current state (see MoveJournal.create). Moves that are
+     * ignored aren't recorded.
+     *
+     * @param journal
+     *            where to record moves, or null to stop recording
+     */
+    public void setJournal(MoveJournal journal) {
+        this.journal = journal;
+    }
+
+
+    /**
+     * Return the number of moves made so far. Moves that had no effect
+     * (e.g. revealing a flagged or already exposed cell) aren't counted.
+     *
+     * @return number of moves
+     */
+    public int getMoves() {
+        return moves;
+    }
+
+
+    /**
+     * Return the number of rows in the board.
+     *
+     * @return number of rows
+     */
+    public int getRows() {
+        return board.getRows();
+    }
+
+
+    /**
+     * Return the number of columns in the board.
+     *
+     * @return number of columns
+     */
+    public int getCols() {
+        return board.getCols();
+    }
+
+
+    /**
+     * Return the number of mines on the board.
+     *
+     * @return number of mines
+     */
+    public int getMines() {
+        return mines;
+    }
+
+
+    /**
+     * Return the seed the layout was generated from. For a firstClickSafe
+     * game the layout also depends on the first cell revealed.
+     *
+     * @return the seed, or 0 if the game was started on a given field
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+
+    /**
+     * Return true if the layout was generated from a seed.
+     *
+     * @return true if getSeed can be used to regenerate the layout
+     */
+    public boolean isSeeded() {
+        return seeded;
+    }
+
+
+    /**
+     * Return the board being played. Package-private, for the console game
+     * and other code that works on the board directly. A firstClickSafe game
+     * replaces its board when the mines are placed, so don't keep the
+     * result across the first reveal.
+     *
+     * @return the board
+     */
+    PackedBoard board() {
+        return board;
+    }
+
+}
@@ -0,0 +1,399 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * Saves games to, and loads them from, a compact binary format.
+ *
+ * A saved game starts with a header: the magic number "MSAV", a format
+ * version, flags, rows, columns, mines, the seed (for seeded games), the
+ * first cell (for firstClickSafe games) and the number of moves. A seeded
+ * game then only needs which cells are exposed and which are flagged, since
+ * its mines are generated again from the seed. Each of those masks is
+ * written either as a bitset or, when that is smaller, as run lengths. A
+ * game on a given board has no seed, so its packed board is written as it
+ * is, one byte per cell.
+ *
+ * Saving writes to a temporary file next to the target and moves it into
+ * place, so a save that fails part way never leaves a damaged file behind.
+ * Loading reads the file as a stream straight into the board's cells,
+ * without making an object per cell.
+ *
+ * @author Ben Wright
+ * @version 2026.10.18
+ */
+
+public class GameFile {
+    /** First bytes of a saved game ("MSAV") */
+    static final int MAGIC = 0x4D534156;
+    /** Version of the format */
+    static final int VERSION = 1;
+    /** Flag set for games whose layout comes from a seed */
+    private static final int SEEDED = 1;
+    /** Flag set for firstClickSafe games */
+    private static final int FIRST_CLICK_SAFE = 2;
+    /** Flag set when a firstClickSafe game keeps neighbors clear */
+    private static final int CLEAR_NEIGHBORS = 4;
+    /** Mask written as one bit per cell */
+    private static final int BITSET = 0;
+    /** Mask written as alternating runs of clear and set cells */
+    private static final int RUNS = 1;
+    /** Size of the buffers used for streaming */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+
+    /**
+     * Save a game to a file, replacing it atomically if it exists.
+     *
+     * @param game
+     *            the game
+     * @param file
+     *            where to save it
+     * @throws IOException
+     *             if the file can't be written
+     */
+    public static void save(Game game, Path file) throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(dir, file.getFileName().toString(),
+            ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                write(game, out);
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+            }
+            catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+
+    /**
+     * Load a game saved by save.
+     *
+     * @param file
+     *            the saved game
+     * @return the game, as it was saved
+     * @throws IOException
+     *             if the file can't be read or isn't a saved game
+     */
+    public static Game load(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return read(in);
+        }
+    }
+
+
+    /**
+     * Write a game to a stream. The stream is flushed but not closed.
+     *
+     * @param game
+     *            the game
+     * @param out
+     *            where to write it
+     * @throws IOException
+     *             if out can't be written to
+     */
+    public static void write(Game game, OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(
+            new BufferedOutputStream(out, BUFFER_SIZE));
+        byte[] cells = game.board().cells();
+        int flags = (game.isSeeded() ? SEEDED : 0)
+            | (game.isFirstClickSafe() ? FIRST_CLICK_SAFE : 0)
+            | (game.clearsNeighbors() ? CLEAR_NEIGHBORS : 0);
+        data.writeInt(MAGIC);
+        data.writeByte(VERSION);
+        data.writeByte(flags);
+        data.writeInt(game.getRows());
+        data.writeInt(game.getCols());
+        data.writeInt(game.getMines());
+        if (game.isSeeded()) {
+            data.writeLong(game.getSeed());
+        }
+        if (game.isFirstClickSafe()) {
+            data.writeInt(game.getFirstCell());
+        }
+        data.writeInt(game.getMoves());
+
+        if (game.isSeeded()) {
+            writeMask(data, cells, PackedBoard.EXPOSED);
+            writeMask(data, cells, PackedBoard.FLAGGED);
+        }
+        else {
+            data.write(cells);
+        }
+        data.flush();
+    }
+
+
+    /**
+     * Read a game written by write.
+     *
+     * @param in
+     *            where to read it from; it may be read past the end of the
+     *            game
+     * @return the game, as it was written
+     * @throws IOException
+     *             if in can't be read or doesn't hold a saved game
+     */
+    public static Game read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(
+            new BufferedInputStream(in, BUFFER_SIZE));
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a saved game");
+        }
+        int version = data.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Saved game has version " + version
+                + ", expected " + VERSION);
+        }
+        int flags = data.readUnsignedByte();
+        int rows = data.readInt();
+        int cols = data.readInt();
+        int mines = data.readInt();
+        if (rows < 0 || cols < 0 || (long) rows * cols > Integer.MAX_VALUE) {
+            throw new IOException("Saved game has a bad size: " + rows + " x "
+                + cols);
+        }
+        int room = (flags & FIRST_CLICK_SAFE) != 0 ? rows * cols - 1
+            : rows * cols;
+        if (mines < 0 || mines > room) {
+            throw new IOException("Saved game has a bad mine count: "
+                + mines);
+        }
+        long seed = (flags & SEEDED) != 0 ? data.readLong() : 0;
+        int firstCell = (flags & FIRST_CLICK_SAFE) != 0 ? data.readInt() : -1;
+        int moves = data.readInt();
+        if (firstCell < -1 || firstCell >= rows * cols) {
+            throw new IOException("Saved game has a bad first cell: "
+                + firstCell);
+        }
+
+        Game game;
+        if ((flags & SEEDED) != 0) {
+            game = Game.restore(rows, cols, mines, seed,
+                (flags & FIRST_CLICK_SAFE) != 0,
+                (flags & CLEAR_NEIGHBORS) != 0, firstCell, moves);
+            byte[] cells = game.board().cells();
+            readMask(data, cells, PackedBoard.EXPOSED);
+            readMask(data, cells, PackedBoard.FLAGGED);
+            game.board().recount();
+        }
+        else {
+            PackedBoard board = new PackedBoard(rows, cols);
+            data.readFully(board.cells());
+            board.recount();
+            game = Game.restore(board, moves);
+        }
+
+        return game;
+    }
+
+
+    /**
+     * Return the number of cells of a game written by write, from its
+     * header alone.
+     *
+     * @param saved
+     *            the bytes of the saved game
+     * @return rows * cols
+     * @throws IOException
+     *             if saved doesn't start with a saved game's header
+     */
+    static long cellCount(byte[] saved) throws IOException {
+        ByteBuffer header = ByteBuffer.wrap(saved);
+        if (saved.length < 14 || header.getInt(0) != MAGIC) {
+            throw new IOException("Not a saved game");
+        }
+
+        return (long) header.getInt(6) * header.getInt(10);
+    }
+
+
+    /**
+     * Helper method writes which cells have a bit set, as a bitset or as
+     * runs, whichever is smaller.
+     *
+     * @param out
+     *            where to write the mask
+     * @param cells
+     *            the board's cells
+     * @param bit
+     *            the bit to write
+     * @throws IOException
+     *             if out can't be written to
+     */
+    private static void writeMask(DataOutputStream out, byte[] cells, int bit)
+        throws IOException {
+        long runBytes = 0;
+        int start = 0;
+        boolean set = false;
+        for (int i = 0; i <= cells.length; i++) {
+            if (i == cells.length || ((cells[i] & bit) != 0) != set) {
+                runBytes += varintSize(i - start);
+                start = i;
+                set = !set;
+            }
+        }
+
+        if (runBytes < (cells.length + 7) / 8) {
+            out.writeByte(RUNS);
+            start = 0;
+            set = false;
+            for (int i = 0; i <= cells.length; i++) {
+                if (i == cells.length || ((cells[i] & bit) != 0) != set) {
+                    writeVarint(out, i - start);
+                    start = i;
+                    set = !set;
+                }
+            }
+            return;
+        }
+
+        out.writeByte(BITSET);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        for (int first = 0; first < cells.length; first += 8 * BUFFER_SIZE) {
+            int last = Math.min(cells.length, first + 8 * BUFFER_SIZE);
+            int length = (last - first + 7) / 8;
+            Arrays.fill(buffer, 0, length, (byte) 0);
+            for (int i = first; i < last; i++) {
+                if ((cells[i] & bit) != 0) {
+                    buffer[(i - first) >> 3] |= (byte) (1 << (i & 7));
+                }
+            }
+            out.write(buffer, 0, length);
+        }
+    }
+
+
+    /**
+     * Helper method reads a mask written by writeMask and sets its bit in
+     * the cells it covers.
+     *
+     * @param in
+     *            where to read the mask from
+     * @param cells
+     *            the board's cells
+     * @param bit
+     *            the bit to set
+     * @throws IOException
+     *             if in can't be read or the mask is damaged
+     */
+    private static void readMask(DataInputStream in, byte[] cells, int bit)
+        throws IOException {
+        int encoding = in.readUnsignedByte();
+        if (encoding == RUNS) {
+            int i = 0;
+            boolean set = false;
+            while (i < cells.length) {
+                int run = readVarint(in);
+                if (run < 0 || run > cells.length - i) {
+                    throw new IOException("Saved game has a bad run length");
+                }
+                if (set) {
+                    for (int end = i + run; i < end; i++) {
+                        cells[i] |= (byte) bit;
+                    }
+                }
+                else {
+                    i += run;
+                }
+                set = !set;
+            }
+            return;
+        }
+        if (encoding != BITSET) {
+            throw new IOException("Saved game has a bad mask encoding: "
+                + encoding);
+        }
+
+        byte[] buffer = new byte[BUFFER_SIZE];
+        for (int first = 0; first < cells.length; first += 8 * BUFFER_SIZE) {
+            int last = Math.min(cells.length, first + 8 * BUFFER_SIZE);
+            in.readFully(buffer, 0, (last - first + 7) / 8);
+            for (int i = first; i < last; i++) {
+                if ((buffer[(i - first) >> 3] & (1 << (i & 7))) != 0) {
+                    cells[i] |= (byte) bit;
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Helper method writes a non-negative int in 7-bit groups, low group
+     * first, with the top bit of each byte set if more follow.
+     *
+     * @param out
+     *            where to write it
+     * @param value
+     *            the value
+     * @throws IOException
+     *             if out can't be written to
+     */
+    static void writeVarint(OutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+
+    /**
+     * Helper method reads an int written by writeVarint.
+     *
+     * @param in
+     *            where to read it from
+     * @return the value
+     * @throws IOException
+     *             if in can't be read or the value is too long
+     */
+    static int readVarint(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+
+        throw new IOException("Saved game has a bad varint");
+    }
+
+
+    /**
+     * Helper method returns how many bytes writeVarint writes for a value.
+     *
+     * @param value
+     *            the value
+     * @return 1..5
+     */
+    private static int varintSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+
+        return size;
+    }
+
+}
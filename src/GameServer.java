@@ -0,0 +1,612 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Serves many games at once over TCP. Each connection is a session with its
+ * own Game, handled on its own thread: a virtual thread when the Java
+ * runtime has them, otherwise a thread from a cached pool. Sessions share
+ * nothing but the server's counters.
+ *
+ * Clients send one command per line and get one reply line per command
+ * (BOARD also sends the rows of the board):
+ * <ul>
+ *      <li> NEW rows cols mines [seed] - start a game whose first reveal is
+ *      safe; replies OK rows cols mines </li>
+ *      <li> REVEAL row col, FLAG row col, CHORD row col - make a move;
+ *      replies OK and the game's status (PLAYING, WON or LOST) </li>
+ *      <li> STATUS - replies OK, the status and the number of moves </li>
+ *      <li> BOARD - replies OK and the number of rows, then one line per
+ *      row: 0-8 for exposed hints, * for an exposed mine, F for a flag and
+ *      . for a hidden cell </li>
+ *      <li> STATS - replies OK and the server's statistics </li>
+ *      <li> QUIT - replies BYE and closes the connection </li>
+ * </ul>
+ * A command that can't be carried out gets ERR and a message instead.
+ *
+ * Running this class starts a server on the loopback address and prints its
+ * statistics every ten seconds: java GameServer [port]
+ *
+ * @author Ben Wright
+ * @version 2026.10.18
+ */
+
+public class GameServer implements Closeable {
+    /** Most cells in one game */
+    public static final int MAX_CELLS = 1 << 22;
+    /** Sub-buckets per power of two in the latency histogram */
+    private static final int SUB_BUCKET_BITS = 3;
+
+    /**
+     * A snapshot of what a server has done since it started.
+     */
+    public static class Stats {
+        /** Sessions connected now */
+        private final int activeSessions;
+        /** Sessions connected since the server started */
+        private final long sessions;
+        /** Moves made since the server started */
+        private final long moves;
+        /** Moves made per second since the server started */
+        private final double movesPerSecond;
+        /** Median command latency in nanoseconds */
+        private final long p50;
+        /** 99th percentile command latency in nanoseconds */
+        private final long p99;
+        /** 99.9th percentile command latency in nanoseconds */
+        private final long p999;
+
+
+        /**
+         * Create a snapshot.
+         *
+         * @param activeSessions
+         *            sessions connected now
+         * @param sessions
+         *            sessions connected since the server started
+         * @param moves
+         *            moves made since the server started
+         * @param movesPerSecond
+         *            moves made per second
+         * @param p50
+         *            median latency
+         * @param p99
+         *            99th percentile latency
+         * @param p999
+         *            99.9th percentile latency
+         */
+        Stats(int activeSessions, long sessions, long moves,
+            double movesPerSecond, long p50, long p99, long p999) {
+            this.activeSessions = activeSessions;
+            this.sessions = sessions;
+            this.moves = moves;
+            this.movesPerSecond = movesPerSecond;
+            this.p50 = p50;
+            this.p99 = p99;
+            this.p999 = p999;
+        }
+
+
+        /**
+         * Return the number of sessions connected now.
+         *
+         * @return active sessions
+         */
+        public int getActiveSessions() {
+            return activeSessions;
+        }
+
+
+        /**
+         * Return the number of sessions connected since the server started.
+         *
+         * @return total sessions
+         */
+        public long getSessions() {
+            return sessions;
+        }
+
+
+        /**
+         * Return the number of moves made since the server started.
+         *
+         * @return total moves
+         */
+        public long getMoves() {
+            return moves;
+        }
+
+
+        /**
+         * Return the number of moves made per second since the server
+         * started.
+         *
+         * @return moves per second
+         */
+        public double getMovesPerSecond() {
+            return movesPerSecond;
+        }
+
+
+        /**
+         * Return the median time taken to handle a command. Latencies are
+         * kept in buckets an eighth of a power of two wide, and this is the
+         * top of the bucket.
+         *
+         * @return nanoseconds
+         */
+        public long getP50() {
+            return p50;
+        }
+
+
+        /**
+         * Return the 99th percentile of the time taken to handle a command.
+         *
+         * @return nanoseconds
+         */
+        public long getP99() {
+            return p99;
+        }
+
+
+        /**
+         * Return the 99.9th percentile of the time taken to handle a
+         * command.
+         *
+         * @return nanoseconds
+         */
+        public long getP999() {
+            return p999;
+        }
+
+
+        /**
+         * Return the statistics as one line, as the STATS command sends
+         * them.
+         *
+         * @return the statistics
+         */
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                "active=%d sessions=%d moves=%d moves/s=%.1f p50=%dns "
+                    + "p99=%dns p999=%dns",
+                activeSessions, sessions, moves, movesPerSecond, p50, p99,
+                p999);
+        }
+    }
+
+    /** The listening socket */
+    private final ServerSocket server;
+    /** Runs the accept loop and the sessions */
+    private final ExecutorService executor;
+    /** Connections that are open, so close can close them */
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    /** When the server started, from System.nanoTime */
+    private final long started = System.nanoTime();
+    /** Sessions connected now */
+    private final AtomicInteger activeSessions = new AtomicInteger();
+    /** Sessions connected since the server started */
+    private final LongAdder sessions = new LongAdder();
+    /** Moves made since the server started */
+    private final LongAdder moves = new LongAdder();
+    /** Number of commands that took each bucket's time */
+    private final AtomicLongArray latencies = new AtomicLongArray(
+        64 << SUB_BUCKET_BITS);
+
+
+    /**
+     * Start a server on the loopback address.
+     *
+     * @param port
+     *            port to listen on, or 0 for any free port
+     * @throws IOException
+     *             if the port can't be listened on
+     */
+    public GameServer(int port) throws IOException {
+        server = new ServerSocket(port, 256, InetAddress.getLoopbackAddress());
+        executor = newExecutor();
+        executor.execute(this::accept);
+    }
+
+
+    /**
+     * Helper method returns an executor that runs each task on a new virtual
+     * thread if this Java has them (21 and later), otherwise on a cached
+     * thread pool. Looked up by reflection so the code builds on older
+     * Java.
+     *
+     * @return the executor
+     */
+    private static ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod(
+                "newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            // No virtual threads, or only as a preview that isn't enabled.
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+
+    /**
+     * Return the port the server is listening on.
+     *
+     * @return the port
+     */
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+
+    /**
+     * Helper method accepts connections until the server is closed,
+     * starting a session for each.
+     */
+    private void accept() {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+                connections.add(socket);
+                executor.execute(() -> serve(socket));
+            }
+            catch (IOException e) {
+                // The server was closed, or the connection failed before it
+                // could be used; either way there is nothing to serve.
+            }
+        }
+    }
+
+
+    /**
+     * Helper method runs one session: reads commands and answers them until
+     * the client quits or disconnects.
+     *
+     * @param socket
+     *            the client's connection
+     */
+    private void serve(Socket socket) {
+        activeSessions.incrementAndGet();
+        sessions.increment();
+        try (socket;
+            BufferedReader in = new BufferedReader(new InputStreamReader(
+                socket.getInputStream(), StandardCharsets.US_ASCII));
+            Writer out = new BufferedWriter(new OutputStreamWriter(
+                socket.getOutputStream(), StandardCharsets.US_ASCII))) {
+            Session session = new Session();
+            String line;
+            while ((line = in.readLine()) != null) {
+                long start = System.nanoTime();
+                boolean more = session.handle(line, out);
+                out.flush();
+                recordLatency(System.nanoTime() - start);
+                if (!more) {
+                    break;
+                }
+            }
+        }
+        catch (SocketException e) {
+            // The client went away, or the server is closing.
+        }
+        catch (IOException e) {
+            // Nothing more can be said to this client.
+        }
+        finally {
+            connections.remove(socket);
+            activeSessions.decrementAndGet();
+        }
+    }
+
+
+    /**
+     * One client's game. Only ever used by the session's own thread.
+     */
+    private class Session {
+        /** The game being played, or null before NEW */
+        private Game game;
+
+
+        /**
+         * Handle one command line, writing the reply.
+         *
+         * @param line
+         *            the command
+         * @param out
+         *            where to write the reply
+         * @return false if the session should end
+         * @throws IOException
+         *             if the reply can't be written
+         */
+        boolean handle(String line, Writer out) throws IOException {
+            String[] words = line.trim().split("\\s+");
+            String command = words[0].toUpperCase(Locale.ROOT);
+            try {
+                switch (command) {
+                    case "NEW":
+                        newGame(words);
+                        out.write("OK " + game.getRows() + " "
+                            + game.getCols() + " " + game.getMines());
+                        break;
+                    case "REVEAL":
+                    case "FLAG":
+                    case "CHORD":
+                        out.write("OK " + move(command, words));
+                        break;
+                    case "STATUS":
+                        checkGame();
+                        out.write("OK " + game.getStatus() + " "
+                            + game.getMoves());
+                        break;
+                    case "BOARD":
+                        checkGame();
+                        writeBoard(out);
+                        break;
+                    case "STATS":
+                        out.write("OK " + getStats());
+                        break;
+                    case "QUIT":
+                        out.write("BYE\n");
+                        return false;
+                    default:
+                        out.write("ERR unknown command " + words[0]);
+                }
+            }
+            catch (IllegalArgumentException | IllegalStateException
+                | IndexOutOfBoundsException e) {
+                out.write("ERR " + e.getMessage());
+            }
+            out.write('\n');
+            return true;
+        }
+
+
+        /**
+         * Helper method starts a game from the words of a NEW command.
+         *
+         * @param words
+         *            NEW rows cols mines [seed]
+         */
+        private void newGame(String[] words) {
+            if (words.length < 4 || words.length > 5) {
+                throw new IllegalArgumentException(
+                    "usage: NEW rows cols mines [seed]");
+            }
+            int rows = Integer.parseInt(words[1]);
+            int cols = Integer.parseInt(words[2]);
+            int mines = Integer.parseInt(words[3]);
+            if (rows < 1 || cols < 1 || (long) rows * cols > MAX_CELLS) {
+                throw new IllegalArgumentException("a board must have 1 to "
+                    + MAX_CELLS + " cells");
+            }
+            long seed = words.length == 5 ? Long.parseLong(words[4])
+                : ThreadLocalRandom.current().nextLong();
+            game = Game.firstClickSafe(rows, cols, mines, seed, true);
+        }
+
+
+        /**
+         * Helper method makes a move from the words of a REVEAL, FLAG or
+         * CHORD command.
+         *
+         * @param command
+         *            the command, in upper case
+         * @param words
+         *            the command and its row and column
+         * @return the status of the game after the move
+         */
+        private Game.Status move(String command, String[] words) {
+            checkGame();
+            if (words.length != 3) {
+                throw new IllegalArgumentException("usage: " + command
+                    + " row col");
+            }
+            int row = Integer.parseInt(words[1]);
+            int col = Integer.parseInt(words[2]);
+            if (row < 0 || row >= game.getRows() || col < 0
+                || col >= game.getCols()) {
+                throw new IndexOutOfBoundsException("cell (" + row + ", "
+                    + col + ") is outside the board");
+            }
+
+            int before = game.getMoves();
+            Game.Status status = command.equals("REVEAL")
+                ? game.reveal(row, col)
+                : command.equals("FLAG") ? game.flag(row, col)
+                    : game.chord(row, col);
+            moves.add(game.getMoves() - before);
+            return status;
+        }
+
+
+        /**
+         * Helper method writes the reply to BOARD, without the last line
+         * separator.
+         *
+         * @param out
+         *            where to write it
+         * @throws IOException
+         *             if it can't be written
+         */
+        private void writeBoard(Writer out) throws IOException {
+            out.write("OK " + game.getRows());
+            char[] row = new char[game.getCols()];
+            for (int r = 0; r < game.getRows(); r++) {
+                for (int c = 0; c < row.length; c++) {
+                    int value = game.getVisibleValue(r, c);
+                    row[c] = value == Game.HIDDEN ? '.'
+                        : value == Game.FLAG ? 'F'
+                            : value == -1 ? '*' : (char) ('0' + value);
+                }
+                out.write('\n');
+                out.write(row);
+            }
+        }
+
+
+        /**
+         * Helper method checks that a game has been started.
+         */
+        private void checkGame() {
+            if (game == null) {
+                throw new IllegalStateException("no game; send NEW first");
+            }
+        }
+    }
+
+
+    /**
+     * Helper method counts a command's latency in its histogram bucket.
+     *
+     * @param nanos
+     *            time taken to handle the command
+     */
+    private void recordLatency(long nanos) {
+        latencies.incrementAndGet(bucket(Math.max(nanos, 1)));
+    }
+
+
+    /**
+     * Helper method returns the histogram bucket of a latency: its power of
+     * two, then which eighth of it.
+     *
+     * @param nanos
+     *            a positive latency
+     * @return the bucket
+     */
+    static int bucket(long nanos) {
+        int log = 63 - Long.numberOfLeadingZeros(nanos);
+        if (log < SUB_BUCKET_BITS) {
+            return (int) nanos;
+        }
+        int sub = (int) (nanos >>> (log - SUB_BUCKET_BITS))
+            & ((1 << SUB_BUCKET_BITS) - 1);
+        return (log << SUB_BUCKET_BITS) | sub;
+    }
+
+
+    /**
+     * Helper method returns the largest latency in a histogram bucket.
+     *
+     * @param bucket
+     *            the bucket
+     * @return nanoseconds
+     */
+    static long bucketTop(int bucket) {
+        int log = bucket >>> SUB_BUCKET_BITS;
+        if (log < SUB_BUCKET_BITS) {
+            return bucket;
+        }
+        int sub = bucket & ((1 << SUB_BUCKET_BITS) - 1);
+        long step = 1L << (log - SUB_BUCKET_BITS);
+        return (1L << log) + (sub + 1) * step - 1;
+    }
+
+
+    /**
+     * Return what the server has done since it started.
+     *
+     * @return a snapshot of the server's statistics
+     */
+    public Stats getStats() {
+        long[] counts = new long[latencies.length()];
+        long total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = latencies.get(i);
+            total += counts[i];
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+        long moveCount = moves.sum();
+        return new Stats(activeSessions.get(), sessions.sum(), moveCount,
+            moveCount / seconds, percentile(counts, total, 0.5),
+            percentile(counts, total, 0.99), percentile(counts, total, 0.999));
+    }
+
+
+    /**
+     * Helper method finds a percentile in the latency histogram.
+     *
+     * @param counts
+     *            number of commands in each bucket
+     * @param total
+     *            number of commands
+     * @param fraction
+     *            which percentile, as a fraction
+     * @return the top of the bucket holding the percentile, or 0 if no
+     *         commands have been handled
+     */
+    private static long percentile(long[] counts, long total,
+        double fraction) {
+        long rank = (long) Math.ceil(total * fraction);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank && seen > 0) {
+                return bucketTop(i);
+            }
+        }
+
+        return 0;
+    }
+
+
+    /**
+     * Stop accepting connections and close every session.
+     *
+     * @throws IOException
+     *             if the listening socket can't be closed
+     */
+    @Override
+    public void close() throws IOException {
+        server.close();
+        for (Socket socket : connections) {
+            socket.close();
+        }
+        executor.shutdownNow();
+    }
+
+
+    /**
+     * Run a server until the program is stopped, printing its statistics
+     * every ten seconds.
+     *
+     * @param args
+     *            optional port (default 7878)
+     * @throws IOException
+     *             if the port can't be listened on
+     * @throws InterruptedException
+     *             if the main thread is interrupted
+     */
+    public static void main(String[] args)
+        throws IOException, InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7878;
+        try (GameServer server = new GameServer(port)) {
+            System.out.println("Listening on " + server.getPort());
+            while (true) {
+                Thread.sleep(10_000);
+                System.out.println(server.getStats());
+            }
+        }
+    }
+
+}
@@ -0,0 +1,678 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * A mine field with no fixed size. The field is split into square chunks of
+ * CHUNK_SIZE x CHUNK_SIZE cells, and a chunk is only generated the first time
+ * one of its cells is used. Each chunk has the same number of mines, placed
+ * from a seed mixed from the field's seed and the chunk's position, so the
+ * same chunk always gets the same mines whenever (and however often) it is
+ * generated.
+ *
+ * The hints along a chunk's edges depend on the mines of the chunks around
+ * it. Those are generated again from their seeds when the chunk is loaded,
+ * without being kept, so memory grows with the part of the field that has
+ * been explored rather than with the range of coordinates. Rows and columns
+ * can be any int; the ends of the int range are the edges of the field.
+ *
+ * The chunks are held in a ChunkStore. By default it keeps every chunk, but
+ * one with a memory budget spills the exposed and flagged cells of cold
+ * chunks to a file and reads them back when the chunks are used again.
+ *
+ * Exposing a zero floods the opening across chunk borders like
+ * PackedBoard.exposeCell. With few mines an opening can be endless, so one
+ * call exposes at most maxFloodCells cells. The rest of the fill is kept, and
+ * the next exposeCell call that doesn't hit a mine carries it on.
+ *
+ * @author Ben Wright
+ * @version 2026.10.18
+ */
+
+public class InfiniteMineField {
+    /** Number of bits in a chunk's side */
+    public static final int CHUNK_BITS = 6;
+    /** Number of rows and columns in a chunk */
+    public static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    /** Number of cells in a chunk */
+    public static final int CHUNK_CELLS = CHUNK_SIZE * CHUNK_SIZE;
+    /** Default for the most cells one exposeCell call exposes */
+    public static final int DEFAULT_MAX_FLOOD_CELLS = 1 << 20;
+    /** Mask for a cell's row or column within its chunk */
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    /** Lowest chunk row or column */
+    private static final int MIN_CHUNK = Integer.MIN_VALUE >> CHUNK_BITS;
+    /** Highest chunk row or column */
+    private static final int MAX_CHUNK = Integer.MAX_VALUE >> CHUNK_BITS;
+    /** Mine layout of a chunk beyond the edge of the field */
+    private static final long[] NO_MINES = new long[CHUNK_SIZE];
+
+    /**
+     * One generated chunk. Mines, exposed cells and flags are bitsets with one
+     * long per row, bit c standing for column c of the chunk (which is why a
+     * chunk is 64 cells wide).
+     */
+    static final class Chunk {
+        /** Mines in the chunk */
+        final long[] mines;
+        /** Exposed cells in the chunk */
+        final long[] exposed = new long[CHUNK_SIZE];
+        /** Flagged cells in the chunk */
+        final long[] flagged = new long[CHUNK_SIZE];
+        /** Value of each cell (-1 for mines, 0..8 for hints), row major */
+        final byte[] values;
+
+
+        /**
+         * Create a chunk.
+         *
+         * @param mines
+         *            the chunk's mine layout
+         * @param values
+         *            the chunk's cell values
+         */
+        Chunk(long[] mines, byte[] values) {
+            this.mines = mines;
+            this.values = values;
+        }
+    }
+
+    /** Seed the chunks' seeds are mixed from */
+    private final long seed;
+    /** Number of mines in each chunk */
+    private final int minesPerChunk;
+    /** Most cells one exposeCell call exposes */
+    private final int maxFloodCells;
+    /** Generated chunks, by key */
+    private final ChunkStore chunks;
+    /** Key of the chunk last looked up */
+    private long lastKey;
+    /** The chunk last looked up, or null */
+    private Chunk lastChunk;
+    /** Flood fill work list of packed zero cells */
+    private long[] queue = new long[64];
+    /** Index of the next cell in the queue to work on */
+    private int queueHead;
+    /** Number of cells in the queue */
+    private int queueSize;
+    /** Number of cells exposed so far */
+    private long exposedCells;
+    /** Whether a mine has been exposed */
+    private boolean mineExposed;
+    /** Whether the last exposeCell stopped at maxFloodCells */
+    private boolean truncated;
+
+
+    /**
+     * Create a field.
+     *
+     * @param seed
+     *            seed of the field; the same seed gives the same field
+     * @param minesPerChunk
+     *            number of mines in each chunk (0..CHUNK_CELLS)
+     */
+    public InfiniteMineField(long seed, int minesPerChunk) {
+        this(seed, minesPerChunk, DEFAULT_MAX_FLOOD_CELLS);
+    }
+
+
+    /**
+     * Create a field.
+     *
+     * @param seed
+     *            seed of the field; the same seed gives the same field
+     * @param minesPerChunk
+     *            number of mines in each chunk (0..CHUNK_CELLS)
+     * @param maxFloodCells
+     *            most cells one exposeCell call exposes
+     */
+    public InfiniteMineField(long seed, int minesPerChunk, int maxFloodCells) {
+        this(seed, minesPerChunk, maxFloodCells, new ChunkStore());
+    }
+
+
+    /**
+     * Create a field whose chunks are held in the given store. The store
+     * belongs to the field from then on, but closing it is up to the caller.
+     *
+     * @param seed
+     *            seed of the field; the same seed gives the same field
+     * @param minesPerChunk
+     *            number of mines in each chunk (0..CHUNK_CELLS)
+     * @param maxFloodCells
+     *            most cells one exposeCell call exposes
+     * @param chunks
+     *            an empty store for the field's chunks
+     */
+    public InfiniteMineField(long seed, int minesPerChunk, int maxFloodCells,
+        ChunkStore chunks) {
+        if (minesPerChunk < 0 || minesPerChunk > CHUNK_CELLS) {
+            throw new IllegalArgumentException("A chunk can't hold "
+                + minesPerChunk + " mines");
+        }
+        if (maxFloodCells < 1) {
+            throw new IllegalArgumentException(
+                "maxFloodCells must be positive");
+        }
+
+        this.seed = seed;
+        this.minesPerChunk = minesPerChunk;
+        this.maxFloodCells = maxFloodCells;
+        this.chunks = chunks;
+    }
+
+
+    /**
+     * Return the mine layout of a chunk, generated from its seed with Floyd's
+     * algorithm (see MineField.createMineField).
+     *
+     * @param seed
+     *            seed of the field
+     * @param chunkRow
+     *            row of the chunk
+     * @param chunkCol
+     *            column of the chunk
+     * @param minesPerChunk
+     *            number of mines in the chunk
+     * @return one long per row of the chunk, bit c set for a mine in column c
+     */
+    static long[] mineLayout(long seed, int chunkRow, int chunkCol,
+        int minesPerChunk) {
+        SplittableRandom rand = new SplittableRandom(
+            chunkSeed(seed, chunkRow, chunkCol));
+        long[] mines = new long[CHUNK_SIZE];
+        for (int j = CHUNK_CELLS - minesPerChunk; j < CHUNK_CELLS; j++) {
+            int k = rand.nextInt(j + 1);
+            if ((mines[k >> CHUNK_BITS] & (1L << k)) != 0) {
+                k = j;
+            }
+            mines[k >> CHUNK_BITS] |= 1L << k;
+        }
+
+        return mines;
+    }
+
+
+    /**
+     * Helper method works out the seed of a chunk. Different chunks always
+     * get different seeds, mixed so they don't share parts of a random
+     * sequence.
+     *
+     * @param seed
+     *            seed of the field
+     * @param chunkRow
+     *            row of the chunk
+     * @param chunkCol
+     *            column of the chunk
+     * @return the chunk's seed
+     */
+    private static long chunkSeed(long seed, int chunkRow, int chunkCol) {
+        long z = seed + key(chunkRow, chunkCol) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+
+    /**
+     * Helper method packs a pair of ints into a long, for chunk keys and
+     * flood fill cells.
+     *
+     * @param high
+     *            row
+     * @param low
+     *            column
+     * @return the packed pair
+     */
+    private static long key(int high, int low) {
+        return ((long) high << 32) | (low & 0xFFFFFFFFL);
+    }
+
+
+    /**
+     * Return the chunk holding a cell, generating it if it hasn't been.
+     *
+     * @param row
+     *            cell row
+     * @param col
+     *            cell column
+     * @return the chunk
+     */
+    private Chunk chunk(int row, int col) {
+        int chunkRow = row >> CHUNK_BITS;
+        int chunkCol = col >> CHUNK_BITS;
+        long key = key(chunkRow, chunkCol);
+        if (lastChunk != null && key == lastKey) {
+            return lastChunk;
+        }
+
+        Chunk chunk = chunks.get(key);
+        if (chunk == null) {
+            long[] mines = mineLayout(seed, chunkRow, chunkCol,
+                minesPerChunk);
+            chunk = new Chunk(mines, values(chunkRow, chunkCol, mines));
+            chunks.add(key, chunk);
+        }
+        lastKey = key;
+        lastChunk = chunk;
+        return chunk;
+    }
+
+
+    /**
+     * Return the chunk holding a cell without generating it, unless it was
+     * spilled and so has cells exposed or flagged.
+     *
+     * @param row
+     *            cell row
+     * @param col
+     *            cell column
+     * @return the chunk, or null if nothing in it has been touched
+     */
+    private Chunk loadedChunk(int row, int col) {
+        long key = key(row >> CHUNK_BITS, col >> CHUNK_BITS);
+        if (lastChunk != null && key == lastKey) {
+            return lastChunk;
+        }
+
+        Chunk chunk = chunks.get(key);
+        if (chunk == null && chunks.isSpilled(key)) {
+            chunk = chunk(row, col);
+        }
+        return chunk;
+    }
+
+
+    /**
+     * Helper method works out the values of a chunk's cells. Its mines and
+     * the edges of the eight chunks around it are copied into a grid one
+     * cell bigger on every side, and each hint counts its 3x3 block there.
+     *
+     * @param chunkRow
+     *            row of the chunk
+     * @param chunkCol
+     *            column of the chunk
+     * @param mines
+     *            the chunk's mine layout
+     * @return the value of each cell (-1 for mines, 0..8 for hints)
+     */
+    private byte[] values(int chunkRow, int chunkCol, long[] mines) {
+        int side = CHUNK_SIZE + 2;
+        byte[] grid = new byte[side * side];
+        for (int dr = -1; dr <= 1; dr++) {
+            for (int dc = -1; dc <= 1; dc++) {
+                long[] layout = dr == 0 && dc == 0 ? mines
+                    : neighborLayout(chunkRow + dr, chunkCol + dc);
+                // Only the rows and columns next to this chunk are needed.
+                int firstRow = dr < 0 ? CHUNK_MASK : 0;
+                int lastRow = dr > 0 ? 0 : CHUNK_MASK;
+                int firstCol = dc < 0 ? CHUNK_MASK : 0;
+                int lastCol = dc > 0 ? 0 : CHUNK_MASK;
+                for (int r = firstRow; r <= lastRow; r++) {
+                    int gridRow = (r + 1 + dr * CHUNK_SIZE) * side;
+                    for (int c = firstCol; c <= lastCol; c++) {
+                        if ((layout[r] & (1L << c)) != 0) {
+                            grid[gridRow + c + 1 + dc * CHUNK_SIZE] = 1;
+                        }
+                    }
+                }
+            }
+        }
+
+        byte[] values = new byte[CHUNK_CELLS];
+        for (int r = 0; r < CHUNK_SIZE; r++) {
+            for (int c = 0; c < CHUNK_SIZE; c++) {
+                int center = (r + 1) * side + c + 1;
+                if (grid[center] != 0) {
+                    values[r * CHUNK_SIZE + c] = -1;
+                    continue;
+                }
+                int count = 0;
+                for (int g = center - side; g <= center + side; g += side) {
+                    count += grid[g - 1] + grid[g] + grid[g + 1];
+                }
+                values[r * CHUNK_SIZE + c] = (byte) count;
+            }
+        }
+
+        return values;
+    }
+
+
+    /**
+     * Helper method returns the mine layout of a chunk next to one being
+     * generated: its own if it has been generated, otherwise one made from
+     * its seed and thrown away afterwards.
+     *
+     * @param chunkRow
+     *            row of the chunk
+     * @param chunkCol
+     *            column of the chunk
+     * @return the chunk's mine layout
+     */
+    private long[] neighborLayout(int chunkRow, int chunkCol) {
+        if (chunkRow < MIN_CHUNK || chunkRow > MAX_CHUNK
+            || chunkCol < MIN_CHUNK || chunkCol > MAX_CHUNK) {
+            return NO_MINES;
+        }
+
+        Chunk chunk = chunks.get(key(chunkRow, chunkCol));
+        return chunk != null ? chunk.mines
+            : mineLayout(seed, chunkRow, chunkCol, minesPerChunk);
+    }
+
+
+    /**
+     * Expose a cell and, if it is a zero, the opening around it, across chunk
+     * borders. Flagged cells are left hidden by the fill, but a flagged cell
+     * can still be exposed directly. The fill stops after maxFloodCells
+     * cells (see wasTruncated); what is left of it, and of any earlier fill
+     * that was cut short, is carried on by this call.
+     *
+     * @param row
+     *            cell row
+     * @param col
+     *            cell column
+     * @return the number of cells that went from hidden to exposed
+     */
+    public int exposeCell(int row, int col) {
+        int exposed = 0;
+        truncated = false;
+        Chunk chunk = chunk(row, col);
+        int local = (row & CHUNK_MASK) * CHUNK_SIZE + (col & CHUNK_MASK);
+        if (!isSet(chunk.exposed, local)) {
+            set(chunk.exposed, local);
+            exposed++;
+        }
+        if (chunk.values[local] == -1) {
+            mineExposed = true;
+            exposedCells += exposed;
+            return exposed;
+        }
+        if (chunk.values[local] == 0) {
+            enqueue(key(row, col));
+        }
+
+        // The queue only holds zeros whose neighbors may still have to be
+        // exposed, including any left over from a fill that was cut short.
+        while (queueHead < queueSize) {
+            long cell = queue[queueHead++];
+            int r = (int) (cell >> 32);
+            int c = (int) cell;
+            for (int dr = -1; dr <= 1; dr++) {
+                for (int dc = -1; dc <= 1; dc++) {
+                    long nr = (long) r + dr;
+                    long nc = (long) c + dc;
+                    if ((dr == 0 && dc == 0) || nr != (int) nr
+                        || nc != (int) nc) {
+                        continue;
+                    }
+
+                    chunk = chunk((int) nr, (int) nc);
+                    local = ((int) nr & CHUNK_MASK) * CHUNK_SIZE
+                        + ((int) nc & CHUNK_MASK);
+                    if (isSet(chunk.exposed, local)
+                        || isSet(chunk.flagged, local)) {
+                        continue;
+                    }
+                    if (exposed == maxFloodCells) {
+                        // Keep this cell queued so the next call finishes it.
+                        queueHead--;
+                        truncated = true;
+                        exposedCells += exposed;
+                        return exposed;
+                    }
+                    set(chunk.exposed, local);
+                    exposed++;
+                    if (chunk.values[local] == 0) {
+                        enqueue(key((int) nr, (int) nc));
+                    }
+                }
+            }
+        }
+
+        queueHead = 0;
+        queueSize = 0;
+        exposedCells += exposed;
+        return exposed;
+    }
+
+
+    /**
+     * Helper method adds a packed cell to the flood fill queue, moving the
+     * unworked part of the queue to the front or growing it when it is full.
+     *
+     * @param cell
+     *            the cell's row and column, packed by key
+     */
+    private void enqueue(long cell) {
+        if (queueSize == queue.length) {
+            if (queueHead >= queue.length / 2) {
+                System.arraycopy(queue, queueHead, queue, 0,
+                    queueSize - queueHead);
+                queueSize -= queueHead;
+                queueHead = 0;
+            }
+            else {
+                queue = Arrays.copyOf(queue, 2 * queue.length);
+            }
+        }
+        queue[queueSize++] = cell;
+    }
+
+
+    /**
+     * Flag or unflag a hidden cell. Exposed cells can't be flagged.
+     *
+     * @param row
+     *            cell row
+     * @param col
+     *            cell column
+     * @param flagged
+     *            true to place a flag, false to remove it
+     */
+    public void setFlagged(int row, int col, boolean flagged) {
+        Chunk chunk = chunk(row, col);
+        int local = (row & CHUNK_MASK) * CHUNK_SIZE + (col & CHUNK_MASK);
+        if (isSet(chunk.exposed, local)) {
+            return;
+        }
+
+        if (flagged) {
+            set(chunk.flagged, local);
+        }
+        else {
+            chunk.flagged[local >> CHUNK_BITS] &= ~(1L << local);
+        }
+    }
+
+
+    /**
+     * Return the value of a cell, generating its chunk if needed.
+     *
+     * @param row
+     *            cell row
+     * @param col
+     *            cell column
+     * @return -1 for a mine, otherwise the number of neighboring mines
+     */
+    public int getValue(int row, int col) {
+        return chunk(row, col).values[(row & CHUNK_MASK) * CHUNK_SIZE
+            + (col & CHUNK_MASK)];
+    }
+
+
+    /**
+     * Return whether a cell holds a mine, generating its chunk if needed.
+     *
+     * @param row
+     *            cell row
+     * @param col
+     *            cell column
+     * @return true if the cell is a mine
+     */
+    public boolean isMine(int row, int col) {
+        return getValue(row, col) == -1;
+    }
+
+
+    /**
+     * Return whether a cell is exposed. Cells of chunks that haven't been
+     * generated are hidden, and asking doesn't generate them.
+     *
+     * @param row
+     *            cell row
+     * @param col
+     *            cell column
+     * @return true if the cell is exposed
+     */
+    public boolean isExposed(int row, int col) {
+        Chunk chunk = loadedChunk(row, col);
+        return chunk != null && isSet(chunk.exposed,
+            (row & CHUNK_MASK) * CHUNK_SIZE + (col & CHUNK_MASK));
+    }
+
+
+    /**
+     * Return whether a cell is flagged. Asking doesn't generate the cell's
+     * chunk.
+     *
+     * @param row
+     *            cell row
+     * @param col
+     *            cell column
+     * @return true if the cell has a flag on it
+     */
+    public boolean isFlagged(int row, int col) {
+        Chunk chunk = loadedChunk(row, col);
+        return chunk != null && isSet(chunk.flagged,
+            (row & CHUNK_MASK) * CHUNK_SIZE + (col & CHUNK_MASK));
+    }
+
+
+    /**
+     * Return whether a mine has been exposed.
+     *
+     * @return true if the game is lost
+     */
+    public boolean lost() {
+        return mineExposed;
+    }
+
+
+    /**
+     * Return whether the last exposeCell stopped because it had exposed
+     * maxFloodCells cells, leaving part of an opening hidden.
+     *
+     * @return true if the last fill was cut short
+     */
+    public boolean wasTruncated() {
+        return truncated;
+    }
+
+
+    /**
+     * Return the number of cells exposed so far.
+     *
+     * @return number of exposed cells
+     */
+    public long getExposedCells() {
+        return exposedCells;
+    }
+
+
+    /**
+     * Return the number of chunks held in memory, which is what the field's
+     * memory grows with.
+     *
+     * @return number of chunks held
+     */
+    public int getLoadedChunks() {
+        return chunks.size();
+    }
+
+
+    /**
+     * Return the store holding the field's chunks.
+     *
+     * @return the chunk store
+     */
+    public ChunkStore getChunkStore() {
+        return chunks;
+    }
+
+
+    /**
+     * Return the number of mines in each chunk.
+     *
+     * @return mines per chunk
+     */
+    public int getMinesPerChunk() {
+        return minesPerChunk;
+    }
+
+
+    /**
+     * Return the text of a window of the field, drawn like
+     * MineField.showBoard. Flagged cells are drawn as F. Drawing doesn't
+     * generate any chunks.
+     *
+     * @param top
+     *            first row of the window
+     * @param left
+     *            first column of the window
+     * @param rows
+     *            number of rows in the window
+     * @param cols
+     *            number of columns in the window
+     * @return the window as a single string
+     */
+    public String showBoard(int top, int left, int rows, int cols) {
+        StringBuilder sb = new StringBuilder();
+        for (int r = top; r < top + rows; r++) {
+            for (int c = left; c < left + cols; c++) {
+                Chunk chunk = loadedChunk(r, c);
+                int local = (r & CHUNK_MASK) * CHUNK_SIZE + (c & CHUNK_MASK);
+                if (chunk != null && isSet(chunk.exposed, local)) {
+                    sb.append(BoardRenderer.boardCell(chunk.values[local]));
+                }
+                else if (chunk != null && isSet(chunk.flagged, local)) {
+                    sb.append(BoardRenderer.FLAGGED_CELL);
+                }
+                else {
+                    sb.append(BoardRenderer.HIDDEN_CELL);
+                }
+            }
+            sb.append(System.lineSeparator());
+        }
+
+        return sb.toString();
+    }
+
+
+    /**
+     * Helper method tests a bit of a chunk bitset.
+     *
+     * @param bits
+     *            the bitset
+     * @param local
+     *            row * CHUNK_SIZE + column within the chunk
+     * @return true if the bit is set
+     */
+    private static boolean isSet(long[] bits, int local) {
+        return (bits[local >> CHUNK_BITS] & (1L << local)) != 0;
+    }
+
+
+    /**
+     * Helper method sets a bit of a chunk bitset.
+     *
+     * @param bits
+     *            the bitset
+     * @param local
+     *            row * CHUNK_SIZE + column within the chunk
+     */
+    private static void set(long[] bits, int local) {
+        bits[local >> CHUNK_BITS] |= 1L << local;
+    }
+
+}
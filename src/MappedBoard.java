@@ -0,0 +1,704 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * A board kept in a memory-mapped file instead of on the heap, for boards
+ * too big for the heap or for int indexes. Cells use the same one-byte
+ * layout as PackedBoard (hint or mine in bits 0-3, exposed in bit 4, flagged
+ * in bit 5) and flat indexes are longs, so a board can have up to
+ * Integer.MAX_VALUE rows and columns.
+ *
+ * The file starts with a header holding the size of the board and its
+ * counters, followed by the cells row by row. The file is mapped in regions
+ * of REGION_BYTES, since one mapping can't be bigger than 2 GB. Opening a
+ * saved board only reads the header, so it takes the same time whatever the
+ * size of the board; cells are paged in by the operating system as they are
+ * used.
+ *
+ * @author Ben Wright
+ * @version 2026.10.18
+ */
+
+public class MappedBoard implements Closeable {
+    /** Number of bits in the size of a mapped region */
+    static final int REGION_BITS = 30;
+    /** Size of a mapped region */
+    public static final long REGION_BYTES = 1L << REGION_BITS;
+    /** Bytes before the first cell */
+    static final int HEADER_BYTES = 64;
+    /** First bytes of a board file ("MBRD") */
+    static final int MAGIC = 0x4D425244;
+    /** Version of the file layout */
+    static final int VERSION = 1;
+    /** Header offset of the number of rows (int) */
+    private static final int ROWS_AT = 8;
+    /** Header offset of the number of columns (int) */
+    private static final int COLS_AT = 12;
+    /** Header offset of the number of mines (long) */
+    private static final int MINES_AT = 16;
+    /** Header offset of the number of hidden safe cells (long) */
+    private static final int HIDDEN_AT = 24;
+    /** Header offset of the byte set once a mine is exposed */
+    private static final int LOST_AT = 32;
+
+    /** Number of rows in the board */
+    private final int rows;
+    /** Number of columns in the board */
+    private final int cols;
+    /** The open board file */
+    private final FileChannel channel;
+    /** The file, mapped in regions of 2^regionBits bytes */
+    private final MappedByteBuffer[] regions;
+    /** Number of bits in the size of a region */
+    private final int regionBits;
+    /** Mask for an offset within a region */
+    private final long regionMask;
+    /** Number of mines on the board */
+    private long mineCount;
+    /** Number of safe cells that haven't been exposed yet */
+    private long hiddenSafeCells;
+    /** True once a mine has been exposed */
+    private boolean mineExposed;
+    /** Flood fill work list of zero cells */
+    private long[] queue = new long[64];
+    /** Index of the next cell in the queue to work on */
+    private int queueHead;
+    /** Number of cells in the queue */
+    private int queueSize;
+
+
+    /**
+     * Helper constructor maps an open board file.
+     *
+     * @param channel
+     *            the open file, already the right size
+     * @param rows
+     *            number of rows
+     * @param cols
+     *            number of columns
+     * @param regionBits
+     *            number of bits in the size of a mapped region
+     * @throws IOException
+     *             if the file can't be mapped
+     */
+    private MappedBoard(FileChannel channel, int rows, int cols,
+        int regionBits) throws IOException {
+        this.channel = channel;
+        this.rows = rows;
+        this.cols = cols;
+        this.regionBits = regionBits;
+        this.regionMask = (1L << regionBits) - 1;
+
+        long size = HEADER_BYTES + (long) rows * cols;
+        regions = new MappedByteBuffer[(int) ((size + regionMask)
+            >>> regionBits)];
+        for (int i = 0; i < regions.length; i++) {
+            long start = (long) i << regionBits;
+            regions[i] = channel.map(FileChannel.MapMode.READ_WRITE, start,
+                Math.min(size - start, 1L << regionBits));
+        }
+    }
+
+
+    /**
+     * Create a board file with no mines and nothing exposed, replacing any
+     * file already there. The file is extended rather than written, so on
+     * most file systems this is quick whatever the size.
+     *
+     * @param file
+     *            the board file
+     * @param rows
+     *            number of rows
+     * @param cols
+     *            number of columns
+     * @return the board
+     * @throws IOException
+     *             if the file can't be created or mapped
+     */
+    public static MappedBoard create(Path file, int rows, int cols)
+        throws IOException {
+        return create(file, rows, cols, REGION_BITS);
+    }
+
+
+    /**
+     * Create a board file mapped in regions of a given size. Package-private
+     * so tests can cross region borders on small boards.
+     *
+     * @param file
+     *            the board file
+     * @param rows
+     *            number of rows
+     * @param cols
+     *            number of columns
+     * @param regionBits
+     *            number of bits in the size of a mapped region (at least 6,
+     *            so the header fits in the first one)
+     * @return the board
+     * @throws IOException
+     *             if the file can't be created or mapped
+     */
+    static MappedBoard create(Path file, int rows, int cols, int regionBits)
+        throws IOException {
+        if (rows < 1 || cols < 1) {
+            throw new IllegalArgumentException(
+                "A board must have at least one row and column");
+        }
+
+        FileChannel channel = FileChannel.open(file,
+            StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            // Writing the last byte sets the size without writing the cells.
+            long size = HEADER_BYTES + (long) rows * cols;
+            channel.write(ByteBuffer.allocate(1), size - 1);
+            MappedBoard board = new MappedBoard(channel, rows, cols,
+                regionBits);
+            board.hiddenSafeCells = (long) rows * cols;
+            MappedByteBuffer header = board.regions[0];
+            header.putInt(0, MAGIC);
+            header.putInt(4, VERSION);
+            header.putInt(ROWS_AT, rows);
+            header.putInt(COLS_AT, cols);
+            board.writeCounters();
+            return board;
+        }
+        catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+
+    /**
+     * Open a board file written by a MappedBoard. Only the header is read.
+     *
+     * @param file
+     *            the board file
+     * @return the board, as it was left
+     * @throws IOException
+     *             if the file can't be read or isn't a board file
+     */
+    public static MappedBoard open(Path file) throws IOException {
+        return open(file, REGION_BITS);
+    }
+
+
+    /**
+     * Open a board file mapped in regions of a given size. Package-private
+     * so tests can cross region borders on small boards.
+     *
+     * @param file
+     *            the board file
+     * @param regionBits
+     *            number of bits in the size of a mapped region
+     * @return the board, as it was left
+     * @throws IOException
+     *             if the file can't be read or isn't a board file
+     */
+    static MappedBoard open(Path file, int regionBits) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) {
+                    throw new IOException(file + " is not a board file");
+                }
+            }
+            if (header.getInt(0) != MAGIC) {
+                throw new IOException(file + " is not a board file");
+            }
+            if (header.getInt(4) != VERSION) {
+                throw new IOException(file + " has board file version "
+                    + header.getInt(4) + ", expected " + VERSION);
+            }
+            int rows = header.getInt(ROWS_AT);
+            int cols = header.getInt(COLS_AT);
+            if (rows < 1 || cols < 1
+                || channel.size() < HEADER_BYTES + (long) rows * cols) {
+                throw new IOException(file + " is truncated");
+            }
+
+            MappedBoard board = new MappedBoard(channel, rows, cols,
+                regionBits);
+            board.mineCount = header.getLong(MINES_AT);
+            board.hiddenSafeCells = header.getLong(HIDDEN_AT);
+            board.mineExposed = header.get(LOST_AT) != 0;
+            return board;
+        }
+        catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+
+    /**
+     * Helper method returns the byte of a cell.
+     *
+     * @param i
+     *            flat index of the cell
+     * @return the cell byte
+     */
+    private int cell(long i) {
+        long at = HEADER_BYTES + i;
+        return regions[(int) (at >>> regionBits)].get((int) (at & regionMask));
+    }
+
+
+    /**
+     * Helper method sets the byte of a cell.
+     *
+     * @param i
+     *            flat index of the cell
+     * @param value
+     *            the new cell byte
+     */
+    private void setCell(long i, int value) {
+        long at = HEADER_BYTES + i;
+        regions[(int) (at >>> regionBits)].put((int) (at & regionMask),
+            (byte) value);
+    }
+
+
+    /**
+     * Helper method writes the counters to the header.
+     */
+    private void writeCounters() {
+        MappedByteBuffer header = regions[0];
+        header.putLong(MINES_AT, mineCount);
+        header.putLong(HIDDEN_AT, hiddenSafeCells);
+        header.put(LOST_AT, (byte) (mineExposed ? 1 : 0));
+    }
+
+
+    /**
+     * Place a mine on a cell. Hints aren't updated; call setHint once all
+     * the mines are placed.
+     *
+     * @param row
+     *            cell row
+     * @param col
+     *            cell column
+     */
+    public void setMine(int row, int col) {
+        long i = index(row, col);
+        int cell = cell(i);
+        if ((cell & PackedBoard.VALUE_MASK) != PackedBoard.MINE) {
+            setCell(i, cell | PackedBoard.MINE);
+            mineCount++;
+            if ((cell & PackedBoard.EXPOSED) != 0) {
+                mineExposed = true;
+            }
+            else {
+                hiddenSafeCells--;
+            }
+            writeCounters();
+        }
+    }
+
+
+    /**
+     * Place count mines on random cells with Floyd's algorithm (see
+     * MineField.createMineField). Hints aren't updated; call setHint
+     * afterwards. The board has to be fresh, with no mines and nothing
+     * exposed, so every cell is free and the counters stay right; use
+     * setMine to add mines by hand.
+     *
+     * @param count
+     *            number of mines to place, at most the number of cells
+     * @param rand
+     *            random number generator used to choose the cells
+     * @throws IllegalStateException
+     *             if the board already has mines or exposed cells
+     */
+    public void placeMines(long count, RandomGenerator rand) {
+        long size = getCellCount();
+        if (mineCount != 0 || hiddenSafeCells != size) {
+            throw new IllegalStateException("Mines can only be placed on a "
+                + "board with no mines and nothing exposed");
+        }
+        if (count < 0 || count > size) {
+            throw new IllegalArgumentException("Can't place " + count
+                + " mines on a board with " + size + " cells");
+        }
+
+        for (long j = size - count; j < size; j++) {
+            long chosen = rand.nextLong(j + 1);
+            if ((cell(chosen) & PackedBoard.VALUE_MASK) == PackedBoard.MINE) {
+                chosen = j;
+            }
+            setCell(chosen, cell(chosen) | PackedBoard.MINE);
+        }
+        mineCount = count;
+        hiddenSafeCells = size - count;
+        writeCounters();
+    }
+
+
+    /**
+     * Set the hint of every non-mine cell to the number of mines it borders,
+     * like PackedBoard.setHint.
+     */
+    public void setHint() {
+        for (int r = 0; r < rows; r++) {
+            int firstRow = Math.max(r - 1, 0);
+            int lastRow = Math.min(r + 1, rows - 1);
+            long start = (long) r * cols;
+            for (int c = 0; c < cols; c++) {
+                int cell = cell(start + c);
+                if ((cell & PackedBoard.VALUE_MASK) == PackedBoard.MINE) {
+                    continue;
+                }
+
+                int firstCol = Math.max(c - 1, 0);
+                int lastCol = Math.min(c + 1, cols - 1);
+                int count = 0;
+                for (int nr = firstRow; nr <= lastRow; nr++) {
+                    long rowStart = (long) nr * cols;
+                    for (int nc = firstCol; nc <= lastCol; nc++) {
+                        if ((cell(rowStart + nc)
+                            & PackedBoard.VALUE_MASK) == PackedBoard.MINE) {
+                            count++;
+                        }
+                    }
+                }
+
+                setCell(start + c, (cell & ~PackedBoard.VALUE_MASK) | count);
+            }
+        }
+    }
+
+
+    /**
+     * Expose a cell and, if it is a zero, the opening around it, like
+     * PackedBoard.exposeCell. Flagged cells are left hidden by the fill, but
+     * a flagged cell can still be exposed directly.
+     *
+     * @param row
+     *            cell row
+     * @param col
+     *            cell column
+     * @return the number of cells that went from hidden to exposed
+     */
+    public long exposeCell(int row, int col) {
+        long start = index(row, col);
+        long exposed = 0;
+        int cell = cell(start);
+        if ((cell & PackedBoard.EXPOSED) == 0) {
+            setCell(start, cell | PackedBoard.EXPOSED);
+            exposed++;
+        }
+        int value = cell & PackedBoard.VALUE_MASK;
+        if (value == PackedBoard.MINE) {
+            mineExposed = true;
+            writeCounters();
+            return exposed;
+        }
+
+        queueHead = 0;
+        queueSize = 0;
+        if (value == 0) {
+            enqueue(start);
+        }
+        // The queue only holds zeros whose neighbors still have to be
+        // exposed.
+        while (queueHead < queueSize) {
+            long i = queue[queueHead++];
+            int r = (int) (i / cols);
+            int c = (int) (i % cols);
+            int firstRow = Math.max(r - 1, 0);
+            int lastRow = Math.min(r + 1, rows - 1);
+            int firstCol = Math.max(c - 1, 0);
+            int lastCol = Math.min(c + 1, cols - 1);
+            for (int nr = firstRow; nr <= lastRow; nr++) {
+                long rowStart = (long) nr * cols;
+                for (int nc = firstCol; nc <= lastCol; nc++) {
+                    long n = rowStart + nc;
+                    int neighbor = cell(n);
+                    if ((neighbor & (PackedBoard.EXPOSED
+                        | PackedBoard.FLAGGED)) != 0) {
+                        continue;
+                    }
+                    setCell(n, neighbor | PackedBoard.EXPOSED);
+                    exposed++;
+                    if ((neighbor & PackedBoard.VALUE_MASK) == 0) {
+                        enqueue(n);
+                    }
+                }
+            }
+        }
+
+        hiddenSafeCells -= exposed;
+        writeCounters();
+        return exposed;
+    }
+
+
+    /**
+     * Helper method adds a cell to the flood fill queue, moving the unworked
+     * part of the queue to the front or growing it when it is full.
+     *
+     * @param i
+     *            flat index of the cell
+     */
+    private void enqueue(long i) {
+        if (queueSize == queue.length) {
+            if (queueHead >= queue.length / 2) {
+                System.arraycopy(queue, queueHead, queue, 0,
+                    queueSize - queueHead);
+                queueSize -= queueHead;
+                queueHead = 0;
+            }
+            else {
+                queue = Arrays.copyOf(queue, 2 * queue.length);
+            }
+        }
+        queue[queueSize++] = i;
+    }
+
+
+    /**
+     * Flag or unflag a hidden cell. Exposed cells can't be flagged.
+     *
+     * @param row
+     *            cell row
+     * @param col
+     *            cell column
+     * @param flagged
+     *            true to place a flag, false to remove it
+     */
+    public void setFlagged(int row, int col, boolean flagged) {
+        long i = index(row, col);
+        int cell = cell(i);
+        if ((cell & PackedBoard.EXPOSED) == 0) {
+            setCell(i, flagged ? cell | PackedBoard.FLAGGED
+                : cell & ~PackedBoard.FLAGGED);
+        }
+    }
+
+
+    /**
+     * Return the flat index of a cell.
+     *
+     * @param row
+     *            cell row
+     * @param col
+     *            cell column
+     * @return row * cols + col
+     */
+    public long index(int row, int col) {
+        if (row < 0 || row >= rows || col < 0 || col >= cols) {
+            throw new IndexOutOfBoundsException(
+                "Cell (" + row + ", " + col + ") is outside a " + rows + " x "
+                    + cols + " board");
+        }
+
+        return (long) row * cols + col;
+    }
+
+
+    /**
+     * Return the value of a cell, using the same values as MineField.
+     *
+     * @param row
+     *            cell row
+     * @param col
+     *            cell column
+     * @return -1 if the cell is a mine, otherwise its hint (0..8)
+     */
+    public int getValue(int row, int col) {
+        return PackedBoard.valueOf(cell(index(row, col)));
+    }
+
+
+    /**
+     * Return true if the cell is a mine.
+     *
+     * @param row
+     *            cell row
+     * @param col
+     *            cell column
+     * @return true if the cell is a mine
+     */
+    public boolean isMine(int row, int col) {
+        return (cell(index(row, col)) & PackedBoard.VALUE_MASK)
+            == PackedBoard.MINE;
+    }
+
+
+    /**
+     * Return true if the cell has been exposed.
+     *
+     * @param row
+     *            cell row
+     * @param col
+     *            cell column
+     * @return true if the cell is exposed
+     */
+    public boolean isExposed(int row, int col) {
+        return (cell(index(row, col)) & PackedBoard.EXPOSED) != 0;
+    }
+
+
+    /**
+     * Return true if the cell has been flagged.
+     *
+     * @param row
+     *            cell row
+     * @param col
+     *            cell column
+     * @return true if the cell is flagged
+     */
+    public boolean isFlagged(int row, int col) {
+        return (cell(index(row, col)) & PackedBoard.FLAGGED) != 0;
+    }
+
+
+    /**
+     * Return true if every safe cell is exposed and no mine is. Runs in
+     * constant time.
+     *
+     * @return true for a win, false otherwise
+     */
+    public boolean won() {
+        return hiddenSafeCells == 0 && !mineExposed;
+    }
+
+
+    /**
+     * Return true if a mine has been exposed.
+     *
+     * @return true for a loss, false otherwise
+     */
+    public boolean lost() {
+        return mineExposed;
+    }
+
+
+    /**
+     * Return the text of a window of the board, drawn like
+     * MineField.showBoard. Flagged cells are drawn as F. The window is
+     * clipped to the board.
+     *
+     * @param top
+     *            first row of the window
+     * @param left
+     *            first column of the window
+     * @param height
+     *            number of rows in the window
+     * @param width
+     *            number of columns in the window
+     * @return the window as a single string
+     */
+    public String showBoard(int top, int left, int height, int width) {
+        int firstRow = Math.max(top, 0);
+        int lastRow = (int) Math.min((long) top + height, rows);
+        int firstCol = Math.max(left, 0);
+        int lastCol = (int) Math.min((long) left + width, cols);
+        StringBuilder sb = new StringBuilder();
+        for (int r = firstRow; r < lastRow; r++) {
+            long rowStart = (long) r * cols;
+            for (int c = firstCol; c < lastCol; c++) {
+                int cell = cell(rowStart + c);
+                if ((cell & PackedBoard.EXPOSED) != 0) {
+                    sb.append(BoardRenderer.boardCell(
+                        PackedBoard.valueOf(cell)));
+                }
+                else if ((cell & PackedBoard.FLAGGED) != 0) {
+                    sb.append(BoardRenderer.FLAGGED_CELL);
+                }
+                else {
+                    sb.append(BoardRenderer.HIDDEN_CELL);
+                }
+            }
+            sb.append(System.lineSeparator());
+        }
+
+        return sb.toString();
+    }
+
+
+    /**
+     * Return the number of rows in the board.
+     *
+     * @return number of rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+
+    /**
+     * Return the number of columns in the board.
+     *
+     * @return number of columns
+     */
+    public int getCols() {
+        return cols;
+    }
+
+
+    /**
+     * Return the number of cells in the board.
+     *
+     * @return rows * cols
+     */
+    public long getCellCount() {
+        return (long) rows * cols;
+    }
+
+
+    /**
+     * Return the number of mines on the board.
+     *
+     * @return number of mines
+     */
+    public long getMineCount() {
+        return mineCount;
+    }
+
+
+    /**
+     * Return the number of safe cells that still have to be exposed.
+     *
+     * @return number of hidden non-mine cells
+     */
+    public long getHiddenSafeCells() {
+        return hiddenSafeCells;
+    }
+
+
+    /**
+     * Write any changed cells and the header through to the file.
+     */
+    public void flush() {
+        writeCounters();
+        for (MappedByteBuffer region : regions) {
+            region.force();
+        }
+    }
+
+
+    /**
+     * Flush the board and close its file. The board can't be used
+     * afterwards.
+     *
+     * @throws IOException
+     *             if the file can't be closed
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+
+}
@@ -1,7 +1,12 @@
 import java.awt.Point;
+import java.util.Arrays;
 import java.util.InputMismatchException;
-import java.util.Random;
 import java.util.Scanner;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
 
 /**
  * Class to define MineField for MineSweeper game
@@ -11,8 +16,15 @@ import java.util.Scanner;
  */
 
 public class MineField {
-    /** Random number generator used to get random cells */
-    private static Random rand = new Random();
+    /** Fields with at least this many cells get their hints set in parallel */
+    private static final int PARALLEL_HINT_CELLS = 1 << 20;
+    /** Number of rows below which a parallel hint task stops splitting */
+    private static final int HINT_ROWS_PER_TASK = 64;
+    /**
+     * Fields with at most one mine per this many cells get their hints set 
+     * from the mine positions rather than by checking every cell
+     */
+    private static final int MINE_CENTRIC_DENSITY = 16;
 
     /**
      * Helper method to create random point within 2D-array bounds. 
@@ -23,6 +35,7 @@ public class MineField {
      * @return random location within array
      */
     public static Point getRandomCell(int[][] field) {
+        RandomGenerator rand = ThreadLocalRandom.current();
         int x = rand.nextInt(field.length);
         int y = rand.nextInt(field[0].length);
 
@@ -62,8 +75,17 @@ public class MineField {
      *      <li> 1..8, 1 for each mine that the current cell touches. </li> 
      * </ul>
      * 
-     * This method calls getRandomCell to choose random places for the mines, 
-     * and setHint to set the value for the non-mine cells.
+     * This method calls placeRandomCells to choose random places for the 
+     * mines. Hints for the non-mine cells are set with setHintFromMines when 
+     * the field is sparse, and with setHintParallel otherwise.
+     * 
+     * The number of mines has to be between 0 and rows * cols; a field that
+     * is all mines is allowed, but a count outside that range is an error
+     * rather than being quietly changed.
+     * 
+     * Mines are placed using the calling thread's ThreadLocalRandom, so 
+     * fields can be created from several threads without contention. Use one 
+     * of the other createMineField methods to get a reproducible field.
      * 
      * @param rows
      *            number of rows in the mine field
@@ -73,57 +95,162 @@ public class MineField {
      *            number of mines in the mine field
      * @return a 2D-integer-array (size rows x cols) representing the 
      *         mine field game board
+     * @throws IllegalArgumentException
+     *             if mines is negative or more than rows * cols
      */
     public static int[][] createMineField(int rows, int cols, int mines) {
+        return createMineField(rows, cols, mines, ThreadLocalRandom.current());
+    }
+
+
+    /**
+     * Create a mine field like createMineField(rows, cols, mines), with the 
+     * mines placed by a SplittableRandom seeded with seed. The same 
+     * (rows, cols, mines, seed) always gives the same field, so a seed can be
+     * stored in place of a whole field.
+     * 
+     * @param rows
+     *            number of rows in the mine field
+     * @param cols
+     *            number of columns in the mine field
+     * @param mines
+     *            number of mines in the mine field
+     * @param seed
+     *            seed for the random number generator
+     * @return a 2D-integer-array (size rows x cols) representing the 
+     *         mine field game board
+     * @throws IllegalArgumentException
+     *             if mines is negative or more than rows * cols
+     */
+    public static int[][] createMineField(int rows, int cols, int mines,
+        long seed) {
+        return createMineField(rows, cols, mines, new SplittableRandom(seed));
+    }
+
+
+    /**
+     * Create a mine field like createMineField(rows, cols, mines), with the 
+     * mines placed by the given random number generator.
+     * 
+     * @param rows
+     *            number of rows in the mine field
+     * @param cols
+     *            number of columns in the mine field
+     * @param mines
+     *            number of mines in the mine field
+     * @param rand
+     *            random number generator used to choose the mines
+     * @return a 2D-integer-array (size rows x cols) representing the 
+     *         mine field game board
+     * @throws IllegalArgumentException
+     *             if mines is negative or more than rows * cols
+     */
+    public static int[][] createMineField(int rows, int cols, int mines,
+        RandomGenerator rand) {
+        int cells = rows * cols;
+        if (mines < 0 || mines > cells) {
+            throw new IllegalArgumentException("Can't place " + mines
+                + " mines on a " + rows + " x " + cols + " field");
+        }
         int[][] field = new int[rows][cols];
 
-        // If mines >= the area of the field, set all cells to mines.
-        // NOTE: Because of the way the main is set up, this will never happen.
-        if (mines >= rows * cols) {
+        // If mines take up more than half the field, set all cells to mines,
+        // then choose the (fewer) cells that should be safe instead.
+        if (mines > cells / 2) {
             for (int r = 0; r < field.length; r++) {
-                for (int c = 0; c < field[r].length; c++) {
-                    field[r][c] = -1;
-                }
+                Arrays.fill(field[r], -1);
             }
+            placeRandomCells(field, cells - mines, 0, rand);
         }
-        // If mines take up more than half the field, temporarily set all cells
-        // to mines, then select random cells to remove mines from.
-        else if (mines > 0.5 * rows * cols) {
-            for (int r = 0; r < field.length; r++) {
-                for (int c = 0; c < field[r].length; c++) {
-                    field[r][c] = -1;
-                }
+        // Otherwise, choose the cells that should have mines. On sparse
+        // fields it's cheaper to count hints outward from each mine than to
+        // check the neighbors of every cell.
+        else {
+            int[] minePositions = placeRandomCells(field, mines, -1, rand);
+            if (mines <= cells / MINE_CENTRIC_DENSITY) {
+                setHintFromMines(field, minePositions);
+                return field;
             }
+        }
 
-            int minesRemoved = 0;
-            while (minesRemoved < rows * cols - mines) {
-                Point random = getRandomCell(field);
-                while (field[random.x][random.y] != -1) {
-                    random = getRandomCell(field);
-                }
+        setHintParallel(field);
 
-                field[random.x][random.y] = 0;
-                minesRemoved++;
-            }
+        return field;
+    }
+
+
+    /**
+     * Create a mine field that can be solved without guessing when the
+     * first cell exposed is (row, col). That cell and its neighbors are kept
+     * free of mines where there is room. Layouts are generated and checked
+     * by NoGuessGenerator until one works, so this costs several
+     * createMineField calls; the same arguments always give the same field.
+     * 
+     * @param rows
+     *            number of rows in the mine field
+     * @param cols
+     *            number of columns in the mine field
+     * @param mines
+     *            number of mines in the mine field
+     * @param row
+     *            row of the first cell the player will expose
+     * @param col
+     *            column of the first cell the player will expose
+     * @param seed
+     *            seed for the random number generator
+     * @return a 2D-integer-array (size rows x cols) representing the 
+     *         mine field game board
+     * @throws IllegalStateException
+     *             if no such field could be found
+     */
+    public static int[][] createNoGuessMineField(int rows, int cols,
+        int mines, int row, int col, long seed) {
+        return new NoGuessGenerator(rows, cols, mines).generate(row, col, seed)
+            .getBoard().toField();
+    }
+
+
+    /**
+     * Helper method sets count distinct random cells of the field to value, 
+     * choosing only among cells that don't already hold value. 
+     * 
+     * This uses Floyd's sampling algorithm over flat cell indices 
+     * (row * cols + col): it makes exactly count calls to the random number 
+     * generator, no matter how full the field is, and uses the field itself to 
+     * remember which cells have been chosen.
+     * 
+     * @param field
+     *            the mine field; every cell should hold either value or a 
+     *            single other value
+     * @param count
+     *            number of cells to set
+     * @param value
+     *            value to place in the chosen cells
+     * @param rand
+     *            random number generator used to choose the cells
+     * @return the flat indices of the chosen cells
+     */
+    private static int[] placeRandomCells(int[][] field, int count, int value,
+        RandomGenerator rand) {
+        int[] chosenCells = new int[count];
+        if (count == 0) {
+            return chosenCells;
         }
-        // If mines take up less than half the field, select random cells to
-        // have mines.
-        else {
-            int minesPlaced = 0;
-            while (minesPlaced < mines) {
-                Point random = getRandomCell(field);
-                while (field[random.x][random.y] == -1) {
-                    random = getRandomCell(field);
-                }
 
-                field[random.x][random.y] = -1;
-                minesPlaced++;
+        int cols = field[0].length;
+        int cells = field.length * cols;
+        for (int j = cells - count; j < cells; j++) {
+            int chosen = rand.nextInt(j + 1);
+            // If the chosen cell was already picked, take cell j instead. It
+            // can't have been picked yet, since earlier picks were all < j.
+            if (field[chosen / cols][chosen % cols] == value) {
+                chosen = j;
             }
+            field[chosen / cols][chosen % cols] = value;
+            chosenCells[j - (cells - count)] = chosen;
         }
 
-        setHint(field);
-
-        return field;
+        return chosenCells;
     }
 
 
@@ -136,44 +263,199 @@ public class MineField {
      *          field will be changed to reflect the number of adjacent mines
      */
     public static void setHint(int[][] field) {
-        int lastRow = field.length - 1;
-        for (int r = 0; r < field.length; r++) {
-            int lastCol = field[r].length - 1;
-            for (int c = 0; c < field[r].length; c++) {
-                // Don't set a hint if the cell is a mine.
-                if (field[r][c] == -1) {
-                    continue;
-                }
+        setHintRows(field, 0, field.length);
+    }
 
-                // Otherwise, count adjacent mines.
-                int count = 0;
-                if (r != 0 && field[r - 1][c] == -1) {
-                    count++;
-                }
-                if (r != 0 && c != lastCol && field[r - 1][c + 1] == -1) {
-                    count++;
-                }
-                if (c != lastCol && field[r][c + 1] == -1) {
-                    count++;
-                }
-                if (r != lastRow && c != lastCol && field[r + 1][c + 1] == -1) {
-                    count++;
-                }
-                if (r != lastRow && field[r + 1][c] == -1) {
-                    count++;
-                }
-                if (r != lastRow && c != 0 && field[r + 1][c - 1] == -1) {
-                    count++;
+
+    /**
+     * Does the same as setHint for a field whose mine positions are already 
+     * known, by adding 1 to each neighbor of each mine instead of looking at 
+     * the neighbors of every cell. The work done depends on the number of 
+     * mines rather than the size of the field, so this is the faster choice 
+     * for sparse fields.
+     * 
+     * @param field
+     *          the mine field, with -1 for each mine and 0 in every other cell
+     * @param mines
+     *          the flat index (row * cols + col) of every mine in the field
+     */
+    public static void setHintFromMines(int[][] field, int[] mines) {
+        int rows = field.length;
+        if (rows == 0) {
+            return;
+        }
+
+        int cols = field[0].length;
+        for (int mine : mines) {
+            int row = mine / cols;
+            int col = mine % cols;
+            int firstRow = Math.max(row - 1, 0);
+            int lastRow = Math.min(row + 1, rows - 1);
+            int firstCol = Math.max(col - 1, 0);
+            int lastCol = Math.min(col + 1, cols - 1);
+            for (int r = firstRow; r <= lastRow; r++) {
+                int[] fieldRow = field[r];
+                for (int c = firstCol; c <= lastCol; c++) {
+                    // Mines don't get hints (this also skips the mine itself).
+                    if (fieldRow[c] != -1) {
+                        fieldRow[c]++;
+                    }
                 }
-                if (c != 0 && field[r][c - 1] == -1) {
-                    count++;
+            }
+        }
+    }
+
+
+    /**
+     * Does the same as setHint, but splits the rows of large fields into 
+     * bands that are handled in parallel on the common ForkJoinPool. Small 
+     * fields are handled on the calling thread.
+     * 
+     * Each band writes only its own rows, and reads one row above and below 
+     * it. Those rows may be written by a neighboring band at the same time, 
+     * but setting a hint never turns a mine into a non-mine or the other way 
+     * around, so the count is the same whichever value is read.
+     * 
+     * @param field
+     *          the mine field that contains the mines; all other values in this 
+     *          field will be changed to reflect the number of adjacent mines
+     */
+    public static void setHintParallel(int[][] field) {
+        if (field.length == 0
+            || (long) field.length * field[0].length < PARALLEL_HINT_CELLS) {
+            setHint(field);
+        }
+        else {
+            ForkJoinPool.commonPool().invoke(
+                new HintTask(field, 0, field.length));
+        }
+    }
+
+
+    /**
+     * Helper method sets the hints of rows fromRow (inclusive) to toRow 
+     * (exclusive). Cells away from the edge of the field go through a 
+     * branch-free kernel; the first and last row and column take the 
+     * bounds-checked path in edgeHint.
+     * 
+     * The kernel relies on mines being -1 and every other value being 
+     * non-negative: (value >>> 31) is then 1 for a mine and 0 otherwise, and 
+     * (value >> 31) | count keeps a mine at -1 while any other cell becomes 
+     * count.
+     * 
+     * @param field
+     *          the mine field
+     * @param fromRow
+     *          first row to set
+     * @param toRow
+     *          one past the last row to set
+     */
+    private static void setHintRows(int[][] field, int fromRow, int toRow) {
+        int lastRow = field.length - 1;
+        for (int r = fromRow; r < toRow; r++) {
+            int[] row = field[r];
+            int lastCol = row.length - 1;
+
+            // Rows on the edge of the field have no row above or below.
+            if (r == 0 || r == lastRow || lastCol < 2) {
+                for (int c = 0; c <= lastCol; c++) {
+                    edgeHint(field, r, c);
                 }
-                if (r != 0 && c != 0 && field[r - 1][c - 1] == -1) {
+                continue;
+            }
+
+            int[] above = field[r - 1];
+            int[] below = field[r + 1];
+            edgeHint(field, r, 0);
+            for (int c = 1; c < lastCol; c++) {
+                int count = (above[c - 1] >>> 31) + (above[c] >>> 31)
+                    + (above[c + 1] >>> 31) + (row[c - 1] >>> 31)
+                    + (row[c + 1] >>> 31) + (below[c - 1] >>> 31)
+                    + (below[c] >>> 31) + (below[c + 1] >>> 31);
+                row[c] = (row[c] >> 31) | count;
+            }
+            edgeHint(field, r, lastCol);
+        }
+    }
+
+
+    /**
+     * Helper method sets the hint of one cell, checking the bounds of the 
+     * field for each neighbor. Used for cells on the edge of the field.
+     * 
+     * @param field
+     *          the mine field
+     * @param row
+     *          cell row
+     * @param col
+     *          cell column
+     */
+    private static void edgeHint(int[][] field, int row, int col) {
+        // Don't set a hint if the cell is a mine.
+        if (field[row][col] == -1) {
+            return;
+        }
+
+        // Otherwise, count adjacent mines.
+        int firstRow = Math.max(row - 1, 0);
+        int lastRow = Math.min(row + 1, field.length - 1);
+        int firstCol = Math.max(col - 1, 0);
+        int lastCol = Math.min(col + 1, field[row].length - 1);
+        int count = 0;
+        for (int r = firstRow; r <= lastRow; r++) {
+            for (int c = firstCol; c <= lastCol; c++) {
+                if (field[r][c] == -1) {
                     count++;
                 }
+            }
+        }
+
+        // Set the value of the cell to the number of adjacent mines.
+        field[row][col] = count;
+    }
+
+
+    /**
+     * Fork/join task that sets the hints of a band of rows, splitting the 
+     * band in half until it is small enough to do directly.
+     */
+    private static class HintTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        /** The mine field */
+        private final int[][] field;
+        /** First row of the band */
+        private final int fromRow;
+        /** One past the last row of the band */
+        private final int toRow;
+
+
+        /**
+         * Create a task for rows fromRow (inclusive) to toRow (exclusive).
+         * 
+         * @param field
+         *          the mine field
+         * @param fromRow
+         *          first row of the band
+         * @param toRow
+         *          one past the last row of the band
+         */
+        HintTask(int[][] field, int fromRow, int toRow) {
+            this.field = field;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+        }
+
 
-                // Set the value of the cell to the number of adjacent mines.
-                field[r][c] = count;
+        @Override
+        protected void compute() {
+            if (toRow - fromRow <= HINT_ROWS_PER_TASK) {
+                setHintRows(field, fromRow, toRow);
+            }
+            else {
+                int middle = (fromRow + toRow) >>> 1;
+                invokeAll(new HintTask(field, fromRow, middle),
+                    new HintTask(field, middle, toRow));
             }
         }
     }
@@ -203,42 +485,87 @@ public class MineField {
             return false;
         }
 
-        exposed[row][col] = true;
-        if (field[row][col] < 0) {
-            // Stop recursion if mine
-            return false;
+        floodExpose(row, col, field, exposed);
+        return field[row][col] >= 0;
+    }
+
+
+    /**
+     * Exposes the specified cell and, if it is a zero, the whole opening 
+     * around it: every connected zero cell plus the hint cells bordering them.
+     * This exposes exactly the same cells as a recursive fill would, but uses 
+     * an explicit stack of flat cell indices (row * cols + col) instead of 
+     * recursion, so large openings can't overflow the thread stack.
+     * 
+     * The stack only ever holds zero cells that were exposed by this call, so
+     * it never grows past the number of cells in the field.
+     *
+     * @param row
+     *          cell row
+     * @param col
+     *          cell column
+     * @param field
+     *          the mine field
+     * @param exposed
+     *          2D array with whether a cell is exposed; updated in place
+     * @return the number of cells that went from hidden to exposed
+     */
+    public static int floodExpose(int row, int col, int[][] field,
+        boolean[][] exposed) {
+        int newlyExposed = 0;
+        if (!exposed[row][col]) {
+            exposed[row][col] = true;
+            newlyExposed++;
         }
 
-        if (field[row][col] > 0) {
-            // Stop recursion if neighboring a mine
-            return true;
+        // Mines and hints stop the fill right away.
+        if (field[row][col] != 0) {
+            return newlyExposed;
         }
 
-        // Must be zero
-        for (int i = -1; i < 2; i++) {
-            for (int j = -1; j < 2; j++) {
-                if (i == 0 && j == 0) {
-                    continue; // same cell
-                }
-                // Point cell = new Point(row + i, col + j);
-                int curRow = row + i;
-                int curCol = col + j;
-                if (curRow >= 0 && curRow < field.length) {
-                    if (curCol >= 0 && curCol < field[0].length) {
-                        // valid cell
-                        if (!exposed[curRow][curCol]) {
-                            // Make recursive call if and only if
-                            // the cell is not already exposed
-                            exposeCell(curRow, curCol, field, exposed);
-                        }
+        int rows = field.length;
+        int cols = field[0].length;
+        int[] stack = new int[Math.min(rows * cols, 64)];
+        int size = 0;
+        stack[size++] = row * cols + col;
+
+        while (size > 0) {
+            int cell = stack[--size];
+            int r = cell / cols;
+            int c = cell % cols;
+
+            // Cells on the edge of the field have fewer neighbors.
+            int firstRow = Math.max(r - 1, 0);
+            int lastRow = Math.min(r + 1, rows - 1);
+            int firstCol = Math.max(c - 1, 0);
+            int lastCol = Math.min(c + 1, cols - 1);
+
+            for (int nr = firstRow; nr <= lastRow; nr++) {
+                boolean[] exposedRow = exposed[nr];
+                int[] fieldRow = field[nr];
+                for (int nc = firstCol; nc <= lastCol; nc++) {
+                    if (exposedRow[nc]) {
+                        continue;
                     }
 
+                    // A zero cell has no mine neighbors, so everything
+                    // reached here is safe to expose.
+                    exposedRow[nc] = true;
+                    newlyExposed++;
+
+                    // Only zero cells keep the fill going.
+                    if (fieldRow[nc] == 0) {
+                        if (size == stack.length) {
+                            stack = Arrays.copyOf(stack, 
+                                (int) Math.min(2L * size, (long) rows * cols));
+                        }
+                        stack[size++] = nr * cols + nc;
+                    }
                 }
             }
         }
 
-        return true;
-
+        return newlyExposed;
     }
 
 
@@ -280,15 +607,7 @@ public class MineField {
      *         a 2x3 array with a bomb at 0,1 would return " 1 -1 1\n1 1 1\n"
      */
     public static String fieldToString(int[][] field) {
-        StringBuilder sb = new StringBuilder();
-        for (int r = 0; r < field.length; r++) {
-            for (int c = 0; c < field[r].length; c++) {
-                sb.append( String.format(" %2d ", field[r][c]) );
-            }
-            sb.append( System.lineSeparator() );
-        }
-
-        return sb.toString();
+        return BoardRenderer.fieldToString(field);
     }
 
 
@@ -315,28 +634,7 @@ public class MineField {
      *         around each cell.
      */
     public static String showBoard(int[][] field, boolean[][] exposed) {
-        StringBuilder sb = new StringBuilder();
-        for (int r = 0; r < field.length; r++) {
-            for (int c = 0; c < field[r].length; c++) {
-                // If the cell hasn't been exposed, it should be drawn as a '*'.
-                if (!exposed[r][c]) {
-                    sb.append( String.format(" %4s ", "*") );
-                }
-                else {
-                    // If the cell equals zero, display a blank space.
-                    if (field[r][c] == 0) {
-                        sb.append( String.format(" %4s ", " ") );
-                    }
-                    // Otherwise display the number of the cell.
-                    else {
-                        sb.append( String.format(" %4d ", field[r][c]) );
-                    }
-                }
-            }
-            sb.append( System.lineSeparator() );
-        }
-
-        return sb.toString();
+        return BoardRenderer.showBoard(field, exposed);
     }
 
 
@@ -369,27 +667,6 @@ public class MineField {
     }
 
 
-    /**
-     * Helper method prints the mine field every time the player guesses a cell. 
-     * If the player is in debug mode, this method also prints a version of the 
-     * mine field with all values exposed.
-     * 
-     * @param field
-     *            the mine field to be printed
-     * @param exposed
-     *            boolean array that indicates which cells have been exposed.
-     *            Needed to call showBoard.
-     * @param debugOn
-     *            if true, print the mine field and all its values
-     */
-    private static void printBoards(int[][] field, boolean[][] exposed, boolean debugOn) {
-        System.out.println("\nBoard:\n" + showBoard(field, exposed));
-        if (debugOn) {
-            System.out.println(fieldToString(field));
-        }
-    }
-
-
     /**
      * Helper method checks when the user inputs a 'q', and exits the program if 
      * so.
@@ -413,12 +690,6 @@ public class MineField {
     public static void main(String[] args) {
         // Scanner for user input.
         Scanner kbd = new Scanner(System.in);
-        // exposed tracks which cells have been exposed.
-        // True if the cell is exposed, false otherwise.
-        boolean[][] exposed;
-        // field is the game board. mines are -1. other values represent
-        // the number of (eight connected) neighboring mines
-        int[][] field;
         // debugOn indicates whether the player is playing the game normally or
         // in debug mode. In debug mode, the player can a copy of the mine field 
         // with all the cells revealed.
@@ -497,14 +768,22 @@ public class MineField {
             }
         }
 
-        // Set up the mine field and exposed.
-        exposed = setUpExposed(rows, cols);
-        field = createMineField(rows, cols, mines);
+        // Set up the game. game tracks the board and whether the player has
+        // won or lost; everything below just reads input and prints. The
+        // mines are placed on the first guess, away from it, so the first
+        // guess can't lose.
+        Game game = Game.firstClickSafe(rows, cols, mines);
+        // renderer prints the board. After each guess it only redraws the rows
+        // that changed, which the game marks in dirtyRows.
+        ConsoleRenderer renderer = new ConsoleRenderer(System.out,
+            ConsoleRenderer.ansiSupported(rows, debugOn), debugOn);
+        boolean[] dirtyRows = new boolean[rows];
+        game.setDirtyRows(dirtyRows);
 
-        printBoards(field, exposed, debugOn);
+        renderer.drawFull(game.board());
 
         // Play the game until the player wins (or loses)!
-        while (!won(field, exposed)) {
+        while (game.getStatus() == Game.Status.PLAYING) {
             // Ask the user to enter a valid row and column.
             int row = -1;
             int col = -1;
@@ -516,8 +795,8 @@ public class MineField {
                     row = kbd.nextInt();
                     col = kbd.nextInt();
 
-                    if (row < 0 || col < 0 || row > field.length
-                        || col > field[0].length) {
+                    if (row < 0 || col < 0 || row >= game.getRows()
+                        || col >= game.getCols()) {
                         System.out.println("Please enter valid coordinates.");
                         row = -1;
                         col = -1;
@@ -533,17 +812,23 @@ public class MineField {
             }
 
             // Check when the player hits a mine.
-            if (!exposeCell(row, col, field, exposed)) {
-                System.out.println(fieldToString(field) + "You lose. Sorry.");
-                // System.exit leave the program immediately. 0 means that the
-                // program exited without an error code.
-                System.exit(0);
+            boolean minesPlaced = game.minesPlaced();
+            if (game.reveal(row, col) == Game.Status.LOST) {
+                System.out.println(game.fieldToString() + "You lose. Sorry.");
+                break;
+            }
+            // The debug field was drawn before there were any mines.
+            if (debugOn && !minesPlaced) {
+                renderer.drawFull(game.board());
+                Arrays.fill(dirtyRows, false);
+            }
+            else {
+                renderer.redraw(game.board(), dirtyRows);
             }
-            printBoards(field, exposed, debugOn);
         }
         kbd.close();
-        if (won(field, exposed)) {
-            System.out.println(fieldToString(field) + "You won!!!");
+        if (game.getStatus() == Game.Status.WON) {
+            System.out.println(game.fieldToString() + "You won!!!");
         }
         System.out.println("Thank you for playing.");
     }
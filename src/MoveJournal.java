@@ -0,0 +1,221 @@
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An append-only record of the moves made in a game, for auditing and for
+ * replaying the game with Replay.
+ *
+ * A journal file starts with a header: the magic number "MJNL", a format
+ * version, and the game as it was when the journal was created, saved with
+ * GameFile (so a seeded game only takes a few bytes). Every move after that
+ * is one varint of (cell << 2 | type), where cell is the flat index of the
+ * cell and type is REVEAL, FLAG or CHORD; most moves take two to four
+ * bytes.
+ *
+ * Moves are collected in a buffer and written to the file in groups of
+ * groupSize moves, or sooner when the buffer fills, so recording a move
+ * costs a few byte writes. flush writes what has been collected, sync also
+ * forces it to disk, and close does both. A journal whose last group was
+ * never written (e.g. after a crash) replays up to the last group that was.
+ *
+ * @author Ben Wright
+ * @version 2026.10.18
+ */
+
+public class MoveJournal implements Closeable {
+    /** Move type of a reveal */
+    public static final int REVEAL = 0;
+    /** Move type of a flag or unflag */
+    public static final int FLAG = 1;
+    /** Move type of a chord */
+    public static final int CHORD = 2;
+    /** Default number of moves written to the file at a time */
+    public static final int DEFAULT_GROUP_SIZE = 1024;
+    /** First bytes of a journal ("MJNL") */
+    static final int MAGIC = 0x4D4A4E4C;
+    /** Version of the format */
+    static final int VERSION = 1;
+    /** Most bytes one move takes */
+    private static final int MAX_MOVE_BYTES = 10;
+
+    /** The journal file */
+    private final FileChannel channel;
+    /** Moves collected since the last write */
+    private final ByteBuffer buffer;
+    /** Number of moves collected before they are written */
+    private final int groupSize;
+    /** Number of moves in buffer */
+    private int pending;
+    /** Number of moves recorded */
+    private long moves;
+
+
+    /**
+     * Helper constructor wraps an open journal file.
+     *
+     * @param channel
+     *            the journal file, positioned after the header
+     * @param groupSize
+     *            number of moves written to the file at a time
+     */
+    private MoveJournal(FileChannel channel, int groupSize) {
+        this.channel = channel;
+        this.groupSize = groupSize;
+        this.buffer = ByteBuffer.allocate(groupSize * MAX_MOVE_BYTES);
+    }
+
+
+    /**
+     * Create a journal for a game, replacing any file already there, and
+     * start recording the game's moves in it.
+     *
+     * @param file
+     *            the journal file
+     * @param game
+     *            the game, whose current state is where replays start
+     * @return the journal
+     * @throws IOException
+     *             if the file can't be written
+     */
+    public static MoveJournal create(Path file, Game game)
+        throws IOException {
+        return create(file, game, DEFAULT_GROUP_SIZE);
+    }
+
+
+    /**
+     * Create a journal for a game, replacing any file already there, and
+     * start recording the game's moves in it.
+     *
+     * @param file
+     *            the journal file
+     * @param game
+     *            the game, whose current state is where replays start
+     * @param groupSize
+     *            number of moves written to the file at a time
+     * @return the journal
+     * @throws IOException
+     *             if the file can't be written
+     */
+    public static MoveJournal create(Path file, Game game, int groupSize)
+        throws IOException {
+        if (groupSize < 1) {
+            throw new IllegalArgumentException("groupSize must be positive");
+        }
+
+        ByteArrayOutputStream saved = new ByteArrayOutputStream();
+        GameFile.write(game, saved);
+        ByteBuffer header = ByteBuffer.allocate(9 + saved.size());
+        header.putInt(MAGIC).put((byte) VERSION).putInt(saved.size())
+            .put(saved.toByteArray()).flip();
+
+        FileChannel channel = FileChannel.open(file,
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+        }
+        catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+
+        MoveJournal journal = new MoveJournal(channel, groupSize);
+        game.setJournal(journal);
+        return journal;
+    }
+
+
+    /**
+     * Record a move. Game calls this for every move it makes once the
+     * journal is set.
+     *
+     * @param type
+     *            REVEAL, FLAG or CHORD
+     * @param cell
+     *            flat index (row * cols + col) of the cell
+     * @throws UncheckedIOException
+     *             if a group of moves can't be written
+     */
+    public void append(int type, int cell) {
+        long entry = (long) cell << 2 | type;
+        while ((entry & ~0x7FL) != 0) {
+            buffer.put((byte) ((entry & 0x7F) | 0x80));
+            entry >>>= 7;
+        }
+        buffer.put((byte) entry);
+        moves++;
+        if (++pending >= groupSize) {
+            try {
+                flush();
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+
+    /**
+     * Write the moves collected so far to the file.
+     *
+     * @throws IOException
+     *             if the file can't be written
+     */
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+        pending = 0;
+    }
+
+
+    /**
+     * Write the moves collected so far to the file and force them to disk.
+     *
+     * @throws IOException
+     *             if the file can't be written
+     */
+    public void sync() throws IOException {
+        flush();
+        channel.force(false);
+    }
+
+
+    /**
+     * Return the number of moves recorded.
+     *
+     * @return number of moves
+     */
+    public long getMoves() {
+        return moves;
+    }
+
+
+    /**
+     * Write any moves collected, force them to disk and close the file.
+     *
+     * @throws IOException
+     *             if the file can't be written or closed
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            sync();
+        }
+        finally {
+            channel.close();
+        }
+    }
+
+}
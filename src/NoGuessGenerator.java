@@ -0,0 +1,337 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Generates boards that can be solved without guessing from a given first
+ * move. Random layouts often come down to a 50/50 guess; this keeps
+ * generating layouts (with the first move and its neighbors kept free of
+ * mines) until the Solver wins one using its rules alone.
+ *
+ * Attempts are independent, so they run in parallel on the common
+ * ForkJoinPool. Attempt i always uses the same layout for a given seed, and
+ * the board returned is the one from the lowest attempt that works, so the
+ * result doesn't depend on the number of threads or their timing.
+ *
+ * A generator keeps totals of boards made, attempts and time taken, so the
+ * cost of the no-guess mode can be monitored. Running this class generates
+ * boards and prints those totals: java NoGuessGenerator [boards]
+ * [rows cols mines]
+ *
+ * @author Ben Wright
+ * @version 2026.10.18
+ */
+
+public class NoGuessGenerator {
+    /** Default for the most attempts made for one board */
+    public static final int DEFAULT_MAX_ATTEMPTS = 1_000_000;
+
+    /**
+     * A generated board and what it took to find it.
+     */
+    public static class Result {
+        /** The board, with nothing exposed */
+        private final PackedBoard board;
+        /** Seed of the attempt that made the board */
+        private final long attemptSeed;
+        /** Number of attempts made, including any run in parallel */
+        private final long attempts;
+        /** Nanoseconds taken */
+        private final long nanos;
+
+
+        /**
+         * Create a result.
+         *
+         * @param board
+         *            the board
+         * @param attemptSeed
+         *            seed of the attempt that made the board
+         * @param attempts
+         *            number of attempts made
+         * @param nanos
+         *            nanoseconds taken
+         */
+        Result(PackedBoard board, long attemptSeed, long attempts,
+            long nanos) {
+            this.board = board;
+            this.attemptSeed = attemptSeed;
+            this.attempts = attempts;
+            this.nanos = nanos;
+        }
+
+
+        /**
+         * Return the board that was found.
+         *
+         * @return the board, with nothing exposed
+         */
+        public PackedBoard getBoard() {
+            return board;
+        }
+
+
+        /**
+         * Return the seed that, given to NoGuessGenerator.createAttempt with
+         * the same size and first move, makes this board again.
+         *
+         * @return the seed of the winning attempt
+         */
+        public long getAttemptSeed() {
+            return attemptSeed;
+        }
+
+
+        /**
+         * Return the number of layouts generated and checked for this board.
+         *
+         * @return number of attempts
+         */
+        public long getAttempts() {
+            return attempts;
+        }
+
+
+        /**
+         * Return how long it took to find the board.
+         *
+         * @return nanoseconds taken
+         */
+        public long getNanos() {
+            return nanos;
+        }
+    }
+
+    /** Number of rows in the boards */
+    private final int rows;
+    /** Number of columns in the boards */
+    private final int cols;
+    /** Number of mines in the boards */
+    private final int mines;
+    /** Most attempts made for one board */
+    private final long maxAttempts;
+    /** Boards generated so far */
+    private final LongAdder boards = new LongAdder();
+    /** Attempts made so far */
+    private final LongAdder attempts = new LongAdder();
+    /** Nanoseconds spent generating so far */
+    private final LongAdder nanos = new LongAdder();
+    /** Longest time taken for one board */
+    private final AtomicLong maxNanos = new AtomicLong();
+
+
+    /**
+     * Create a generator for boards of one size.
+     *
+     * @param rows
+     *            number of rows
+     * @param cols
+     *            number of columns
+     * @param mines
+     *            number of mines
+     */
+    public NoGuessGenerator(int rows, int cols, int mines) {
+        this(rows, cols, mines, DEFAULT_MAX_ATTEMPTS);
+    }
+
+
+    /**
+     * Create a generator for boards of one size.
+     *
+     * @param rows
+     *            number of rows
+     * @param cols
+     *            number of columns
+     * @param mines
+     *            number of mines
+     * @param maxAttempts
+     *            most attempts to make for one board before giving up
+     */
+    public NoGuessGenerator(int rows, int cols, int mines, long maxAttempts) {
+        this.rows = rows;
+        this.cols = cols;
+        this.mines = mines;
+        this.maxAttempts = maxAttempts;
+    }
+
+
+    /**
+     * Generate a board that can be solved without guessing when the first
+     * move is (row, col). Anything thrown while making or solving an
+     * attempt is thrown from here.
+     *
+     * @param row
+     *            row of the first move
+     * @param col
+     *            column of the first move
+     * @param seed
+     *            seed for the attempts; the same seed gives the same board
+     * @return the board and what it took to find it
+     * @throws IllegalStateException
+     *             if no such board was found in maxAttempts attempts
+     */
+    public Result generate(int row, int col, long seed) {
+        long start = System.nanoTime();
+        AtomicLong next = new AtomicLong();
+        AtomicLong best = new AtomicLong(Long.MAX_VALUE);
+        LongAdder tried = new LongAdder();
+
+        List<ForkJoinTask<?>> workers = new ArrayList<>();
+        for (int i = 0; i < ForkJoinPool.getCommonPoolParallelism(); i++) {
+            workers.add(ForkJoinTask.adapt(() -> {
+                Solver solver = new Solver();
+                long attempt;
+                // Stop once every attempt below the best has been tried.
+                while ((attempt = next.getAndIncrement()) < Math.min(
+                    best.get(), maxAttempts)) {
+                    tried.increment();
+                    PackedBoard board = createAttempt(rows, cols, mines,
+                        attemptSeed(seed, attempt), row, col);
+                    if (solver.solveWithoutGuessing(new Game(board), row,
+                        col)) {
+                        best.accumulateAndGet(attempt, Math::min);
+                    }
+                }
+            }));
+        }
+        // Rethrows anything a worker threw, rather than reporting it as no
+        // board found.
+        ForkJoinTask.invokeAll(workers);
+
+        long taken = System.nanoTime() - start;
+        boards.increment();
+        attempts.add(tried.sum());
+        nanos.add(taken);
+        maxNanos.accumulateAndGet(taken, Math::max);
+        if (best.get() == Long.MAX_VALUE) {
+            throw new IllegalStateException("No board that can be solved "
+                + "without guessing was found in " + maxAttempts
+                + " attempts");
+        }
+
+        long winner = attemptSeed(seed, best.get());
+        return new Result(createAttempt(rows, cols, mines, winner, row, col),
+            winner, tried.sum(), taken);
+    }
+
+
+    /**
+     * Create the layout for one attempt: random mines, with the first move
+     * and (if there is room) its neighbors kept free.
+     *
+     * @param rows
+     *            number of rows
+     * @param cols
+     *            number of columns
+     * @param mines
+     *            number of mines
+     * @param attemptSeed
+     *            seed for the attempt
+     * @param row
+     *            row of the first move
+     * @param col
+     *            column of the first move
+     * @return the board, with nothing exposed
+     */
+    public static PackedBoard createAttempt(int rows, int cols, int mines,
+        long attemptSeed, int row, int col) {
+        return PackedBoard.create(rows, cols, mines,
+            new SplittableRandom(attemptSeed), row, col);
+    }
+
+
+    /**
+     * Helper method works out the seed of attempt number attempt. The seeds
+     * are mixed so that attempts don't share parts of a random sequence.
+     *
+     * @param seed
+     *            seed given to generate
+     * @param attempt
+     *            number of the attempt, from 0
+     * @return the seed for the attempt
+     */
+    private static long attemptSeed(long seed, long attempt) {
+        long z = seed + (attempt + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+
+    /**
+     * Return the number of boards generated so far.
+     *
+     * @return number of boards
+     */
+    public long getBoards() {
+        return boards.sum();
+    }
+
+
+    /**
+     * Return the average number of layouts tried per board so far.
+     *
+     * @return attempts per board, or 0 if no boards were generated
+     */
+    public double getAttemptsPerBoard() {
+        long count = boards.sum();
+        return count == 0 ? 0 : (double) attempts.sum() / count;
+    }
+
+
+    /**
+     * Return the average time taken per board so far.
+     *
+     * @return mean nanoseconds per board, or 0 if no boards were generated
+     */
+    public double getMeanNanos() {
+        long count = boards.sum();
+        return count == 0 ? 0 : (double) nanos.sum() / count;
+    }
+
+
+    /**
+     * Return the longest time taken for one board so far.
+     *
+     * @return nanoseconds
+     */
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+
+    /**
+     * Generate boards and print attempts per board and latency.
+     *
+     * @param args
+     *            optional number of boards (default 100), then optional
+     *            rows, columns and mines (default expert: 16 30 99)
+     */
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int rows = args.length > 3 ? Integer.parseInt(args[1]) : 16;
+        int cols = args.length > 3 ? Integer.parseInt(args[2]) : 30;
+        int mines = args.length > 3 ? Integer.parseInt(args[3]) : 99;
+
+        NoGuessGenerator generator = new NoGuessGenerator(rows, cols, mines);
+        for (int i = 0; i < count; i++) {
+            generator.generate(rows / 2, cols / 2, i);
+        }
+
+        System.out.printf(Locale.ROOT,
+            "%d boards of %dx%d with %d mines on %d threads%n", count, rows,
+            cols, mines, ForkJoinPool.getCommonPoolParallelism());
+        System.out.printf(Locale.ROOT, "attempts/board: %.1f%n",
+            generator.getAttemptsPerBoard());
+        System.out.printf(Locale.ROOT, "mean latency: %.2f ms%n",
+            generator.getMeanNanos() / 1e6);
+        System.out.printf(Locale.ROOT, "max latency: %.2f ms%n",
+            generator.getMaxNanos() / 1e6);
+    }
+
+}
@@ -0,0 +1,309 @@
+import java.util.Arrays;
+
+/**
+ * The openings of a board, worked out once so revealing one doesn't need a
+ * flood fill. An opening is a group of zero cells that touch (including
+ * diagonally), together with its border: the hints around it. Revealing any
+ * zero cell exposes exactly its opening.
+ *
+ * The zero cells are grouped with union-find, then the openings are stored
+ * one after another in one array of flat cell indices, like a compressed
+ * sparse row matrix: opening i's zero cells run from offsets[i] to
+ * zerosEnd[i] and its border from there to offsets[i + 1]. A hint that
+ * borders several openings is listed in each. labels maps each cell to its
+ * opening, or -1 for cells that aren't zeros.
+ *
+ * The index takes about four bytes per cell plus four per cell in an
+ * opening, and is only right for the layout it was built from; PackedBoard
+ * drops its index when mines are placed or hints set.
+ *
+ * @author Ben Wright
+ * @version 2026.10.18
+ */
+
+public class OpeningIndex {
+    /** Opening of each cell, or -1 if the cell isn't a zero */
+    private final int[] labels;
+    /** Where each opening starts in cells, plus the end of the last one */
+    private final int[] offsets;
+    /** Where each opening's border starts in cells */
+    private final int[] zerosEnd;
+    /** Flat indices of each opening's zero cells, then its border */
+    private final int[] cells;
+
+
+    /**
+     * Helper constructor wraps the arrays of an index.
+     *
+     * @param labels
+     *            opening of each cell, or -1
+     * @param offsets
+     *            where each opening starts in cells
+     * @param zerosEnd
+     *            where each opening's border starts in cells
+     * @param cells
+     *            the cells of every opening
+     */
+    private OpeningIndex(int[] labels, int[] offsets, int[] zerosEnd,
+        int[] cells) {
+        this.labels = labels;
+        this.offsets = offsets;
+        this.zerosEnd = zerosEnd;
+        this.cells = cells;
+    }
+
+
+    /**
+     * Find the openings of a board. Only the layout is used; exposed and
+     * flagged cells are ignored.
+     *
+     * @param board
+     *            a board with its mines placed and hints set
+     * @return the index
+     */
+    public static OpeningIndex build(PackedBoard board) {
+        int rows = board.getRows();
+        int cols = board.getCols();
+        byte[] bytes = board.cells();
+
+        // Union each zero with the zeros before it: left, and the three
+        // above. parent[i] == i for roots; -1 for cells that aren't zeros.
+        int[] parent = new int[bytes.length];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                int i = r * cols + c;
+                if ((bytes[i] & PackedBoard.VALUE_MASK) != 0) {
+                    parent[i] = -1;
+                    continue;
+                }
+
+                parent[i] = i;
+                if (c > 0 && parent[i - 1] >= 0) {
+                    union(parent, i, i - 1);
+                }
+                if (r > 0) {
+                    int lastCol = Math.min(c + 1, cols - 1);
+                    for (int nc = Math.max(c - 1, 0); nc <= lastCol; nc++) {
+                        int above = i - cols - c + nc;
+                        if (parent[above] >= 0) {
+                            union(parent, i, above);
+                        }
+                    }
+                }
+            }
+        }
+
+        // Number the openings in order of their first cell, then list each
+        // opening's zero cells together.
+        int[] labels = new int[bytes.length];
+        int count = 0;
+        for (int i = 0; i < bytes.length; i++) {
+            if (parent[i] < 0) {
+                labels[i] = -1;
+            }
+            else {
+                int root = find(parent, i);
+                labels[i] = root == i ? count++ : labels[root];
+            }
+        }
+
+        int[] sizes = new int[count + 1];
+        for (int label : labels) {
+            if (label >= 0) {
+                sizes[label + 1]++;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            sizes[i + 1] += sizes[i];
+        }
+        int[] zeros = new int[sizes[count]];
+        int[] next = Arrays.copyOf(sizes, count);
+        for (int i = 0; i < bytes.length; i++) {
+            if (labels[i] >= 0) {
+                zeros[next[labels[i]]++] = i;
+            }
+        }
+
+        // Copy each opening's zeros and add its border, using parent to
+        // mark the border cells already listed for this opening.
+        Arrays.fill(parent, -1);
+        int[] offsets = new int[count + 1];
+        int[] zerosEnd = new int[count];
+        int[] cells = new int[zeros.length + zeros.length / 2 + 16];
+        int size = 0;
+        for (int opening = 0; opening < count; opening++) {
+            offsets[opening] = size;
+            int from = sizes[opening];
+            int to = sizes[opening + 1];
+            cells = ensure(cells, size + to - from);
+            System.arraycopy(zeros, from, cells, size, to - from);
+            size += to - from;
+            zerosEnd[opening] = size;
+
+            for (int z = from; z < to; z++) {
+                int r = zeros[z] / cols;
+                int c = zeros[z] % cols;
+                int lastRow = Math.min(r + 1, rows - 1);
+                int lastCol = Math.min(c + 1, cols - 1);
+                for (int nr = Math.max(r - 1, 0); nr <= lastRow; nr++) {
+                    for (int nc = Math.max(c - 1, 0); nc <= lastCol; nc++) {
+                        int i = nr * cols + nc;
+                        if (labels[i] < 0 && parent[i] != opening) {
+                            parent[i] = opening;
+                            cells = ensure(cells, size + 1);
+                            cells[size++] = i;
+                        }
+                    }
+                }
+            }
+        }
+        offsets[count] = size;
+
+        return new OpeningIndex(labels, offsets, zerosEnd,
+            Arrays.copyOf(cells, size));
+    }
+
+
+    /**
+     * Helper method joins the sets of two cells.
+     *
+     * @param parent
+     *            the union-find forest
+     * @param a
+     *            a cell
+     * @param b
+     *            another cell
+     */
+    private static void union(int[] parent, int a, int b) {
+        int rootA = find(parent, a);
+        int rootB = find(parent, b);
+        // Keep the smaller root, so each opening is rooted at its first cell.
+        if (rootA < rootB) {
+            parent[rootB] = rootA;
+        }
+        else if (rootB < rootA) {
+            parent[rootA] = rootB;
+        }
+    }
+
+
+    /**
+     * Helper method finds the root of a cell's set, halving the path to it
+     * on the way.
+     *
+     * @param parent
+     *            the union-find forest
+     * @param i
+     *            a cell
+     * @return the root
+     */
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+
+        return i;
+    }
+
+
+    /**
+     * Helper method grows an array to hold at least a number of elements.
+     *
+     * @param array
+     *            the array
+     * @param length
+     *            number of elements it has to hold
+     * @return the array, or a longer copy of it
+     */
+    private static int[] ensure(int[] array, int length) {
+        if (length <= array.length) {
+            return array;
+        }
+
+        return Arrays.copyOf(array, Math.max(length, 2 * array.length));
+    }
+
+
+    /**
+     * Return the opening a cell is in.
+     *
+     * @param cell
+     *            flat index (row * cols + col) of the cell
+     * @return the opening, or -1 if the cell isn't a zero
+     */
+    public int openingOf(int cell) {
+        return labels[cell];
+    }
+
+
+    /**
+     * Return the number of openings on the board.
+     *
+     * @return number of openings
+     */
+    public int getOpeningCount() {
+        return zerosEnd.length;
+    }
+
+
+    /**
+     * Return where an opening starts in cells().
+     *
+     * @param opening
+     *            the opening
+     * @return position of its first zero cell
+     */
+    int start(int opening) {
+        return offsets[opening];
+    }
+
+
+    /**
+     * Return where an opening's border starts in cells().
+     *
+     * @param opening
+     *            the opening
+     * @return position of its first border cell
+     */
+    int borderStart(int opening) {
+        return zerosEnd[opening];
+    }
+
+
+    /**
+     * Return where an opening ends in cells().
+     *
+     * @param opening
+     *            the opening
+     * @return one past the position of its last cell
+     */
+    int end(int opening) {
+        return offsets[opening + 1];
+    }
+
+
+    /**
+     * Return the cells of every opening. Package-private, so PackedBoard
+     * can walk an opening without copying it.
+     *
+     * @return flat cell indices, opening by opening
+     */
+    int[] cells() {
+        return cells;
+    }
+
+
+    /**
+     * Return the cells of an opening: its zero cells, then its border.
+     *
+     * @param opening
+     *            the opening
+     * @return flat indices (row * cols + col) of its cells
+     */
+    public int[] getCells(int opening) {
+        return Arrays.copyOfRange(cells, offsets[opening],
+            offsets[opening + 1]);
+    }
+
+}
@@ -0,0 +1,1191 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.random.RandomGenerator;
+
+/**
+ * A compact mine field that stores each cell in a single byte of one flat
+ * array, instead of an int[][] for the field plus a boolean[][] for the
+ * exposed cells. This uses about a fifth of the heap per cell and keeps
+ * neighboring rows next to each other in memory.
+ *
+ * Each cell byte is laid out as follows:
+ * <ul>
+ *      <li> bits 0-3: the hint (0..8), or 0xF if the cell is a mine </li>
+ *      <li> bit 4: set if the cell has been exposed </li>
+ *      <li> bit 5: set if the cell has been flagged </li>
+ * </ul>
+ *
+ * Cells are addressed either by (row, col) or by their flat index,
+ * row * cols + col. fromField, toField and toExposed convert to and from the
+ * 2D-arrays used by MineField.
+ *
+ * An opening that grows past parallelThreshold cells is finished in
+ * parallel on the common ForkJoinPool: each task spreads from a stack of
+ * zero cells, exposing neighbors with a compare-and-set on their bytes so
+ * no cell is exposed twice, and hands half of its stack to a new task when
+ * the stack gets long. The same cells are exposed as by the sequential
+ * fill; only the order they are listed in differs.
+ *
+ * With an OpeningIndex set, revealing a hidden zero cell whose opening is
+ * still all hidden and unflagged just exposes the opening's precomputed
+ * cells instead of filling; other reveals fill as usual.
+ *
+ * @author Ben Wright
+ * @version 2026.10.18
+ */
+
+public class PackedBoard {
+    /** Mask for the hint bits of a cell */
+    static final int VALUE_MASK = 0x0F;
+    /** Value stored in the hint bits of a mine (-1 & VALUE_MASK) */
+    static final int MINE = 0x0F;
+    /** Bit set for exposed cells */
+    static final int EXPOSED = 0x10;
+    /** Bit set for flagged cells */
+    static final int FLAGGED = 0x20;
+    /** Default size an opening grows to before it is finished in parallel */
+    public static final int PARALLEL_THRESHOLD = 1 << 16;
+    /** Most zero cells a parallel fill task keeps before splitting */
+    private static final int SPLIT_SIZE = 1 << 12;
+    /** Largest list of batch cells kept from one batch for the next */
+    private static final int BATCH_KEPT = 64;
+    /** Atomic access to the bytes of cells, for the parallel fill */
+    private static final VarHandle CELL = MethodHandles
+        .arrayElementVarHandle(byte[].class);
+
+    /** Number of rows in the board */
+    private final int rows;
+    /** Number of columns in the board */
+    private final int cols;
+    /** One byte per cell, row by row */
+    private final byte[] cells;
+    /** Number of mines on the board */
+    private int mineCount;
+    /** Number of safe cells that haven't been exposed yet */
+    private int hiddenSafeCells;
+    /** True once a mine has been exposed */
+    private boolean mineExposed;
+    /** Zero cells the flood fill still has to spread from, as a ring */
+    private int[] work = new int[64];
+    /** Position in work of the next zero cell to spread from */
+    private int workHead;
+    /** Number of zero cells in work */
+    private int workSize;
+    /** Number of cells exposed by the current call */
+    private int exposedCount;
+    /** True between startBatch and batchExposed */
+    private boolean batching;
+    /** Cells exposed since startBatch, in order */
+    private int[] batch = new int[BATCH_KEPT];
+    /** Number of cells in batch */
+    private int batchSize;
+    /** If not null, rows in which cells get exposed are marked here */
+    private boolean[] dirtyRows;
+    /** Precomputed openings of the layout; may be null */
+    private OpeningIndex openings;
+    /** Size an opening grows to before it is finished in parallel */
+    private int parallelThreshold =
+        ForkJoinPool.getCommonPoolParallelism() > 1 ? PARALLEL_THRESHOLD
+            : Integer.MAX_VALUE;
+
+
+    /**
+     * Create an empty board (no mines, nothing exposed) of size rows x cols.
+     *
+     * @param rows
+     *            number of rows in the board
+     * @param cols
+     *            number of columns in the board
+     */
+    public PackedBoard(int rows, int cols) {
+        if ((long) rows * cols > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException(
+                "Board too large for one array: " + rows + " x " + cols);
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.cells = new byte[rows * cols];
+        this.hiddenSafeCells = rows * cols;
+    }
+
+
+    /**
+     * Create a board with randomly placed mines and hints set, like
+     * MineField.createMineField. Given a generator in the same state, this
+     * places the mines on exactly the same cells as createMineField does, so
+     * a seed gives the same layout whichever representation is used.
+     *
+     * @param rows
+     *            number of rows in the board
+     * @param cols
+     *            number of columns in the board
+     * @param mines
+     *            number of mines, from 0 to rows * cols
+     * @param rand
+     *            random number generator used to choose the mines
+     * @return the new board, with nothing exposed
+     * @throws IllegalArgumentException
+     *             if mines is out of range
+     */
+    public static PackedBoard create(int rows, int cols, int mines,
+        RandomGenerator rand) {
+        int cells = rows * cols;
+        checkMines(rows, cols, mines, cells);
+        PackedBoard board = new PackedBoard(rows, cols);
+
+        // Same choice as createMineField: on dense boards, choose the safe
+        // cells among all mines instead.
+        if (mines > cells / 2) {
+            Arrays.fill(board.cells, (byte) MINE);
+            board.placeRandomCells(cells - mines, 0, rand);
+            board.setHint();
+        }
+        else {
+            int[] minePositions = board.placeRandomCells(mines, MINE, rand);
+            board.setHintFromMines(minePositions);
+        }
+
+        // Nothing is exposed, and Floyd's algorithm chose distinct cells.
+        board.mineCount = mines;
+        board.hiddenSafeCells = cells - mines;
+        return board;
+    }
+
+
+    /**
+     * Create a board with randomly placed mines and hints set, keeping the
+     * cell at (safeRow, safeCol) free of mines so it can be the first move.
+     * Its neighbors are kept free too, so the first move opens an area,
+     * unless there are too many mines for that; then only the cell itself is
+     * kept free. The mines are spread evenly over the other cells.
+     *
+     * @param rows
+     *            number of rows in the board
+     * @param cols
+     *            number of columns in the board
+     * @param mines
+     *            number of mines, from 0 to rows * cols - 1
+     * @param rand
+     *            random number generator used to choose the mines
+     * @param safeRow
+     *            row of the cell to keep free of mines
+     * @param safeCol
+     *            column of the cell to keep free of mines
+     * @return the new board, with nothing exposed
+     * @throws IllegalArgumentException
+     *             if mines is out of range
+     */
+    public static PackedBoard create(int rows, int cols, int mines,
+        RandomGenerator rand, int safeRow, int safeCol) {
+        return create(rows, cols, mines, rand, safeRow, safeCol, true);
+    }
+
+
+    /**
+     * Create a board with randomly placed mines and hints set, keeping the
+     * cell at (safeRow, safeCol), and if asked its neighbors, free of mines.
+     * See create(rows, cols, mines, rand, safeRow, safeCol).
+     *
+     * @param rows
+     *            number of rows in the board
+     * @param cols
+     *            number of columns in the board
+     * @param mines
+     *            number of mines, from 0 to rows * cols - 1
+     * @param rand
+     *            random number generator used to choose the mines
+     * @param safeRow
+     *            row of the cell to keep free of mines
+     * @param safeCol
+     *            column of the cell to keep free of mines
+     * @param clearNeighbors
+     *            true to keep the cell's neighbors free as well, when there
+     *            is room for the mines elsewhere
+     * @return the new board, with nothing exposed
+     * @throws IllegalArgumentException
+     *             if mines is out of range
+     */
+    public static PackedBoard create(int rows, int cols, int mines,
+        RandomGenerator rand, int safeRow, int safeCol,
+        boolean clearNeighbors) {
+        PackedBoard board = new PackedBoard(rows, cols);
+        int safeCell = board.index(safeRow, safeCol);
+        int cells = rows * cols;
+        checkMines(rows, cols, mines, cells - 1);
+
+        int firstRow = Math.max(safeRow - 1, 0);
+        int lastRow = Math.min(safeRow + 1, rows - 1);
+        int firstCol = Math.max(safeCol - 1, 0);
+        int lastCol = Math.min(safeCol + 1, cols - 1);
+        int area = (lastRow - firstRow + 1) * (lastCol - firstCol + 1);
+        boolean keepArea = clearNeighbors && mines <= cells - area;
+
+        // The cells kept free, in order; at most nine, so the mines are
+        // chosen by rank among the other cells without listing them.
+        int[] skip;
+        if (keepArea) {
+            skip = new int[area];
+            int count = 0;
+            for (int r = firstRow; r <= lastRow; r++) {
+                for (int c = firstCol; c <= lastCol; c++) {
+                    skip[count++] = r * cols + c;
+                }
+            }
+        }
+        else {
+            skip = new int[] { safeCell };
+        }
+        int size = cells - skip.length;
+
+        if (mines > size / 2) {
+            Arrays.fill(board.cells, (byte) MINE);
+            for (int i : skip) {
+                board.cells[i] = 0;
+            }
+            board.placeRandomCells(size - mines, 0, skip, rand);
+            board.setHint();
+        }
+        else {
+            int[] minePositions = board.placeRandomCells(mines, MINE, skip,
+                rand);
+            board.setHintFromMines(minePositions);
+        }
+
+        // Nothing is exposed, and Floyd's algorithm chose distinct cells.
+        board.mineCount = mines;
+        board.hiddenSafeCells = cells - mines;
+        return board;
+    }
+
+
+    /**
+     * Helper method rejects a mine count that doesn't fit on the board,
+     * like MineField.createMineField.
+     *
+     * @param rows
+     *            number of rows in the board
+     * @param cols
+     *            number of columns in the board
+     * @param mines
+     *            number of mines asked for
+     * @param most
+     *            most mines there is room for
+     */
+    private static void checkMines(int rows, int cols, int mines, int most) {
+        if (mines < 0 || mines > most) {
+            throw new IllegalArgumentException("Can't place " + mines
+                + " mines on a " + rows + " x " + cols + " board");
+        }
+    }
+
+
+    /**
+     * Helper method sets the hint bits of count distinct random cells to
+     * value, choosing only among cells that don't already hold value, with
+     * Floyd's algorithm (see MineField.createMineField).
+     *
+     * @param count
+     *            number of cells to set
+     * @param value
+     *            hint bits to place in the chosen cells
+     * @param rand
+     *            random number generator used to choose the cells
+     * @return the flat indices of the chosen cells
+     */
+    private int[] placeRandomCells(int count, int value,
+        RandomGenerator rand) {
+        return placeRandomCells(count, value, null, rand);
+    }
+
+
+    /**
+     * Helper method sets the hint bits of count distinct random cells to
+     * value, like placeRandomCells(count, value, rand), but never choosing
+     * the skipped cells. Floyd's algorithm picks ranks among the other
+     * cells, and each rank is mapped to its cell by stepping past the
+     * skipped cells before it.
+     *
+     * @param count
+     *            number of cells to set
+     * @param value
+     *            hint bits to place in the chosen cells
+     * @param skip
+     *            flat indices of the cells never to choose, in increasing
+     *            order, or null to choose among all cells
+     * @param rand
+     *            random number generator used to choose the cells
+     * @return the flat indices of the chosen cells
+     */
+    private int[] placeRandomCells(int count, int value, int[] skip,
+        RandomGenerator rand) {
+        int size = skip == null ? cells.length : cells.length - skip.length;
+        int[] chosenCells = new int[count];
+        for (int j = size - count; j < size; j++) {
+            int k = rand.nextInt(j + 1);
+            int chosen = skipPast(k, skip);
+            if ((cells[chosen] & VALUE_MASK) == value) {
+                chosen = skipPast(j, skip);
+            }
+            cells[chosen] = (byte) ((cells[chosen] & ~VALUE_MASK) | value);
+            chosenCells[j - (size - count)] = chosen;
+        }
+
+        return chosenCells;
+    }
+
+
+    /**
+     * Helper method finds the cell with a given rank among the cells that
+     * aren't skipped.
+     *
+     * @param rank
+     *            position of the cell among the cells that aren't skipped
+     * @param skip
+     *            flat indices of the skipped cells, in increasing order, or
+     *            null
+     * @return flat index of the cell
+     */
+    private static int skipPast(int rank, int[] skip) {
+        int cell = rank;
+        if (skip != null) {
+            for (int skipped : skip) {
+                if (skipped > cell) {
+                    break;
+                }
+                cell++;
+            }
+        }
+
+        return cell;
+    }
+
+
+    /**
+     * Create a board from a mine field. Nothing on the board is exposed.
+     *
+     * @param field
+     *            the mine field (-1 for mines, 0..8 for hints)
+     * @return a packed copy of the field
+     */
+    public static PackedBoard fromField(int[][] field) {
+        return fromField(field, null);
+    }
+
+
+    /**
+     * Create a board from a mine field and the cells exposed on it.
+     *
+     * @param field
+     *            the mine field (-1 for mines, 0..8 for hints)
+     * @param exposed
+     *            which cells have been exposed, or null if none have
+     * @return a packed copy of the field and exposed arrays
+     */
+    public static PackedBoard fromField(int[][] field, boolean[][] exposed) {
+        int rows = field.length;
+        int cols = rows == 0 ? 0 : field[0].length;
+        PackedBoard board = new PackedBoard(rows, cols);
+
+        int i = 0;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                int value = field[r][c] & VALUE_MASK;
+                if (exposed != null && exposed[r][c]) {
+                    value |= EXPOSED;
+                }
+                board.cells[i++] = (byte) value;
+            }
+        }
+        board.recount();
+
+        return board;
+    }
+
+
+    /**
+     * Return the board as a MineField-style field.
+     *
+     * @return a 2D-integer-array with -1 for mines and 0..8 for hints
+     */
+    public int[][] toField() {
+        int[][] field = new int[rows][cols];
+        int i = 0;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                field[r][c] = valueOf(cells[i++]);
+            }
+        }
+
+        return field;
+    }
+
+
+    /**
+     * Return which cells are exposed as a MineField-style exposed array.
+     *
+     * @return a 2D-boolean-array, true where the cell is exposed
+     */
+    public boolean[][] toExposed() {
+        boolean[][] exposed = new boolean[rows][cols];
+        int i = 0;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                exposed[r][c] = (cells[i++] & EXPOSED) != 0;
+            }
+        }
+
+        return exposed;
+    }
+
+
+    /**
+     * Decode the hint bits of a cell byte.
+     *
+     * @param cell
+     *            the cell byte
+     * @return -1 if the cell is a mine, otherwise its hint (0..8)
+     */
+    static int valueOf(int cell) {
+        int value = cell & VALUE_MASK;
+        return value == MINE ? -1 : value;
+    }
+
+
+    /**
+     * Recompute the mine count and win/loss state from the cells. Used after
+     * the cells have been filled in directly.
+     */
+    void recount() {
+        mineCount = 0;
+        hiddenSafeCells = 0;
+        mineExposed = false;
+        for (byte cell : cells) {
+            boolean mine = (cell & VALUE_MASK) == MINE;
+            boolean exposed = (cell & EXPOSED) != 0;
+            if (mine) {
+                mineCount++;
+                mineExposed |= exposed;
+            }
+            else if (!exposed) {
+                hiddenSafeCells++;
+            }
+        }
+    }
+
+
+    /**
+     * Place a mine on a cell. Hints are not updated; call setHint once all the
+     * mines have been placed.
+     *
+     * @param row
+     *            cell row
+     * @param col
+     *            cell column
+     */
+    public void setMine(int row, int col) {
+        int i = index(row, col);
+        openings = null;
+        if ((cells[i] & VALUE_MASK) != MINE) {
+            cells[i] = (byte) ((cells[i] & ~VALUE_MASK) | MINE);
+            mineCount++;
+            if ((cells[i] & EXPOSED) != 0) {
+                mineExposed = true;
+            }
+            else {
+                hiddenSafeCells--;
+            }
+        }
+    }
+
+
+    /**
+     * Set the hint of every non-mine cell to the number of mines it borders,
+     * like MineField.setHint.
+     */
+    public void setHint() {
+        openings = null;
+        for (int r = 0; r < rows; r++) {
+            int firstRow = Math.max(r - 1, 0);
+            int lastRow = Math.min(r + 1, rows - 1);
+            for (int c = 0; c < cols; c++) {
+                int i = r * cols + c;
+                if ((cells[i] & VALUE_MASK) == MINE) {
+                    continue;
+                }
+
+                int firstCol = Math.max(c - 1, 0);
+                int lastCol = Math.min(c + 1, cols - 1);
+                int count = 0;
+                for (int nr = firstRow; nr <= lastRow; nr++) {
+                    int rowStart = nr * cols;
+                    for (int nc = firstCol; nc <= lastCol; nc++) {
+                        if ((cells[rowStart + nc] & VALUE_MASK) == MINE) {
+                            count++;
+                        }
+                    }
+                }
+
+                cells[i] = (byte) ((cells[i] & ~VALUE_MASK) | count);
+            }
+        }
+    }
+
+
+    /**
+     * Set the hints of a board on which every non-mine cell is 0 by adding 1
+     * to each neighbor of each mine, like MineField.setHintFromMines.
+     *
+     * @param mines
+     *            the flat index of every mine on the board
+     */
+    public void setHintFromMines(int[] mines) {
+        openings = null;
+        for (int mine : mines) {
+            int row = mine / cols;
+            int col = mine % cols;
+            int firstRow = Math.max(row - 1, 0);
+            int lastRow = Math.min(row + 1, rows - 1);
+            int firstCol = Math.max(col - 1, 0);
+            int lastCol = Math.min(col + 1, cols - 1);
+            for (int r = firstRow; r <= lastRow; r++) {
+                int rowStart = r * cols;
+                for (int c = firstCol; c <= lastCol; c++) {
+                    // Hints live in the low bits, so adding 1 counts a mine.
+                    if ((cells[rowStart + c] & VALUE_MASK) != MINE) {
+                        cells[rowStart + c]++;
+                    }
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Expose a cell and, if it is a zero, the opening around it, like
+     * MineField.floodExpose. Flagged cells are left hidden by the fill, but a
+     * flagged cell can still be exposed directly.
+     *
+     * @param row
+     *            cell row
+     * @param col
+     *            cell column
+     * @return the number of cells that went from hidden to exposed
+     */
+    public int exposeCell(int row, int col) {
+        return expose(index(row, col));
+    }
+
+
+    /**
+     * Expose several cells in order, as if exposeCell had been called on each
+     * of them, stopping after the first mine. Each index is only checked
+     * against the size of the board.
+     *
+     * @param indices
+     *            flat indices (row * cols + col) of the cells to expose
+     * @return the flat indices of every cell that went from hidden to
+     *         exposed, in the order they were exposed
+     */
+    public int[] exposeCells(int[] indices) {
+        startBatch();
+        for (int start : indices) {
+            exposeInBatch(start);
+            if (mineExposed) {
+                break;
+            }
+        }
+
+        return batchExposed();
+    }
+
+
+    /**
+     * Start a batch of exposeInBatch calls, recording the cells they expose
+     * until batchExposed is called.
+     */
+    void startBatch() {
+        batching = true;
+        batchSize = 0;
+    }
+
+
+    /**
+     * Expose a cell as part of a batch, without clearing the list of cells
+     * exposed so far.
+     *
+     * @param start
+     *            flat index of the cell
+     * @return the number of cells that went from hidden to exposed
+     */
+    int exposeInBatch(int start) {
+        if (start < 0 || start >= cells.length) {
+            throw new IndexOutOfBoundsException(
+                "Cell " + start + " is outside a " + rows + " x " + cols
+                    + " board");
+        }
+
+        return expose(start);
+    }
+
+
+    /**
+     * Return the cells exposed since startBatch, and end the batch. A list
+     * that grew past BATCH_KEPT cells is let go rather than kept for the
+     * next batch.
+     *
+     * @return flat indices of the newly exposed cells, in order
+     */
+    int[] batchExposed() {
+        int[] exposed = batching ? Arrays.copyOf(batch, batchSize)
+            : new int[0];
+        batching = false;
+        batchSize = 0;
+        if (batch.length > BATCH_KEPT) {
+            batch = new int[BATCH_KEPT];
+        }
+        return exposed;
+    }
+
+
+    /**
+     * Helper method exposes a cell and the opening around it. The fill is
+     * breadth first, and its work list only holds the zero cells it still
+     * has to spread from (the edge of the opening so far), not every cell
+     * it exposes, so a huge opening needs little more than the board.
+     *
+     * @param start
+     *            flat index of the cell
+     * @return the number of cells that went from hidden to exposed
+     */
+    private int expose(int start) {
+        exposedCount = 0;
+        if (openings != null
+            && (cells[start] & (EXPOSED | FLAGGED | VALUE_MASK)) == 0
+            && exposeOpening(openings.openingOf(start))) {
+            hiddenSafeCells -= exposedCount;
+            return exposedCount;
+        }
+
+        if ((cells[start] & EXPOSED) == 0) {
+            exposeOne(start);
+        }
+
+        int value = cells[start] & VALUE_MASK;
+        if (value == MINE) {
+            mineExposed = true;
+            return exposedCount;
+        }
+
+        if (value == 0) {
+            workHead = 0;
+            workSize = 0;
+            push(start);
+        }
+        while (workSize > 0) {
+            if (exposedCount >= parallelThreshold) {
+                exposeInParallel();
+                break;
+            }
+
+            int cell = work[workHead];
+            workHead = workHead + 1 == work.length ? 0 : workHead + 1;
+            workSize--;
+            int r = cell / cols;
+            int c = cell % cols;
+            int firstRow = Math.max(r - 1, 0);
+            int lastRow = Math.min(r + 1, rows - 1);
+            int firstCol = Math.max(c - 1, 0);
+            int lastCol = Math.min(c + 1, cols - 1);
+            for (int nr = firstRow; nr <= lastRow; nr++) {
+                int rowStart = nr * cols;
+                for (int nc = firstCol; nc <= lastCol; nc++) {
+                    int i = rowStart + nc;
+                    if ((cells[i] & (EXPOSED | FLAGGED)) == 0) {
+                        exposeOne(i);
+                        // Only zero cells keep the fill going.
+                        if ((cells[i] & VALUE_MASK) == 0) {
+                            push(i);
+                        }
+                    }
+                }
+            }
+        }
+
+        hiddenSafeCells -= exposedCount;
+        return exposedCount;
+    }
+
+
+    /**
+     * Helper method adds a zero cell to the end of the flood fill's work
+     * list, growing the ring if it is full.
+     *
+     * @param cell
+     *            flat index of the cell
+     */
+    private void push(int cell) {
+        if (workSize == work.length) {
+            int[] grown = new int[(int) Math.min(2L * workSize,
+                cells.length)];
+            int tail = work.length - workHead;
+            System.arraycopy(work, workHead, grown, 0, tail);
+            System.arraycopy(work, 0, grown, tail, workHead);
+            work = grown;
+            workHead = 0;
+        }
+
+        int end = workHead + workSize;
+        work[end < work.length ? end : end - work.length] = cell;
+        workSize++;
+    }
+
+
+    /**
+     * Helper method exposes an opening from the index, if none of its zero
+     * cells are exposed or flagged and none of its border is flagged. Then
+     * the flood fill would expose exactly its hidden cells.
+     *
+     * @param opening
+     *            the opening
+     * @return true if the opening was exposed, false if it has to be
+     *         filled
+     */
+    private boolean exposeOpening(int opening) {
+        int[] members = openings.cells();
+        int border = openings.borderStart(opening);
+        int end = openings.end(opening);
+        for (int i = openings.start(opening); i < end; i++) {
+            int blocked = i < border ? EXPOSED | FLAGGED : FLAGGED;
+            if ((cells[members[i]] & blocked) != 0) {
+                return false;
+            }
+        }
+
+        for (int i = openings.start(opening); i < end; i++) {
+            if ((cells[members[i]] & EXPOSED) == 0) {
+                exposeOne(members[i]);
+            }
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Helper method finishes a flood fill in parallel, spreading from the
+     * zero cells left in the work list. The cells the parallel fill exposes
+     * are only listed if a batch is being recorded.
+     */
+    private void exposeInParallel() {
+        int[] zeros = new int[workSize];
+        for (int i = 0; i < workSize; i++) {
+            int at = workHead + i;
+            zeros[i] = work[at < work.length ? at : at - work.length];
+        }
+        workSize = 0;
+
+        Queue<int[]> exposed = !batching ? null
+            : new ConcurrentLinkedQueue<>();
+        exposedCount += ForkJoinPool.commonPool().invoke(
+            new FillTask(zeros, zeros.length, exposed));
+        if (exposed != null) {
+            for (int[] part : exposed) {
+                record(part, part.length);
+            }
+        }
+    }
+
+
+    /**
+     * Part of a parallel flood fill: spreads from a stack of zero cells,
+     * splitting off half of the stack into a new task when it gets long.
+     * Returns the number of cells it and the tasks it split off exposed.
+     */
+    private final class FillTask extends RecursiveTask<Integer> {
+        /** Serialization version; tasks are never serialized */
+        private static final long serialVersionUID = 1L;
+        /** Zero cells to spread from */
+        private int[] zeros;
+        /** Number of cells in zeros */
+        private int count;
+        /** Where each task puts the cells it exposed; null not to list them */
+        private final Queue<int[]> exposed;
+
+
+        /**
+         * Create a task.
+         *
+         * @param zeros
+         *            zero cells to spread from
+         * @param count
+         *            number of cells in zeros
+         * @param exposed
+         *            where to put the cells the task exposes, or null
+         */
+        FillTask(int[] zeros, int count, Queue<int[]> exposed) {
+            this.zeros = zeros;
+            this.count = count;
+            this.exposed = exposed;
+        }
+
+
+        /**
+         * Spread from every zero cell on the stack, and from every zero
+         * cell that exposes, until the stack is empty.
+         *
+         * @return the number of cells exposed
+         */
+        @Override
+        protected Integer compute() {
+            List<FillTask> split = new ArrayList<>();
+            int[] done = exposed == null ? null : new int[64];
+            int size = 0;
+            while (count > 0) {
+                int cell = zeros[--count];
+                int r = cell / cols;
+                int c = cell % cols;
+                int lastRow = Math.min(r + 1, rows - 1);
+                int lastCol = Math.min(c + 1, cols - 1);
+                for (int nr = Math.max(r - 1, 0); nr <= lastRow; nr++) {
+                    for (int nc = Math.max(c - 1, 0); nc <= lastCol; nc++) {
+                        int i = nr * cols + nc;
+                        byte old = (byte) CELL.getOpaque(cells, i);
+                        // Only the EXPOSED bit changes during the fill, so a
+                        // failed compare-and-set means another task got it.
+                        if ((old & (EXPOSED | FLAGGED)) != 0
+                            || !CELL.compareAndSet(cells, i, old,
+                                (byte) (old | EXPOSED))) {
+                            continue;
+                        }
+
+                        if (done != null) {
+                            if (size == done.length) {
+                                done = Arrays.copyOf(done, 2 * size);
+                            }
+                            done[size] = i;
+                        }
+                        size++;
+                        if (dirtyRows != null) {
+                            dirtyRows[nr] = true;
+                        }
+                        if ((old & VALUE_MASK) == 0) {
+                            if (count == zeros.length) {
+                                zeros = Arrays.copyOf(zeros, 2 * count);
+                            }
+                            zeros[count++] = i;
+                        }
+                    }
+                }
+
+                if (count > SPLIT_SIZE) {
+                    int half = count / 2;
+                    FillTask task = new FillTask(
+                        Arrays.copyOfRange(zeros, half, count), count - half,
+                        exposed);
+                    count = half;
+                    task.fork();
+                    split.add(task);
+                }
+            }
+
+            if (done != null) {
+                exposed.add(Arrays.copyOf(done, size));
+            }
+            int total = size;
+            for (FillTask task : split) {
+                total += task.join();
+            }
+            return total;
+        }
+    }
+
+
+    /**
+     * Reveal openings with a precomputed index instead of a flood fill. The
+     * index is dropped if mines are placed or hints set afterwards.
+     *
+     * @param openings
+     *            the index, built from this board's layout, or null to
+     *            always fill
+     */
+    public void setOpeningIndex(OpeningIndex openings) {
+        this.openings = openings;
+    }
+
+
+    /**
+     * Set how many cells an opening grows to before the rest of it is
+     * exposed in parallel. By default this is PARALLEL_THRESHOLD when there
+     * is more than one processor to run on, and never otherwise.
+     *
+     * @param cells
+     *            number of cells, or Integer.MAX_VALUE to always fill
+     *            sequentially
+     */
+    public void setParallelThreshold(int cells) {
+        if (cells < 1) {
+            throw new IllegalArgumentException(
+                "The parallel threshold must be positive");
+        }
+        this.parallelThreshold = cells;
+    }
+
+
+    /**
+     * Helper method marks a hidden, safe-to-expose cell as exposed, counts
+     * it, and lists it if a batch is being recorded.
+     *
+     * @param i
+     *            flat index of the cell
+     */
+    private void exposeOne(int i) {
+        cells[i] |= EXPOSED;
+        exposedCount++;
+        if (batching) {
+            if (batchSize == batch.length) {
+                batch = Arrays.copyOf(batch,
+                    (int) Math.min(2L * batchSize, cells.length));
+            }
+            batch[batchSize++] = i;
+        }
+        if (dirtyRows != null) {
+            dirtyRows[i / cols] = true;
+        }
+    }
+
+
+    /**
+     * Helper method adds cells exposed by the parallel fill to the batch.
+     *
+     * @param exposed
+     *            flat indices of the cells
+     * @param count
+     *            number of cells in exposed
+     */
+    private void record(int[] exposed, int count) {
+        if (batchSize > batch.length - count) {
+            batch = Arrays.copyOf(batch, (int) Math.min(
+                Math.max(2L * batchSize, (long) batchSize + count),
+                cells.length));
+        }
+        System.arraycopy(exposed, 0, batch, batchSize, count);
+        batchSize += count;
+    }
+
+
+    /**
+     * Flag or unflag a hidden cell. Exposed cells can't be flagged.
+     *
+     * @param row
+     *            cell row
+     * @param col
+     *            cell column
+     * @param flagged
+     *            true to place a flag, false to remove it
+     */
+    public void setFlagged(int row, int col, boolean flagged) {
+        int i = index(row, col);
+        if ((cells[i] & EXPOSED) != 0) {
+            return;
+        }
+        if (flagged) {
+            cells[i] |= FLAGGED;
+        }
+        else {
+            cells[i] &= ~FLAGGED;
+        }
+    }
+
+
+    /**
+     * Have exposeCell mark the rows it changes, e.g. so that only those rows
+     * are drawn again.
+     *
+     * @param dirtyRows
+     *            one entry per row, set to true whenever a cell in that row is
+     *            exposed (entries are never cleared here); null to stop
+     *            marking rows
+     */
+    public void setDirtyRows(boolean[] dirtyRows) {
+        this.dirtyRows = dirtyRows;
+    }
+
+
+    /**
+     * Return the flat index of a cell.
+     *
+     * @param row
+     *            cell row
+     * @param col
+     *            cell column
+     * @return row * cols + col
+     */
+    public int index(int row, int col) {
+        if (row < 0 || row >= rows || col < 0 || col >= cols) {
+            throw new IndexOutOfBoundsException(
+                "Cell (" + row + ", " + col + ") is outside a " + rows + " x "
+                    + cols + " board");
+        }
+
+        return row * cols + col;
+    }
+
+
+    /**
+     * Return the value of a cell, using the same values as MineField.
+     *
+     * @param row
+     *            cell row
+     * @param col
+     *            cell column
+     * @return -1 if the cell is a mine, otherwise its hint (0..8)
+     */
+    public int getValue(int row, int col) {
+        return valueOf(cells[index(row, col)]);
+    }
+
+
+    /**
+     * Return true if the cell is a mine.
+     *
+     * @param row
+     *            cell row
+     * @param col
+     *            cell column
+     * @return true if the cell is a mine
+     */
+    public boolean isMine(int row, int col) {
+        return (cells[index(row, col)] & VALUE_MASK) == MINE;
+    }
+
+
+    /**
+     * Return true if the cell has been exposed.
+     *
+     * @param row
+     *            cell row
+     * @param col
+     *            cell column
+     * @return true if the cell is exposed
+     */
+    public boolean isExposed(int row, int col) {
+        return (cells[index(row, col)] & EXPOSED) != 0;
+    }
+
+
+    /**
+     * Return true if the cell has been flagged.
+     *
+     * @param row
+     *            cell row
+     * @param col
+     *            cell column
+     * @return true if the cell is flagged
+     */
+    public boolean isFlagged(int row, int col) {
+        return (cells[index(row, col)] & FLAGGED) != 0;
+    }
+
+
+    /**
+     * Return true if every safe cell is exposed and no mine is, like
+     * MineField.won. Runs in constant time.
+     *
+     * @return true for a win, false otherwise
+     */
+    public boolean won() {
+        return hiddenSafeCells == 0 && !mineExposed;
+    }
+
+
+    /**
+     * Return true if a mine has been exposed.
+     *
+     * @return true for a loss, false otherwise
+     */
+    public boolean lost() {
+        return mineExposed;
+    }
+
+
+    /**
+     * Return a string representation of the board, as MineField.showBoard.
+     * Flagged cells are drawn as F.
+     *
+     * @return the board with hidden cells drawn as *
+     */
+    public String showBoard() {
+        return BoardRenderer.showBoard(this);
+    }
+
+
+    /**
+     * Return true if the cell at a flat index is flagged.
+     *
+     * @param i
+     *            flat index of the cell
+     * @return true if the cell is flagged
+     */
+    boolean isFlagged(int i) {
+        return (cells[i] & FLAGGED) != 0;
+    }
+
+
+    /**
+     * Return the number of rows in the board.
+     *
+     * @return number of rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+
+    /**
+     * Return the number of columns in the board.
+     *
+     * @return number of columns
+     */
+    public int getCols() {
+        return cols;
+    }
+
+
+    /**
+     * Return the number of mines on the board.
+     *
+     * @return number of mines
+     */
+    public int getMineCount() {
+        return mineCount;
+    }
+
+
+    /**
+     * Return the number of safe cells that still have to be exposed.
+     *
+     * @return number of hidden non-mine cells
+     */
+    public int getHiddenSafeCells() {
+        return hiddenSafeCells;
+    }
+
+
+    /**
+     * Return the backing cell array. Package-private so other board code can
+     * work on the bytes directly.
+     *
+     * @return one byte per cell, row by row
+     */
+    byte[] cells() {
+        return cells;
+    }
+
+}
@@ -0,0 +1,1092 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Works out the chance that each hidden cell is a mine, given what a player
+ * can see: the exposed hints, the cells already known to be mines and the
+ * number of mines on the board. Every layout of mines that fits the hints is
+ * taken to be equally likely.
+ *
+ * The hidden cells next to a hint (the frontier) are split into components:
+ * two cells are in the same component if a chain of hints links them. Each
+ * component is solved on its own, giving for every number of mines k the
+ * number of layouts of the component with k mines and, for each cell, how
+ * many of those layouts have a mine there. The components are then combined
+ * with the cells away from the frontier, whose layouts are counted with
+ * binomial coefficients. Those coefficients get far too big for a double on
+ * large boards, so they are worked with as logarithms.
+ *
+ * A component is solved by assigning its cells in order, so that the hints
+ * it involves are finished as soon as possible. Partial assignments that
+ * leave every unfinished hint needing the same number of mines have the same
+ * completions, so they are merged; this is backtracking with memoization,
+ * done one cell at a time. The number of distinct states is small for
+ * ordinary boards. If a layer has more than the cutoff set in the
+ * constructor, a random sample of its states is kept and the rest are
+ * dropped, so the work stays bounded on huge frontiers. The result is then
+ * an estimate rather than exact, and wasExact reports whether it happened.
+ *
+ * @author Ben Wright
+ * @version 2026.10.18
+ */
+
+public class ProbabilityEngine {
+    /** Default for the largest number of states a component may have */
+    public static final int DEFAULT_MAX_STATES = 20_000;
+
+    /** Bits used for a hint's remaining mines in a state */
+    private static final int RESIDUAL_BITS = 4;
+    /** Mask for one hint's remaining mines */
+    private static final int RESIDUAL_MASK = (1 << RESIDUAL_BITS) - 1;
+    /** Hints whose remaining mines fit in one long */
+    private static final int PER_WORD = Long.SIZE / RESIDUAL_BITS;
+    /** Counts in a layer are scaled down once they reach this */
+    private static final double LARGE = 1e100;
+
+    /** Most states kept in a layer; more than this and it is sampled */
+    private final int maxStates;
+    /** Picks the states kept when a layer is sampled */
+    private final SplittableRandom rand;
+    /** False if the last call sampled any layer */
+    private boolean exact;
+    /** Chance of a mine for cells away from the frontier in the last call */
+    private double interior;
+    /** log(n!) for n = 0..logFactorial.length - 1 */
+    private double[] logFactorial = { 0 };
+    /** Union-find parent of each frontier cell, -1 for others; reused */
+    private int[] parent = new int[0];
+    /** Scratch number for each cell, reused between calls */
+    private int[] slot = new int[0];
+
+
+    /**
+     * Create an engine with the default cutoff.
+     */
+    public ProbabilityEngine() {
+        this(DEFAULT_MAX_STATES, 0);
+    }
+
+
+    /**
+     * Create an engine with the given cutoff for sampling.
+     *
+     * @param maxStates
+     *            most states kept in a layer of a component; layers with
+     *            more are sampled down to this many
+     * @param seed
+     *            seed for the random choices made while sampling
+     */
+    public ProbabilityEngine(int maxStates, long seed) {
+        if (maxStates < 1) {
+            throw new IllegalArgumentException(
+                "maxStates must be positive");
+        }
+        this.maxStates = maxStates;
+        this.rand = new SplittableRandom(seed);
+    }
+
+
+    /**
+     * Work out the chance of a mine in every cell.
+     *
+     * @param rows
+     *            number of rows in the board
+     * @param cols
+     *            number of columns in the board
+     * @param visible
+     *            what the player sees of each cell, by flat index: 0..8 for
+     *            an exposed hint, Game.HIDDEN or Game.FLAG for a hidden cell
+     * @param knownMine
+     *            true for hidden cells known to be mines (flags are not
+     *            trusted unless they are marked here); may be null
+     * @param mines
+     *            number of mines on the board
+     * @return chance of a mine for each cell: 0 for exposed cells, 1 for
+     *         known mines
+     * @throws IllegalArgumentException
+     *             if no layout of mines fits what is visible
+     */
+    public double[] probabilities(int rows, int cols, int[] visible,
+        boolean[] knownMine, int mines) {
+        int cells = rows * cols;
+        double[] result = new double[cells];
+        exact = true;
+
+        // Hidden cells that could be either, and the mines among them.
+        int unknownCells = 0;
+        int minesLeft = mines;
+        for (int cell = 0; cell < cells; cell++) {
+            if (knownMine != null && knownMine[cell]) {
+                result[cell] = 1;
+                minesLeft--;
+            }
+            else if (isHidden(visible[cell])) {
+                unknownCells++;
+            }
+        }
+
+        List<Component> components = findComponents(rows, cols, visible,
+            knownMine);
+        int frontierCells = 0;
+        for (Component component : components) {
+            frontierCells += component.cells.length;
+        }
+        int interiorCells = unknownCells - frontierCells;
+
+        // weight[t]: layouts of the interior cells if the frontier has t
+        // mines, relative to the largest such count.
+        double[] weight = interiorWeights(interiorCells, minesLeft,
+            frontierCells);
+
+        // A sample can lose every layout of a component, or every layout
+        // that fits the mine count; then sample again, keeping more states.
+        for (long limit = maxStates;; limit *= 2) {
+            exact = true;
+            for (Component component : components) {
+                exact &= component.solve((int) Math.min(limit,
+                    Integer.MAX_VALUE), rand);
+            }
+            if (combine(components, weight, minesLeft, interiorCells)) {
+                break;
+            }
+            if (exact) {
+                throw new IllegalArgumentException(
+                    "No layout of mines fits the visible cells");
+            }
+        }
+
+        for (int cell = 0; cell < cells; cell++) {
+            if (isHidden(visible[cell]) && (knownMine == null
+                || !knownMine[cell])) {
+                result[cell] = interior;
+            }
+        }
+        for (Component component : components) {
+            for (int i = 0; i < component.cells.length; i++) {
+                result[component.cells[i]] = component.chance[i];
+            }
+        }
+
+        return result;
+    }
+
+
+    /**
+     * Helper method combines the solved components with the interior cells:
+     * works out the chance of a mine in each component's cells and in the
+     * interior.
+     *
+     * @param components
+     *            the solved components
+     * @param weight
+     *            relative number of layouts of the interior cells, by the
+     *            number of mines on the frontier
+     * @param minesLeft
+     *            mines not known yet
+     * @param interiorCells
+     *            number of unknown cells away from the frontier
+     * @return false if no layout of the components fits the mine count
+     */
+    private boolean combine(List<Component> components, double[] weight,
+        int minesLeft, int interiorCells) {
+        // prefix[c]: the frontier mine counts of components 0..c-1 combined.
+        int count = components.size();
+        double[][] prefix = new double[count + 1][];
+        prefix[0] = new double[] { 1 };
+        for (int c = 0; c < count; c++) {
+            double[] counts = components.get(c).counts;
+            if (counts == null) {
+                return false;
+            }
+            prefix[c + 1] = convolve(prefix[c], counts, minesLeft);
+        }
+
+        double[] all = prefix[count];
+        double total = 0;
+        double interiorMines = 0;
+        for (int t = 0; t < all.length && t < weight.length; t++) {
+            total += all[t] * weight[t];
+            interiorMines += all[t] * weight[t] * (minesLeft - t);
+        }
+        if (total == 0) {
+            return false;
+        }
+        interior = interiorCells == 0 ? 0 : interiorMines / total
+            / interiorCells;
+
+        double[] suffix = { 1 };
+        for (int c = count - 1; c >= 0; c--) {
+            Component component = components.get(c);
+            double[] others = convolve(prefix[c], suffix, minesLeft);
+            component.finish(others, weight);
+            suffix = convolve(suffix, component.counts, minesLeft);
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Return false if the last call to probabilities sampled any component
+     * rather than counting its layouts exactly.
+     *
+     * @return true if the last result was exact
+     */
+    public boolean wasExact() {
+        return exact;
+    }
+
+
+    /**
+     * Return the chance of a mine in the last call for a hidden cell that
+     * isn't next to any hint.
+     *
+     * @return the chance, or 0 if there were no such cells
+     */
+    public double getInteriorChance() {
+        return interior;
+    }
+
+
+    /**
+     * Helper method checks whether a visible value is a hidden cell.
+     *
+     * @param value
+     *            what the player sees of the cell
+     * @return true for hidden and flagged cells
+     */
+    private static boolean isHidden(int value) {
+        return value == Game.HIDDEN || value == Game.FLAG;
+    }
+
+
+    /**
+     * Helper method finds the hints next to unknown cells, and splits their
+     * unknown neighbors into components.
+     *
+     * @param rows
+     *            number of rows
+     * @param cols
+     *            number of columns
+     * @param visible
+     *            what the player sees of each cell
+     * @param knownMine
+     *            hidden cells known to be mines, or null
+     * @return the components in order of their first cell, each with its
+     *         cells and hints
+     */
+    private List<Component> findComponents(int rows, int cols,
+        int[] visible, boolean[] knownMine) {
+        int cells = rows * cols;
+        if (parent.length < cells) {
+            parent = new int[cells];
+            slot = new int[cells];
+        }
+        Arrays.fill(parent, 0, cells, -1);
+        Arrays.fill(slot, 0, cells, -1);
+        int[][] hintCells = new int[16][];
+        int[] hintNeeds = new int[16];
+        int hintCount = 0;
+        int[] neighbors = new int[8];
+
+        for (int cell = 0; cell < cells; cell++) {
+            if (visible[cell] < 0) {
+                continue;
+            }
+
+            int r = cell / cols;
+            int c = cell % cols;
+            int need = visible[cell];
+            int count = 0;
+            for (int nr = Math.max(r - 1, 0); nr <= Math.min(r + 1, rows - 1);
+                nr++) {
+                for (int nc = Math.max(c - 1, 0); nc <= Math.min(c + 1,
+                    cols - 1); nc++) {
+                    int n = nr * cols + nc;
+                    if (!isHidden(visible[n])) {
+                        continue;
+                    }
+                    if (knownMine != null && knownMine[n]) {
+                        need--;
+                    }
+                    else {
+                        neighbors[count++] = n;
+                    }
+                }
+            }
+            if (count == 0) {
+                continue;
+            }
+
+            for (int i = 0; i < count; i++) {
+                if (parent[neighbors[i]] == -1) {
+                    parent[neighbors[i]] = neighbors[i];
+                }
+                union(parent, neighbors[0], neighbors[i]);
+            }
+            if (hintCount == hintCells.length) {
+                hintCells = Arrays.copyOf(hintCells, 2 * hintCount);
+                hintNeeds = Arrays.copyOf(hintNeeds, 2 * hintCount);
+            }
+            hintCells[hintCount] = Arrays.copyOf(neighbors, count);
+            hintNeeds[hintCount++] = need;
+        }
+
+        // Number the sets in order of their first cell, keeping each set's
+        // number in slot at its root. Every set has a hint, so there are at
+        // most hintCount of them.
+        int count = 0;
+        int[] sizes = new int[hintCount];
+        for (int cell = 0; cell < cells; cell++) {
+            if (parent[cell] != -1) {
+                int root = find(parent, cell);
+                if (slot[root] < 0) {
+                    slot[root] = count++;
+                }
+                sizes[slot[root]]++;
+            }
+        }
+        int[][] cellsOf = new int[count][];
+        for (int c = 0; c < count; c++) {
+            cellsOf[c] = new int[sizes[c]];
+            sizes[c] = 0;
+        }
+        for (int cell = 0; cell < cells; cell++) {
+            if (parent[cell] != -1) {
+                int c = slot[find(parent, cell)];
+                cellsOf[c][sizes[c]++] = cell;
+            }
+        }
+
+        int[] hintOf = new int[hintCount];
+        Arrays.fill(sizes, 0);
+        for (int h = 0; h < hintCount; h++) {
+            hintOf[h] = slot[find(parent, hintCells[h][0])];
+            sizes[hintOf[h]]++;
+        }
+        int[][][] membersOf = new int[count][][];
+        int[][] needsOf = new int[count][];
+        for (int c = 0; c < count; c++) {
+            membersOf[c] = new int[sizes[c]][];
+            needsOf[c] = new int[sizes[c]];
+            sizes[c] = 0;
+        }
+        for (int h = 0; h < hintCount; h++) {
+            int c = hintOf[h];
+            membersOf[c][sizes[c]] = hintCells[h];
+            needsOf[c][sizes[c]++] = hintNeeds[h];
+        }
+
+        // The set numbers aren't needed any more, so the components can use
+        // slot for their own numbering.
+        List<Component> components = new ArrayList<>(count);
+        for (int c = 0; c < count; c++) {
+            components.add(new Component(cellsOf[c], membersOf[c],
+                needsOf[c], slot));
+        }
+
+        return components;
+    }
+
+
+    /**
+     * Helper method finds the root of a cell's set, halving the path as it
+     * goes.
+     *
+     * @param parent
+     *            parent of each cell in its set
+     * @param cell
+     *            the cell
+     * @return the root of the set
+     */
+    private static int find(int[] parent, int cell) {
+        while (parent[cell] != cell) {
+            parent[cell] = parent[parent[cell]];
+            cell = parent[cell];
+        }
+
+        return cell;
+    }
+
+
+    /**
+     * Helper method joins the sets of two cells.
+     *
+     * @param parent
+     *            parent of each cell in its set
+     * @param a
+     *            a cell
+     * @param b
+     *            another cell
+     */
+    private static void union(int[] parent, int a, int b) {
+        int rootA = find(parent, a);
+        int rootB = find(parent, b);
+        if (rootA != rootB) {
+            parent[rootB] = rootA;
+        }
+    }
+
+
+    /**
+     * Helper method works out, for each number t of mines on the frontier,
+     * the number of ways to place the other mines in the interior cells,
+     * C(interiorCells, minesLeft - t), divided by the largest of them.
+     *
+     * @param interiorCells
+     *            number of unknown cells away from the frontier
+     * @param minesLeft
+     *            mines not known yet
+     * @param frontierCells
+     *            number of unknown cells on the frontier
+     * @return the relative weights, indexed by t
+     */
+    private double[] interiorWeights(int interiorCells, int minesLeft,
+        int frontierCells) {
+        growLogFactorial(interiorCells);
+        int length = Math.max(0, Math.min(frontierCells, minesLeft) + 1);
+        double[] log = new double[length];
+        double max = Double.NEGATIVE_INFINITY;
+        for (int t = 0; t < length; t++) {
+            int interiorMines = minesLeft - t;
+            log[t] = interiorMines > interiorCells ? Double.NEGATIVE_INFINITY
+                : logFactorial[interiorCells] - logFactorial[interiorMines]
+                    - logFactorial[interiorCells - interiorMines];
+            max = Math.max(max, log[t]);
+        }
+
+        double[] weight = new double[length];
+        for (int t = 0; t < length; t++) {
+            weight[t] = Math.exp(log[t] - max);
+        }
+
+        return weight;
+    }
+
+
+    /**
+     * Helper method makes sure logFactorial goes up to n.
+     *
+     * @param n
+     *            largest n needed
+     */
+    private void growLogFactorial(int n) {
+        if (logFactorial.length > n) {
+            return;
+        }
+
+        int old = logFactorial.length;
+        logFactorial = Arrays.copyOf(logFactorial, Math.max(n + 1, old * 2));
+        for (int i = old; i < logFactorial.length; i++) {
+            logFactorial[i] = logFactorial[i - 1] + Math.log(i);
+        }
+    }
+
+
+    /**
+     * Helper method combines two mine count distributions, dropping counts
+     * over limit, and scales the result so its largest entry is 1.
+     *
+     * @param a
+     *            relative number of layouts by mine count
+     * @param b
+     *            relative number of layouts by mine count
+     * @param limit
+     *            largest mine count to keep
+     * @return relative number of layouts of both, by total mine count
+     */
+    private static double[] convolve(double[] a, double[] b, int limit) {
+        int length = Math.max(1, Math.min(a.length + b.length - 1,
+            limit + 1));
+        double[] result = new double[length];
+        for (int i = 0; i < a.length && i < length; i++) {
+            if (a[i] == 0) {
+                continue;
+            }
+            for (int j = 0; j < b.length && i + j < length; j++) {
+                result[i + j] += a[i] * b[j];
+            }
+        }
+
+        double max = 0;
+        for (double value : result) {
+            max = Math.max(max, value);
+        }
+        if (max > 0) {
+            for (int i = 0; i < length; i++) {
+                result[i] /= max;
+            }
+        }
+
+        return result;
+    }
+
+
+    /**
+     * The unknown cells linked by a chain of hints, and those hints.
+     */
+    private static final class Component {
+        /** Flat indices of the cells, in the order they are assigned */
+        final int[] cells;
+        /** For each hint, the positions in cells of its unknown neighbors */
+        final int[][] hints;
+        /** For each hint, the number of mines among its unknown neighbors */
+        final int[] needs;
+        /** Relative number of layouts by mine count, or null if none fit */
+        double[] counts;
+        /** Chance of a mine for each cell, filled in by finish */
+        double[] chance;
+
+        /** For each position, the hints that contain it */
+        private int[][] hintsAt;
+        /** First position in each hint */
+        private int[] firstOf;
+        /** Last position in each hint */
+        private int[] lastOf;
+        /** Layers of the solution: state to counts by mines so far */
+        private List<Map<State, double[]>> layers;
+        /** Per layer: the hints that are open or start at that position */
+        private int[][] active;
+        /** Per layer and active hint: its slot in the state before, or -1 */
+        private int[][] from;
+        /** Per layer and active hint: its slot in the state after, or -1 */
+        private int[][] to;
+        /** Per layer and active hint: 1 if the hint contains the position */
+        private int[][] here;
+        /** Per layer and active hint: the hint's positions after this one */
+        private int[][] room;
+        /** Per layer: number of longs in a state after the position */
+        private int[] words;
+
+
+        /**
+         * Create a component and put its cells in a good order.
+         *
+         * @param cellList
+         *            flat indices of the cells
+         * @param hintCells
+         *            for each hint, flat indices of its unknown neighbors
+         * @param needs
+         *            for each hint, the mines among those neighbors
+         * @param slot
+         *            scratch array with an entry for every cell on the
+         *            board
+         */
+        Component(int[] cellList, int[][] hintCells, int[] needs,
+            int[] slot) {
+            this.needs = needs;
+            this.cells = order(cellList, hintCells, slot);
+
+            for (int i = 0; i < cells.length; i++) {
+                slot[cells[i]] = i;
+            }
+            hints = new int[hintCells.length][];
+            firstOf = new int[hintCells.length];
+            lastOf = new int[hintCells.length];
+            for (int h = 0; h < hintCells.length; h++) {
+                hints[h] = new int[hintCells[h].length];
+                for (int i = 0; i < hints[h].length; i++) {
+                    hints[h][i] = slot[hintCells[h][i]];
+                }
+                Arrays.sort(hints[h]);
+                firstOf[h] = hints[h][0];
+                lastOf[h] = hints[h][hints[h].length - 1];
+            }
+            hintsAt = invert(hints, cells.length);
+        }
+
+
+        /**
+         * Helper method lists, for each position, the hints that contain
+         * it, in increasing order.
+         *
+         * @param hints
+         *            for each hint, the positions of its cells
+         * @param n
+         *            number of positions
+         * @return the hints of each position
+         */
+        private static int[][] invert(int[][] hints, int n) {
+            int[] count = new int[n];
+            for (int[] hint : hints) {
+                for (int i : hint) {
+                    count[i]++;
+                }
+            }
+            int[][] inverse = new int[n][];
+            for (int i = 0; i < n; i++) {
+                inverse[i] = new int[count[i]];
+                count[i] = 0;
+            }
+            for (int h = 0; h < hints.length; h++) {
+                for (int i : hints[h]) {
+                    inverse[i][count[i]++] = h;
+                }
+            }
+
+            return inverse;
+        }
+
+
+        /**
+         * Helper method orders the cells by a breadth-first search over the
+         * hints, started from a cell at one end of the component, so that
+         * few hints are unfinished at any point.
+         *
+         * @param cellList
+         *            flat indices of the cells
+         * @param hintCells
+         *            for each hint, flat indices of its unknown neighbors
+         * @param slot
+         *            scratch array with an entry for every cell
+         * @return the cells in order
+         */
+        private static int[] order(int[] cellList, int[][] hintCells,
+            int[] slot) {
+            int n = cellList.length;
+            for (int i = 0; i < n; i++) {
+                slot[cellList[i]] = i;
+            }
+            int[][] local = new int[hintCells.length][];
+            for (int h = 0; h < hintCells.length; h++) {
+                local[h] = new int[hintCells[h].length];
+                for (int i = 0; i < local[h].length; i++) {
+                    local[h][i] = slot[hintCells[h][i]];
+                }
+            }
+            int[][] hintsOf = invert(local, n);
+
+            // The last cell reached from any cell is near one end.
+            int[] first = breadthFirst(0, local, hintsOf);
+            int[] second = breadthFirst(first[n - 1], local, hintsOf);
+            int[] ordered = new int[n];
+            for (int i = 0; i < n; i++) {
+                ordered[i] = cellList[second[i]];
+            }
+
+            return ordered;
+        }
+
+
+        /**
+         * Helper method lists the cells in breadth-first order from start.
+         *
+         * @param start
+         *            the first cell, numbered within the component
+         * @param hints
+         *            for each hint, the numbers of its cells
+         * @param hintsOf
+         *            the hints each cell is in
+         * @return the cells' numbers in the order they were reached
+         */
+        private static int[] breadthFirst(int start, int[][] hints,
+            int[][] hintsOf) {
+            int[] queue = new int[hintsOf.length];
+            boolean[] seen = new boolean[hintsOf.length];
+            queue[0] = start;
+            seen[start] = true;
+            int end = 1;
+            for (int head = 0; head < end; head++) {
+                for (int h : hintsOf[queue[head]]) {
+                    for (int cell : hints[h]) {
+                        if (!seen[cell]) {
+                            seen[cell] = true;
+                            queue[end++] = cell;
+                        }
+                    }
+                }
+            }
+
+            return queue;
+        }
+
+
+        /**
+         * Count the layouts of the component, one cell at a time. Partial
+         * layouts that leave every unfinished hint needing the same number
+         * of mines are merged into one state. If a layer has more than
+         * maxStates states, a random maxStates of them are kept, each
+         * standing in for the ones dropped.
+         *
+         * @param maxStates
+         *            most states kept in a layer
+         * @param rand
+         *            picks the states kept when a layer is too big
+         * @return false if any layer was cut down
+         */
+        boolean solve(int maxStates, SplittableRandom rand) {
+            int n = cells.length;
+            planLayers();
+
+            boolean exact = true;
+            layers = new ArrayList<>(n + 1);
+            Map<State, double[]> layer = new HashMap<>();
+            layer.put(new State(new long[1]), new double[] { 1 });
+            layers.add(layer);
+            for (int i = 0; i < n; i++) {
+                Map<State, double[]> next = new HashMap<>();
+                State probe = new State(new long[words[i]]);
+                for (Map.Entry<State, double[]> entry : layer.entrySet()) {
+                    double[] f = entry.getValue();
+                    for (int v = 0; v <= 1; v++) {
+                        if (!step(i, entry.getKey(), v, probe)) {
+                            continue;
+                        }
+                        // Only a state not seen yet needs a key of its own.
+                        double[] g = next.get(probe);
+                        if (g == null) {
+                            g = new double[f.length + 1];
+                            next.put(probe.copy(), g);
+                        }
+                        for (int a = 0; a < f.length; a++) {
+                            g[a + v] += f[a];
+                        }
+                    }
+                }
+                if (next.size() > maxStates) {
+                    exact = false;
+                    next = keepRandom(next, maxStates, rand);
+                }
+                rescale(next);
+                layers.add(next);
+                layer = next;
+            }
+
+            // Every hint is finished after the last cell, so at most one
+            // state is left.
+            counts = layer.isEmpty() ? null : layer.values().iterator().next();
+            return exact;
+        }
+
+
+        /**
+         * Helper method keeps a random count of the states of a layer. All
+         * states are equally likely to be kept, so the kept counts, scaled
+         * up, are an unbiased estimate of the full layer; the scale doesn't
+         * matter, as only ratios within a layer are used.
+         *
+         * @param layer
+         *            state to counts by mines
+         * @param count
+         *            number of states to keep
+         * @param rand
+         *            picks the states
+         * @return the kept states
+         */
+        private static Map<State, double[]> keepRandom(
+            Map<State, double[]> layer, int count, SplittableRandom rand) {
+            List<Map.Entry<State, double[]>> entries = new ArrayList<>(layer
+                .entrySet());
+            Map<State, double[]> kept = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                int j = i + rand.nextInt(entries.size() - i);
+                Map.Entry<State, double[]> entry = entries.get(j);
+                entries.set(j, entries.get(i));
+                kept.put(entry.getKey(), entry.getValue());
+            }
+
+            return kept;
+        }
+
+
+        /**
+         * Helper method works out, for each position, which hints are
+         * active and where their remaining mines are kept in the states
+         * before and after the cell is assigned.
+         */
+        private void planLayers() {
+            int n = cells.length;
+            active = new int[n][];
+            from = new int[n][];
+            to = new int[n][];
+            here = new int[n][];
+            room = new int[n][];
+            words = new int[n];
+            // open: hints started before position i and not finished, in
+            // the order of their slots in the state.
+            int[] open = new int[hints.length];
+            int openCount = 0;
+            int[] now = new int[hints.length];
+            for (int i = 0; i < n; i++) {
+                int count = 0;
+                for (int j = 0; j < openCount; j++) {
+                    now[count++] = open[j];
+                }
+                for (int h : hintsAt[i]) {
+                    if (firstOf[h] == i) {
+                        now[count++] = h;
+                    }
+                }
+
+                active[i] = Arrays.copyOf(now, count);
+                from[i] = new int[count];
+                to[i] = new int[count];
+                here[i] = new int[count];
+                room[i] = new int[count];
+                int after = 0;
+                for (int j = 0; j < count; j++) {
+                    int h = now[j];
+                    from[i][j] = j < openCount ? j : -1;
+                    here[i][j] = contains(h, i) ? 1 : 0;
+                    room[i][j] = cellsAfter(h, i);
+                    if (lastOf[h] > i) {
+                        // open was copied to now, so it can be refilled.
+                        to[i][j] = after;
+                        open[after++] = h;
+                    }
+                    else {
+                        to[i][j] = -1;
+                    }
+                }
+                words[i] = Math.max(1, (after + PER_WORD - 1) / PER_WORD);
+                openCount = after;
+            }
+        }
+
+
+        /**
+         * Helper method assigns position i in a state, writing the state
+         * after it into a reused probe, so no state is allocated just to be
+         * looked up.
+         *
+         * @param i
+         *            the position
+         * @param state
+         *            remaining mines of the open hints before position i
+         * @param v
+         *            1 for a mine, 0 for a safe cell
+         * @param probe
+         *            a state of words[i] longs to write the result to
+         * @return false if a hint can no longer be satisfied
+         */
+        private boolean step(int i, State state, int v, State probe) {
+            long[] next = probe.packed;
+            Arrays.fill(next, 0);
+            for (int j = 0; j < active[i].length; j++) {
+                int left = from[i][j] < 0 ? needs[active[i][j]]
+                    : state.get(from[i][j]);
+                left -= here[i][j] * v;
+                if (left < 0 || left > room[i][j]) {
+                    return false;
+                }
+                int slot = to[i][j];
+                if (slot >= 0) {
+                    next[slot / PER_WORD] |= (long) left << (slot % PER_WORD
+                        * RESIDUAL_BITS);
+                }
+            }
+            probe.rehash();
+
+            return true;
+        }
+
+
+        /**
+         * Helper method checks whether a hint contains position i.
+         *
+         * @param h
+         *            the hint
+         * @param i
+         *            the position
+         * @return true if position i is one of the hint's cells
+         */
+        private boolean contains(int h, int i) {
+            for (int other : hintsAt[i]) {
+                if (other == h) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+
+        /**
+         * Helper method counts a hint's positions after i.
+         *
+         * @param h
+         *            the hint
+         * @param i
+         *            the position
+         * @return number of the hint's positions greater than i
+         */
+        private int cellsAfter(int h, int i) {
+            int count = 0;
+            for (int position : hints[h]) {
+                if (position > i) {
+                    count++;
+                }
+            }
+
+            return count;
+        }
+
+
+        /**
+         * Work out the chance of a mine in each cell of the component, going
+         * backwards through the layers. For each state, bw[a] is the weight
+         * of all its completions given a mines before it.
+         *
+         * @param others
+         *            relative number of layouts of the other components, by
+         *            their total mine count
+         * @param weight
+         *            relative number of layouts of the interior cells, by
+         *            the total mine count of the frontier
+         */
+        void finish(double[] others, double[] weight) {
+            // g[k]: relative weight of one layout of this component with k
+            // mines, summed over everything else on the board.
+            double[] g = new double[counts.length];
+            for (int k = 0; k < g.length; k++) {
+                for (int t = 0; t < others.length && k + t < weight.length;
+                    t++) {
+                    g[k] += others[t] * weight[k + t];
+                }
+            }
+
+            int n = cells.length;
+            chance = new double[n];
+            Map<State, double[]> after = new HashMap<>();
+            after.put(layers.get(n).keySet().iterator().next(), g);
+            for (int i = n - 1; i >= 0; i--) {
+                Map<State, double[]> before = new HashMap<>();
+                State probe = new State(new long[words[i]]);
+                double mine = 0;
+                double total = 0;
+                for (Map.Entry<State, double[]> entry : layers.get(i)
+                    .entrySet()) {
+                    double[] f = entry.getValue();
+                    double[] bw = new double[f.length];
+                    for (int v = 0; v <= 1; v++) {
+                        double[] next = step(i, entry.getKey(), v, probe)
+                            ? after.get(probe) : null;
+                        if (next == null) {
+                            continue;
+                        }
+                        for (int a = 0; a < f.length; a++) {
+                            bw[a] += next[a + v];
+                        }
+                        if (v == 1) {
+                            for (int a = 0; a < f.length; a++) {
+                                mine += f[a] * next[a + 1];
+                            }
+                        }
+                    }
+                    for (int a = 0; a < f.length; a++) {
+                        total += f[a] * bw[a];
+                    }
+                    before.put(entry.getKey(), bw);
+                }
+                // Both sums use this layer's f and bw, so the layers can be
+                // scaled independently.
+                chance[i] = total == 0 ? 0 : mine / total;
+                rescale(before);
+                after = before;
+            }
+            layers = null;
+        }
+
+
+        /**
+         * Helper method scales the counts of a layer down if they are
+         * getting too big for a double. Only ratios within a layer are used,
+         * so this doesn't change the result.
+         *
+         * @param layer
+         *            state to counts by mines
+         */
+        private static void rescale(Map<State, double[]> layer) {
+            double max = 0;
+            for (double[] values : layer.values()) {
+                for (double value : values) {
+                    max = Math.max(max, value);
+                }
+            }
+            if (max < LARGE) {
+                return;
+            }
+
+            for (double[] values : layer.values()) {
+                for (int a = 0; a < values.length; a++) {
+                    values[a] /= max;
+                }
+            }
+        }
+    }
+
+
+    /**
+     * The remaining mines of each unfinished hint, RESIDUAL_BITS bits each,
+     * used as a hash key. A probe state is rewritten for each lookup; the
+     * states stored in a layer are copies and never change.
+     */
+    private static final class State {
+        /** The packed remaining mines */
+        private final long[] packed;
+        /** Cached hash code */
+        private int hash;
+
+
+        /**
+         * Create a state.
+         *
+         * @param packed
+         *            the packed remaining mines
+         */
+        State(long[] packed) {
+            this.packed = packed;
+            this.hash = Arrays.hashCode(packed);
+        }
+
+
+        /**
+         * Update the cached hash code after packed was rewritten.
+         */
+        void rehash() {
+            hash = Arrays.hashCode(packed);
+        }
+
+
+        /**
+         * Return a state with the same remaining mines that won't change
+         * when this one is rewritten.
+         *
+         * @return the copy
+         */
+        State copy() {
+            return new State(packed.clone());
+        }
+
+
+        /**
+         * Return the remaining mines in a slot.
+         *
+         * @param slot
+         *            index of the hint among the open hints
+         * @return its remaining mines
+         */
+        int get(int slot) {
+            return (int) (packed[slot / PER_WORD] >>> (slot % PER_WORD
+                * RESIDUAL_BITS)) & RESIDUAL_MASK;
+        }
+
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof State && Arrays.equals(packed,
+                ((State) other).packed);
+        }
+
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+}
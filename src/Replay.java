@@ -0,0 +1,347 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Replays a game recorded by a MoveJournal, to any move.
+ *
+ * The journal is read once, into two flat arrays of move types and cells.
+ * Seeking to a move starts from the nearest snapshot at or before it and
+ * plays the moves after that through a Game. Snapshots are taken every
+ * snapshotInterval moves, the first time a replay gets that far, and are
+ * kept as compact GameFile images, so seeking into a long game never
+ * replays more than snapshotInterval moves after the first time.
+ *
+ * A snapshot costs about as much as replaying one move for every
+ * CELLS_PER_MOVE cells of the board, so unless an interval is given it is
+ * set to that many moves (and at least MIN_SNAPSHOT_INTERVAL). Taking
+ * snapshots then at most halves the speed of a first replay.
+ *
+ * Running this class replays a journal and prints how fast it went:
+ * java Replay journal [move]
+ *
+ * @author Ben Wright
+ * @version 2026.10.18
+ */
+
+public class Replay {
+    /** Fewest moves between snapshots when the interval isn't given */
+    public static final int MIN_SNAPSHOT_INTERVAL = 4096;
+    /** Cells of the board per move between snapshots */
+    static final int CELLS_PER_MOVE = 8;
+    /** Size of the buffer the journal is read with */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** Type of each move (MoveJournal.REVEAL, FLAG or CHORD) */
+    private final byte[] types;
+    /** Flat cell index of each move */
+    private final int[] cells;
+    /** Number of moves in the journal */
+    private final int moveCount;
+    /** Number of moves between snapshots */
+    private final int snapshotInterval;
+    /** Saved game after i * snapshotInterval moves, for each i so far */
+    private final List<byte[]> snapshots = new ArrayList<>();
+
+
+    /**
+     * Read a journal.
+     *
+     * @param file
+     *            the journal file
+     * @throws IOException
+     *             if the file can't be read or isn't a journal
+     */
+    public Replay(Path file) throws IOException {
+        this(file, 0);
+    }
+
+
+    /**
+     * Read a journal.
+     *
+     * @param file
+     *            the journal file
+     * @param snapshotInterval
+     *            number of moves between snapshots, or 0 to set it from the
+     *            size of the board
+     * @throws IOException
+     *             if the file can't be read or isn't a journal
+     */
+    public Replay(Path file, int snapshotInterval) throws IOException {
+        if (snapshotInterval < 0) {
+            throw new IllegalArgumentException(
+                "snapshotInterval can't be negative");
+        }
+
+        try (InputStream in = Files.newInputStream(file)) {
+            DataInputStream data = new DataInputStream(in);
+            if (data.readInt() != MoveJournal.MAGIC) {
+                throw new IOException(file + " is not a move journal");
+            }
+            int version = data.readUnsignedByte();
+            if (version != MoveJournal.VERSION) {
+                throw new IOException(file + " has journal version "
+                    + version + ", expected " + MoveJournal.VERSION);
+            }
+            byte[] start = new byte[data.readInt()];
+            data.readFully(start);
+            snapshots.add(start);
+            this.snapshotInterval = snapshotInterval > 0 ? snapshotInterval
+                : (int) Math.max(MIN_SNAPSHOT_INTERVAL,
+                    Math.min(GameFile.cellCount(start) / CELLS_PER_MOVE,
+                        Integer.MAX_VALUE));
+
+            // Decode the moves a buffer at a time. A move cut off at the end
+            // of the file was never completely written, so it is dropped.
+            byte[] buffer = new byte[BUFFER_SIZE];
+            byte[] readTypes = new byte[1024];
+            int[] readCells = new int[1024];
+            int count = 0;
+            long entry = 0;
+            int shift = 0;
+            int length;
+            while ((length = in.read(buffer)) > 0) {
+                for (int i = 0; i < length; i++) {
+                    int b = buffer[i];
+                    entry |= (long) (b & 0x7F) << shift;
+                    if (b < 0) {
+                        shift += 7;
+                        if (shift > 35) {
+                            throw new IOException(file
+                                + " has a damaged move at move " + count);
+                        }
+                        continue;
+                    }
+
+                    if (count == readCells.length) {
+                        readTypes = Arrays.copyOf(readTypes, 2 * count);
+                        readCells = Arrays.copyOf(readCells, 2 * count);
+                    }
+                    readTypes[count] = (byte) (entry & 3);
+                    readCells[count] = (int) (entry >>> 2);
+                    count++;
+                    entry = 0;
+                    shift = 0;
+                }
+            }
+            types = readTypes;
+            cells = readCells;
+            moveCount = count;
+        }
+    }
+
+
+    /**
+     * Return the game as it is after a number of moves of the journal.
+     * Every call returns a new game, which can be played on.
+     *
+     * @param move
+     *            number of moves to play (0..getMoveCount())
+     * @return the game after that many moves
+     */
+    public Game seek(int move) {
+        if (move < 0 || move > moveCount) {
+            throw new IndexOutOfBoundsException("Move " + move
+                + " is outside a journal of " + moveCount + " moves");
+        }
+
+        int snapshot = Math.min(move / snapshotInterval,
+            snapshots.size() - 1);
+        Game game = load(snapshots.get(snapshot));
+        for (int i = snapshot * snapshotInterval; i < move; i++) {
+            apply(game, types[i], cells[i]);
+            if ((i + 1) % snapshotInterval == 0
+                && (i + 1) / snapshotInterval == snapshots.size()) {
+                snapshots.add(save(game));
+            }
+        }
+
+        return game;
+    }
+
+
+    /**
+     * Play one journal move on a game.
+     *
+     * @param game
+     *            the game
+     * @param type
+     *            MoveJournal.REVEAL, FLAG or CHORD
+     * @param cell
+     *            flat index (row * cols + col) of the cell
+     */
+    public static void apply(Game game, int type, int cell) {
+        int row = cell / game.getCols();
+        int col = cell % game.getCols();
+        switch (type) {
+            case MoveJournal.REVEAL:
+                game.reveal(row, col);
+                break;
+            case MoveJournal.FLAG:
+                game.flag(row, col);
+                break;
+            case MoveJournal.CHORD:
+                game.chord(row, col);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown move type "
+                    + type);
+        }
+    }
+
+
+    /**
+     * Helper method saves a game as a snapshot.
+     *
+     * @param game
+     *            the game
+     * @return the game, written by GameFile
+     */
+    private static byte[] save(Game game) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            GameFile.write(game, out);
+        }
+        catch (IOException e) {
+            // A ByteArrayOutputStream never throws IOException.
+            throw new UncheckedIOException(e);
+        }
+
+        return out.toByteArray();
+    }
+
+
+    /**
+     * Helper method loads a snapshot.
+     *
+     * @param snapshot
+     *            the game, written by GameFile
+     * @return a new game
+     */
+    private static Game load(byte[] snapshot) {
+        try {
+            return GameFile.read(new ByteArrayInputStream(snapshot));
+        }
+        catch (IOException e) {
+            // Snapshots are written by this class, so they can be read.
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    /**
+     * Return the number of moves in the journal.
+     *
+     * @return number of moves
+     */
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+
+    /**
+     * Return the type of a move.
+     *
+     * @param move
+     *            index of the move, from 0
+     * @return MoveJournal.REVEAL, FLAG or CHORD
+     */
+    public int getType(int move) {
+        checkMove(move);
+        return types[move];
+    }
+
+
+    /**
+     * Return the cell of a move.
+     *
+     * @param move
+     *            index of the move, from 0
+     * @return flat index (row * cols + col) of the cell
+     */
+    public int getCell(int move) {
+        checkMove(move);
+        return cells[move];
+    }
+
+
+    /**
+     * Helper method checks that a move is in the journal.
+     *
+     * @param move
+     *            index of the move, from 0
+     */
+    private void checkMove(int move) {
+        if (move < 0 || move >= moveCount) {
+            throw new IndexOutOfBoundsException("Move " + move
+                + " is outside a journal of " + moveCount + " moves");
+        }
+    }
+
+
+    /**
+     * Return the number of moves between snapshots.
+     *
+     * @return the snapshot interval
+     */
+    public int getSnapshotInterval() {
+        return snapshotInterval;
+    }
+
+
+    /**
+     * Return the number of snapshots taken so far, including the start of
+     * the journal.
+     *
+     * @return number of snapshots
+     */
+    public int getSnapshots() {
+        return snapshots.size();
+    }
+
+
+    /**
+     * Replay a journal to its end, then seek to a move, and print how long
+     * each took.
+     *
+     * @param args
+     *            the journal file, then optionally the move to seek to
+     *            (default half way)
+     * @throws IOException
+     *             if the journal can't be read
+     */
+    public static void main(String[] args) throws IOException {
+        long start = System.nanoTime();
+        Replay replay = new Replay(Paths.get(args[0]));
+        long read = System.nanoTime() - start;
+        int move = args.length > 1 ? Integer.parseInt(args[1])
+            : replay.getMoveCount() / 2;
+
+        start = System.nanoTime();
+        Game game = replay.seek(replay.getMoveCount());
+        long full = System.nanoTime() - start;
+        start = System.nanoTime();
+        replay.seek(move);
+        long seek = System.nanoTime() - start;
+
+        System.out.printf(Locale.ROOT, "%d moves read in %.1f ms%n",
+            replay.getMoveCount(), read / 1e6);
+        System.out.printf(Locale.ROOT,
+            "full replay: %.1f ms (%.0f moves/s), status %s%n", full / 1e6,
+            replay.getMoveCount() / (full / 1e9), game.getStatus());
+        System.out.printf(Locale.ROOT, "seek to move %d: %.2f ms%n", move,
+            seek / 1e6);
+    }
+
+}
@@ -0,0 +1,411 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A board that several players reveal at once, from different threads, for
+ * cooperative games on one big board.
+ *
+ * The cells use the same bytes as PackedBoard. A cell is exposed by a
+ * compare-and-set of its byte from hidden to exposed, so when flood fills
+ * from different players run into each other every cell is still exposed
+ * exactly once: by the fill that wins the compare-and-set, which is then
+ * the only one to spread from it if it is a zero.
+ *
+ * Each reveal that exposes anything is published as an Event holding the
+ * cells it exposed. Events are numbered from 1 in the order they are
+ * published, and publishing also takes the exposed cells off the count of
+ * hidden safe cells and decides whether the game is won or lost, so the
+ * status of each event is the status after every event up to it. Every
+ * exposed cell is in exactly one event. Only publishing is serialized;
+ * the fills themselves run in parallel.
+ *
+ * @author Ben Wright
+ * @version 2026.10.18
+ */
+
+public class SharedBoard {
+    /** Atomic access to the bytes of cells */
+    private static final VarHandle CELL = MethodHandles
+        .arrayElementVarHandle(byte[].class);
+
+    /**
+     * A reveal that exposed cells.
+     */
+    public static class Event {
+        /** Position of the event in the stream, from 1 */
+        private final long sequence;
+        /** The player who made the reveal */
+        private final int player;
+        /** Flat indices of the cells the reveal exposed */
+        private final int[] cells;
+        /** Status of the game after this event */
+        private final Game.Status status;
+
+
+        /**
+         * Create an event.
+         *
+         * @param sequence
+         *            position of the event in the stream
+         * @param player
+         *            the player who made the reveal
+         * @param cells
+         *            flat indices of the cells the reveal exposed
+         * @param status
+         *            status of the game after this event
+         */
+        Event(long sequence, int player, int[] cells, Game.Status status) {
+            this.sequence = sequence;
+            this.player = player;
+            this.cells = cells;
+            this.status = status;
+        }
+
+
+        /**
+         * Return the position of the event in the stream. The first event
+         * is 1, and each event is one more than the one before.
+         *
+         * @return the sequence number
+         */
+        public long getSequence() {
+            return sequence;
+        }
+
+
+        /**
+         * Return the player who made the reveal.
+         *
+         * @return the player, as passed to reveal
+         */
+        public int getPlayer() {
+            return player;
+        }
+
+
+        /**
+         * Return the cells the reveal exposed, in the order they were
+         * exposed.
+         *
+         * @return flat indices (row * cols + col) of the cells
+         */
+        public int[] getCells() {
+            return cells;
+        }
+
+
+        /**
+         * Return the status of the game after this event.
+         *
+         * @return PLAYING, or WON or LOST if this event ended the game or
+         *         came after it ended
+         */
+        public Game.Status getStatus() {
+            return status;
+        }
+    }
+
+    /** Number of rows in the board */
+    private final int rows;
+    /** Number of columns in the board */
+    private final int cols;
+    /** One byte per cell, laid out as in PackedBoard */
+    private final byte[] cells;
+    /** Number of mines on the board */
+    private final int mineCount;
+    /** Every event so far, in sequence; also the lock for publishing */
+    private final List<Event> events = new ArrayList<>();
+    /** Number of safe cells not exposed by a published event */
+    private volatile int hiddenSafeCells;
+    /** Status after the last published event */
+    private volatile Game.Status status;
+
+
+    /**
+     * Create a shared board with the mines, and any exposed and flagged
+     * cells, of a board. The board is copied, so changing it afterwards
+     * doesn't change this one.
+     *
+     * @param board
+     *            the board to share
+     */
+    public SharedBoard(PackedBoard board) {
+        this.rows = board.getRows();
+        this.cols = board.getCols();
+        this.cells = board.cells().clone();
+        this.mineCount = board.getMineCount();
+        this.hiddenSafeCells = board.getHiddenSafeCells();
+        this.status = board.lost() ? Game.Status.LOST
+            : board.won() ? Game.Status.WON : Game.Status.PLAYING;
+    }
+
+
+    /**
+     * Reveal a cell for a player, and the opening around it if it is a
+     * zero. Flagged cells are never revealed, directly or by the fill.
+     * Nothing happens once the game is over. Safe to call from any thread.
+     *
+     * @param player
+     *            the player making the reveal, recorded in the event
+     * @param row
+     *            cell row
+     * @param col
+     *            cell column
+     * @return the number of cells this call exposed
+     */
+    public int reveal(int player, int row, int col) {
+        int start = index(row, col);
+        if (status != Game.Status.PLAYING || !claim(start)) {
+            return 0;
+        }
+
+        int[] queue = new int[16];
+        queue[0] = start;
+        int size = 1;
+        boolean mine = (cells[start] & PackedBoard.VALUE_MASK)
+            == PackedBoard.MINE;
+        for (int head = 0; head < size && !mine; head++) {
+            int cell = queue[head];
+            if ((cells[cell] & PackedBoard.VALUE_MASK) != 0) {
+                continue;
+            }
+
+            int r = cell / cols;
+            int c = cell % cols;
+            int lastRow = Math.min(r + 1, rows - 1);
+            int lastCol = Math.min(c + 1, cols - 1);
+            for (int nr = Math.max(r - 1, 0); nr <= lastRow; nr++) {
+                for (int nc = Math.max(c - 1, 0); nc <= lastCol; nc++) {
+                    int neighbor = nr * cols + nc;
+                    if (claim(neighbor)) {
+                        if (size == queue.length) {
+                            queue = Arrays.copyOf(queue, 2 * size);
+                        }
+                        queue[size++] = neighbor;
+                    }
+                }
+            }
+        }
+
+        publish(player, Arrays.copyOf(queue, size), mine);
+        return size;
+    }
+
+
+    /**
+     * Helper method exposes a cell if it is hidden and not flagged.
+     *
+     * @param i
+     *            flat index of the cell
+     * @return true if this call exposed the cell, false if it was already
+     *         exposed or is flagged
+     */
+    private boolean claim(int i) {
+        byte cell = (byte) CELL.getVolatile(cells, i);
+        while ((cell & (PackedBoard.EXPOSED | PackedBoard.FLAGGED)) == 0) {
+            if (CELL.compareAndSet(cells, i, cell,
+                (byte) (cell | PackedBoard.EXPOSED))) {
+                return true;
+            }
+            cell = (byte) CELL.getVolatile(cells, i);
+        }
+
+        return false;
+    }
+
+
+    /**
+     * Helper method adds an event for cells that a reveal exposed, and
+     * updates the count of hidden safe cells and the status with them.
+     *
+     * @param player
+     *            the player who made the reveal
+     * @param exposed
+     *            flat indices of the cells the reveal exposed
+     * @param mine
+     *            true if the reveal exposed a mine
+     */
+    private void publish(int player, int[] exposed, boolean mine) {
+        synchronized (events) {
+            int remaining = hiddenSafeCells - (mine ? 0 : exposed.length);
+            hiddenSafeCells = remaining;
+            if (status == Game.Status.PLAYING) {
+                status = mine ? Game.Status.LOST
+                    : remaining == 0 ? Game.Status.WON : Game.Status.PLAYING;
+            }
+            events.add(new Event(events.size() + 1, player, exposed,
+                status));
+        }
+    }
+
+
+    /**
+     * Flag or unflag a hidden cell. Exposed cells can't be flagged, and
+     * nothing changes once the game is over. Safe to call from any thread.
+     *
+     * @param row
+     *            cell row
+     * @param col
+     *            cell column
+     * @param flagged
+     *            true to place a flag, false to remove it
+     * @return true if the cell changed
+     */
+    public boolean setFlagged(int row, int col, boolean flagged) {
+        int i = index(row, col);
+        if (status != Game.Status.PLAYING) {
+            return false;
+        }
+
+        byte cell = (byte) CELL.getVolatile(cells, i);
+        while ((cell & PackedBoard.EXPOSED) == 0
+            && ((cell & PackedBoard.FLAGGED) != 0) != flagged) {
+            if (CELL.compareAndSet(cells, i, cell,
+                (byte) (cell ^ PackedBoard.FLAGGED))) {
+                return true;
+            }
+            cell = (byte) CELL.getVolatile(cells, i);
+        }
+
+        return false;
+    }
+
+
+    /**
+     * Return the events published after a sequence number, e.g. the last
+     * one a player has seen.
+     *
+     * @param sequence
+     *            0 for every event, otherwise the sequence number of the
+     *            last event already seen
+     * @return the events after it, in sequence
+     */
+    public List<Event> eventsSince(long sequence) {
+        synchronized (events) {
+            int from = (int) Math.max(0, Math.min(sequence, events.size()));
+            return new ArrayList<>(events.subList(from, events.size()));
+        }
+    }
+
+
+    /**
+     * Return the sequence number of the last event published.
+     *
+     * @return the last sequence number, or 0 if there are no events
+     */
+    public long getLastSequence() {
+        synchronized (events) {
+            return events.size();
+        }
+    }
+
+
+    /**
+     * Return what a player can see of a cell, like Game.getVisibleValue.
+     *
+     * @param row
+     *            cell row
+     * @param col
+     *            cell column
+     * @return Game.HIDDEN or Game.FLAG for hidden cells, otherwise the
+     *         cell's value (-1 for a mine, 0..8 for a hint)
+     */
+    public int getVisibleValue(int row, int col) {
+        byte cell = (byte) CELL.getVolatile(cells, index(row, col));
+        if ((cell & PackedBoard.EXPOSED) != 0) {
+            return PackedBoard.valueOf(cell);
+        }
+
+        return (cell & PackedBoard.FLAGGED) != 0 ? Game.FLAG : Game.HIDDEN;
+    }
+
+
+    /**
+     * Return true if the cell has been exposed. A cell can be exposed
+     * shortly before the event holding it is published.
+     *
+     * @param row
+     *            cell row
+     * @param col
+     *            cell column
+     * @return true if the cell is exposed
+     */
+    public boolean isExposed(int row, int col) {
+        return ((byte) CELL.getVolatile(cells, index(row, col))
+            & PackedBoard.EXPOSED) != 0;
+    }
+
+
+    /**
+     * Return the flat index of a cell.
+     *
+     * @param row
+     *            cell row
+     * @param col
+     *            cell column
+     * @return row * cols + col
+     */
+    public int index(int row, int col) {
+        if (row < 0 || row >= rows || col < 0 || col >= cols) {
+            throw new IndexOutOfBoundsException(
+                "Cell (" + row + ", " + col + ") is outside a " + rows + " x "
+                    + cols + " board");
+        }
+
+        return row * cols + col;
+    }
+
+
+    /**
+     * Return the status of the game after the last published event.
+     *
+     * @return PLAYING, WON or LOST
+     */
+    public Game.Status getStatus() {
+        return status;
+    }
+
+
+    /**
+     * Return the number of safe cells not exposed by a published event.
+     *
+     * @return number of hidden non-mine cells
+     */
+    public int getHiddenSafeCells() {
+        return hiddenSafeCells;
+    }
+
+
+    /**
+     * Return the number of rows in the board.
+     *
+     * @return number of rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+
+    /**
+     * Return the number of columns in the board.
+     *
+     * @return number of columns
+     */
+    public int getCols() {
+        return cols;
+    }
+
+
+    /**
+     * Return the number of mines on the board.
+     *
+     * @return number of mines
+     */
+    public int getMineCount() {
+        return mineCount;
+    }
+
+}
@@ -0,0 +1,771 @@
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Plays games of MineField using only what a player can see: the exposed
+ * hints and the number of mines on the board.
+ *
+ * Each turn the solver first deduces what it can:
+ * <ul>
+ *      <li> single-cell rule: if a hint already touches as many known mines
+ *           as its value, its other hidden neighbors are safe; if it has
+ *           exactly as many hidden neighbors as mines left, they are all
+ *           mines </li>
+ *      <li> subset rule: if the hidden neighbors of hint A are all neighbors
+ *           of hint B, then B's other hidden neighbors hold the difference
+ *           of their mine counts, which can make them all safe or all
+ *           mines </li>
+ *      <li> mine count: once every mine is found the rest is safe, and if
+ *           the hidden cells are all mines they are marked as such </li>
+ * </ul>
+ * When none of these help, it asks a ProbabilityEngine for the chance of a
+ * mine in every hidden cell. Cells with no chance at all (which the rules
+ * above can miss) are revealed without counting as a guess; otherwise it
+ * guesses the cell least likely to be a mine, preferring cells with fewer
+ * neighbors when chances are equal. The engine costs far more than the
+ * rules (on expert boards it is most of the time spent per game), so
+ * setExactGuesses(false) swaps it for a local estimate: the worst chance
+ * any neighboring hint gives the cell, or the density of the remaining
+ * mines for cells away from the hints. That plays several times as many
+ * games per second and wins fewer of them.
+ *
+ * The solver keeps running counts for each exposed hint (hidden neighbors,
+ * mines still to find) and lists of the hints whose counts changed, so a
+ * game costs roughly one pass over the board rather than one per move: the
+ * single-cell rule only looks at changed hints, and the subset rule only at
+ * pairs with a hint that changed since it last ran. A
+ * Solver can be reused for many games; its arrays are only reallocated when
+ * the board size changes.
+ *
+ * Running this class plays many first-click-safe games and reports games
+ * per second and the win rate: java Solver [games] [rows cols mines] [local]
+ *
+ * @author Ben Wright
+ * @version 2026.10.18
+ */
+
+public class Solver {
+    /** Value in the value array for a cell that is still hidden */
+    private static final int HIDDEN = Game.HIDDEN;
+    /** Chances closer than this are treated as equal when guessing */
+    private static final double TIE = 1e-9;
+    /** What bound returns for a hint with no unknown neighbors */
+    private static final int EMPTY_BOX = -1;
+    /** Box of a hint whose unknown neighbors changed since bound ran */
+    private static final int STALE = -2;
+
+    /** Works out the chance of a mine in each cell for guesses */
+    private final ProbabilityEngine engine;
+    /** False to guess with the local estimate instead of the engine */
+    private boolean exactGuesses = true;
+
+    /** Number of rows of the boards the arrays are sized for */
+    private int rows;
+    /** Number of columns of the boards the arrays are sized for */
+    private int cols;
+    /** Up to 8 neighbors per cell, at [cell * 8, cell * 8 + neighborCount) */
+    private int[] neighbors = new int[0];
+    /** Number of neighbors of each cell */
+    private int[] neighborCount = new int[0];
+    /** Row of each cell */
+    private int[] rowOf = new int[0];
+    /** Column of each cell */
+    private int[] colOf = new int[0];
+
+    /** The game being played */
+    private Game game;
+    /** Visible value of each cell: HIDDEN, or 0..8 once exposed */
+    private int[] value;
+    /** True for hidden cells that have been deduced to be mines */
+    private boolean[] mine;
+    /** For exposed cells: hidden neighbors not known to be mines */
+    private int[] unknown;
+    /** For exposed cells: hint minus the neighbors known to be mines */
+    private int[] minesLeft;
+    /** For exposed cells: bound of the unknown neighbors, or STALE */
+    private int[] box;
+    /** Worst chance of a mine any hint gives each cell, for guessLocally */
+    private double[] estimate;
+    /** Exposed cells whose counts changed and should be checked again */
+    private int[] work;
+    /** Number of cells in work */
+    private int workSize;
+    /** True for cells that are in work */
+    private boolean[] queued;
+    /** Exposed cells whose counts changed since the last subset pass */
+    private int[] changed;
+    /** Number of cells in changed */
+    private int changedSize;
+    /** True for cells that are in changed */
+    private boolean[] changedQueued;
+    /** Cells deduced to be safe, to be revealed next */
+    private int[] safe;
+    /** Number of cells in safe */
+    private int safeSize;
+    /** True for cells that are in safe */
+    private boolean[] safeQueued;
+    /** Hidden cells that aren't known to be mines */
+    private int unknownCells;
+    /** Number of cells deduced to be mines */
+    private int minesFound;
+    /** Number of guesses made in the current game */
+    private int guesses;
+
+
+    /**
+     * Create a solver with a default ProbabilityEngine.
+     */
+    public Solver() {
+        this(new ProbabilityEngine());
+    }
+
+
+    /**
+     * Create a solver that guesses using the given engine, e.g. one with a
+     * different cutoff for sampling.
+     *
+     * @param engine
+     *            works out the chance of a mine in each cell
+     */
+    public Solver(ProbabilityEngine engine) {
+        this.engine = engine;
+    }
+
+
+    /**
+     * Choose how guesses are made: with the ProbabilityEngine (the default)
+     * or with a cheap local estimate from the neighboring hints.
+     *
+     * @param exact
+     *            true to guess with the engine, false for the estimate
+     */
+    public void setExactGuesses(boolean exact) {
+        this.exactGuesses = exact;
+    }
+
+
+    /**
+     * Play a game until it is won or lost.
+     *
+     * @param game
+     *            a game that hasn't been played yet
+     * @return the status the game ended with
+     */
+    public Game.Status play(Game game) {
+        // Corners have the fewest neighbors, so they are the most likely
+        // cells to open up an area.
+        return run(game, 0, true);
+    }
+
+
+    /**
+     * Play a game from the given first move using the rules alone, stopping
+     * instead of guessing. Used to check that a board can be solved without
+     * guessing.
+     *
+     * @param game
+     *            a game that hasn't been played yet
+     * @param row
+     *            row of the first move
+     * @param col
+     *            column of the first move
+     * @return true if the game was won without a guess after the first move
+     */
+    public boolean solveWithoutGuessing(Game game, int row, int col) {
+        return run(game, row * game.getCols() + col, false)
+            == Game.Status.WON;
+    }
+
+
+    /**
+     * Helper method plays a game from a first move.
+     *
+     * @param newGame
+     *            a game that hasn't been played yet
+     * @param first
+     *            flat index of the first move
+     * @param guessing
+     *            false to stop when the rules find nothing to reveal
+     * @return the status of the game when play stopped
+     */
+    private Game.Status run(Game newGame, int first, boolean guessing) {
+        start(newGame);
+
+        safe[safeSize++] = first;
+        while (game.getStatus() == Game.Status.PLAYING) {
+            if (safeSize == 0) {
+                drain();
+            }
+            if (safeSize == 0 && (subsets() || countRule())) {
+                continue;
+            }
+            if (safeSize == 0) {
+                if (!guessing) {
+                    break;
+                }
+                guess();
+            }
+            revealSafe();
+        }
+
+        return game.getStatus();
+    }
+
+
+    /**
+     * Return the number of guesses made in the last game played.
+     *
+     * @return number of guesses, including the first move
+     */
+    public int getGuesses() {
+        return guesses;
+    }
+
+
+    /**
+     * Helper method sets up the arrays for a new game.
+     *
+     * @param newGame
+     *            the game to play
+     */
+    private void start(Game newGame) {
+        game = newGame;
+        if (game.getRows() != rows || game.getCols() != cols
+            || value == null) {
+            rows = game.getRows();
+            cols = game.getCols();
+            buildNeighbors();
+            int cells = rows * cols;
+            value = new int[cells];
+            mine = new boolean[cells];
+            unknown = new int[cells];
+            minesLeft = new int[cells];
+            work = new int[cells];
+            queued = new boolean[cells];
+            changed = new int[cells];
+            changedQueued = new boolean[cells];
+            safe = new int[cells];
+            safeQueued = new boolean[cells];
+            box = new int[cells];
+            estimate = new double[cells];
+        }
+        Arrays.fill(value, HIDDEN);
+        Arrays.fill(mine, false);
+        Arrays.fill(queued, false);
+        Arrays.fill(changedQueued, false);
+        Arrays.fill(safeQueued, false);
+        workSize = 0;
+        changedSize = 0;
+        safeSize = 0;
+        unknownCells = rows * cols;
+        minesFound = 0;
+        guesses = 1;
+    }
+
+
+    /**
+     * Helper method fills in the neighbor table for the current board size.
+     */
+    private void buildNeighbors() {
+        int cells = rows * cols;
+        neighbors = new int[cells * 8];
+        neighborCount = new int[cells];
+        rowOf = new int[cells];
+        colOf = new int[cells];
+        for (int cell = 0; cell < cells; cell++) {
+            int r = cell / cols;
+            int c = cell % cols;
+            rowOf[cell] = r;
+            colOf[cell] = c;
+            int count = 0;
+            for (int nr = Math.max(r - 1, 0); nr <= Math.min(r + 1, rows - 1);
+                nr++) {
+                for (int nc = Math.max(c - 1, 0); nc <= Math.min(c + 1,
+                    cols - 1); nc++) {
+                    if (nr != r || nc != c) {
+                        neighbors[cell * 8 + count++] = nr * cols + nc;
+                    }
+                }
+            }
+            neighborCount[cell] = count;
+        }
+    }
+
+
+    /**
+     * Helper method reveals every cell in the safe list and takes in what
+     * was exposed.
+     */
+    private void revealSafe() {
+        Game.BatchResult result = game.revealAll(safe, safeSize);
+        for (int i = 0; i < safeSize; i++) {
+            safeQueued[safe[i]] = false;
+        }
+        safeSize = 0;
+
+        for (int cell : result.getExposedCells()) {
+            exposed(cell);
+        }
+    }
+
+
+    /**
+     * Helper method records a newly exposed cell: sets up its counts and
+     * updates the counts of its exposed neighbors.
+     *
+     * @param cell
+     *            the cell that was exposed
+     */
+    private void exposed(int cell) {
+        int hint = game.getVisibleValue(cell);
+        value[cell] = hint;
+        unknownCells--;
+        if (hint < 0) {
+            // A mine; the game is over.
+            return;
+        }
+
+        int hidden = 0;
+        int left = hint;
+        int end = cell * 8 + neighborCount[cell];
+        for (int i = cell * 8; i < end; i++) {
+            int n = neighbors[i];
+            if (value[n] == HIDDEN) {
+                if (mine[n]) {
+                    left--;
+                }
+                else {
+                    hidden++;
+                }
+            }
+            else {
+                unknown[n]--;
+                push(n);
+            }
+        }
+        unknown[cell] = hidden;
+        minesLeft[cell] = left;
+        push(cell);
+    }
+
+
+    /**
+     * Helper method records that a hidden cell must be a mine.
+     *
+     * @param cell
+     *            the cell
+     */
+    private void markMine(int cell) {
+        mine[cell] = true;
+        minesFound++;
+        unknownCells--;
+        int end = cell * 8 + neighborCount[cell];
+        for (int i = cell * 8; i < end; i++) {
+            int n = neighbors[i];
+            if (value[n] != HIDDEN) {
+                unknown[n]--;
+                minesLeft[n]--;
+                push(n);
+            }
+        }
+    }
+
+
+    /**
+     * Helper method adds a hidden cell to the safe list, unless it is there
+     * already.
+     *
+     * @param cell
+     *            the cell
+     */
+    private void markSafe(int cell) {
+        if (!safeQueued[cell]) {
+            safeQueued[cell] = true;
+            safe[safeSize++] = cell;
+        }
+    }
+
+
+    /**
+     * Helper method adds an exposed cell to the work list and the changed
+     * list, unless it is there already. Its counts changed, so its box is
+     * worked out again when next needed.
+     *
+     * @param cell
+     *            the cell
+     */
+    private void push(int cell) {
+        box[cell] = STALE;
+        if (!queued[cell]) {
+            queued[cell] = true;
+            work[workSize++] = cell;
+        }
+        if (!changedQueued[cell]) {
+            changedQueued[cell] = true;
+            changed[changedSize++] = cell;
+        }
+    }
+
+
+    /**
+     * Helper method applies the single-cell rule to every cell in the work
+     * list, until the list is empty.
+     */
+    private void drain() {
+        while (workSize > 0) {
+            int cell = work[--workSize];
+            queued[cell] = false;
+            if (unknown[cell] == 0) {
+                continue;
+            }
+
+            boolean allSafe = minesLeft[cell] == 0;
+            boolean allMines = minesLeft[cell] == unknown[cell];
+            if (!allSafe && !allMines) {
+                continue;
+            }
+
+            int end = cell * 8 + neighborCount[cell];
+            for (int i = cell * 8; i < end; i++) {
+                int n = neighbors[i];
+                if (value[n] != HIDDEN || mine[n]) {
+                    continue;
+                }
+                if (allSafe) {
+                    markSafe(n);
+                }
+                else {
+                    markMine(n);
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Helper method applies the subset rule to each pair of nearby hints in
+     * which at least one hint changed since the last pass. Pairs of hints
+     * that are both unchanged were already checked and found nothing.
+     *
+     * @return true if it found any safe cells or mines
+     */
+    private boolean subsets() {
+        boolean found = false;
+        // Cells marked below are pushed again, after count; they are kept
+        // for the next pass.
+        int count = changedSize;
+        for (int i = 0; i < count; i++) {
+            int a = changed[i];
+            changedQueued[a] = false;
+            if (unknown[a] == 0) {
+                continue;
+            }
+
+            int ar = rowOf[a];
+            int ac = colOf[a];
+            int aBox = bound(a);
+            for (int br = Math.max(ar - 2, 0); br <= Math.min(ar + 2, rows - 1);
+                br++) {
+                for (int bc = Math.max(ac - 2, 0); bc <= Math.min(ac + 2,
+                    cols - 1); bc++) {
+                    int b = br * cols + bc;
+                    if (b == a || value[b] < 0 || unknown[b] == 0) {
+                        continue;
+                    }
+                    boolean marked = false;
+                    if (unknown[b] > unknown[a]) {
+                        marked = inside(aBox, a, b) && applySubset(a, b);
+                    }
+                    else if (unknown[a] > unknown[b]) {
+                        marked = inside(bound(b), b, a) && applySubset(b, a);
+                    }
+                    if (marked) {
+                        found = true;
+                        aBox = bound(a);
+                    }
+                }
+            }
+        }
+        System.arraycopy(changed, count, changed, 0, changedSize - count);
+        changedSize -= count;
+
+        return found;
+    }
+
+
+    /**
+     * Helper method finds the rows and columns spanned by a hint's unknown
+     * neighbors. Hints are exposed, so a's unknown neighbors are a subset
+     * of b's exactly when they all lie in the 3x3 square around b; with the
+     * box, that is one check per pair rather than a walk over a's
+     * neighbors. The box is kept until the hint is pushed again.
+     *
+     * @param a
+     *            an exposed cell
+     * @return the first and last row and column of a's unknown neighbors,
+     *         as offsets 0..2 from the row and column above and left of a,
+     *         2 bits each; or EMPTY_BOX if it has none
+     */
+    private int bound(int a) {
+        if (box[a] != STALE) {
+            return box[a];
+        }
+
+        int top = 2;
+        int bottom = 0;
+        int left = 2;
+        int right = 0;
+        int r = rowOf[a] - 1;
+        int c = colOf[a] - 1;
+        int end = a * 8 + neighborCount[a];
+        for (int i = a * 8; i < end; i++) {
+            int n = neighbors[i];
+            if (value[n] != HIDDEN || mine[n]) {
+                continue;
+            }
+            top = Math.min(top, rowOf[n] - r);
+            bottom = Math.max(bottom, rowOf[n] - r);
+            left = Math.min(left, colOf[n] - c);
+            right = Math.max(right, colOf[n] - c);
+        }
+        box[a] = unknown[a] == 0 ? EMPTY_BOX
+            : top << 6 | bottom << 4 | left << 2 | right;
+        return box[a];
+    }
+
+
+    /**
+     * Helper method checks whether a box from bound lies in the 3x3 square
+     * around a cell.
+     *
+     * @param bounds
+     *            the box of a's unknown neighbors
+     * @param a
+     *            the cell the box was found for
+     * @param b
+     *            the cell to check against
+     * @return true if every cell in the box neighbors b
+     */
+    private boolean inside(int bounds, int a, int b) {
+        if (bounds == EMPTY_BOX) {
+            return true;
+        }
+
+        // Offsets from b's square: a's square starts rowOf[a] - rowOf[b]
+        // rows lower.
+        int dr = rowOf[a] - rowOf[b];
+        int dc = colOf[a] - colOf[b];
+        return (bounds >> 6) + dr >= 0 && (bounds >> 4 & 3) + dr <= 2
+            && (bounds >> 2 & 3) + dc >= 0 && (bounds & 3) + dc <= 2;
+    }
+
+
+    /**
+     * Helper method uses the fact that a's unknown neighbors are a subset of
+     * b's to mark b's other unknown neighbors as all safe or all mines.
+     *
+     * @param a
+     *            the hint with fewer unknown neighbors
+     * @param b
+     *            the hint with more unknown neighbors
+     * @return true if any cells were marked
+     */
+    private boolean applySubset(int a, int b) {
+        int extraCells = unknown[b] - unknown[a];
+        int extraMines = minesLeft[b] - minesLeft[a];
+        boolean allSafe = extraMines == 0;
+        boolean allMines = extraMines == extraCells;
+        if (!allSafe && !allMines) {
+            return false;
+        }
+
+        int ar = rowOf[a];
+        int ac = colOf[a];
+        boolean marked = false;
+        int end = b * 8 + neighborCount[b];
+        for (int i = b * 8; i < end; i++) {
+            int n = neighbors[i];
+            if (value[n] != HIDDEN || mine[n]) {
+                continue;
+            }
+            // Skip the cells b shares with a.
+            if (Math.abs(rowOf[n] - ar) <= 1 && Math.abs(colOf[n] - ac) <= 1
+                && n != a) {
+                continue;
+            }
+            if (allSafe) {
+                if (!safeQueued[n]) {
+                    markSafe(n);
+                    marked = true;
+                }
+            }
+            else {
+                markMine(n);
+                marked = true;
+            }
+        }
+
+        return marked;
+    }
+
+
+    /**
+     * Helper method uses the total number of mines: if they have all been
+     * found, every other hidden cell is safe, and if the unknown cells are
+     * all mines they are marked.
+     *
+     * @return true if any cells were marked
+     */
+    private boolean countRule() {
+        int minesLeftOnBoard = game.getMines() - minesFound;
+        if (unknownCells == 0
+            || (minesLeftOnBoard != 0 && minesLeftOnBoard != unknownCells)) {
+            return false;
+        }
+
+        for (int cell = 0; cell < value.length; cell++) {
+            if (value[cell] == HIDDEN && !mine[cell]) {
+                if (minesLeftOnBoard == 0) {
+                    markSafe(cell);
+                }
+                else {
+                    markMine(cell);
+                }
+            }
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Helper method adds the cells that can't be mines to the safe list, or
+     * if there are none, the cell least likely to be a mine.
+     */
+    private void guess() {
+        if (!exactGuesses) {
+            guessLocally();
+            return;
+        }
+
+        double[] chance = engine.probabilities(rows, cols, value, mine,
+            game.getMines());
+        int best = -1;
+        for (int cell = 0; cell < value.length; cell++) {
+            if (value[cell] != HIDDEN || mine[cell]) {
+                continue;
+            }
+            if (chance[cell] == 0 && engine.wasExact()) {
+                markSafe(cell);
+            }
+            if (best < 0 || chance[cell] < chance[best] - TIE
+                || (chance[cell] < chance[best] + TIE
+                    && neighborCount[cell] < neighborCount[best])) {
+                best = cell;
+            }
+        }
+
+        if (safeSize == 0) {
+            guesses++;
+            markSafe(best);
+        }
+    }
+
+
+    /**
+     * Helper method adds the cell that looks least likely to be a mine to
+     * the safe list, judging each cell only by its neighboring hints.
+     */
+    private void guessLocally() {
+        // Spread each hint's chance to its unknown neighbors; cells no hint
+        // reaches keep -1.
+        Arrays.fill(estimate, -1);
+        for (int hint = 0; hint < value.length; hint++) {
+            if (value[hint] < 0 || unknown[hint] == 0) {
+                continue;
+            }
+
+            double local = (double) minesLeft[hint] / unknown[hint];
+            int end = hint * 8 + neighborCount[hint];
+            for (int i = hint * 8; i < end; i++) {
+                int n = neighbors[i];
+                if (value[n] == HIDDEN && !mine[n]) {
+                    estimate[n] = Math.max(estimate[n], local);
+                }
+            }
+        }
+
+        double density = (double) (game.getMines() - minesFound)
+            / unknownCells;
+        int best = -1;
+        double bestChance = 0;
+        for (int cell = 0; cell < value.length; cell++) {
+            if (value[cell] != HIDDEN || mine[cell]) {
+                continue;
+            }
+
+            double chance = estimate[cell] < 0 ? density : estimate[cell];
+            if (best < 0 || chance < bestChance - TIE
+                || (chance < bestChance + TIE
+                    && neighborCount[cell] < neighborCount[best])) {
+                best = cell;
+                bestChance = chance;
+            }
+        }
+
+        guesses++;
+        markSafe(best);
+    }
+
+
+    /**
+     * Play many games and print games per second and the win rate.
+     *
+     * @param args
+     *            optional number of games (default 100000), then optional
+     *            rows, columns and mines (default expert: 16 30 99), then
+     *            "local" to guess without the ProbabilityEngine
+     */
+    public static void main(String[] args) {
+        boolean local = args.length > 0
+            && args[args.length - 1].equals("local");
+        if (local) {
+            args = Arrays.copyOf(args, args.length - 1);
+        }
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int rows = args.length > 3 ? Integer.parseInt(args[1]) : 16;
+        int cols = args.length > 3 ? Integer.parseInt(args[2]) : 30;
+        int mines = args.length > 3 ? Integer.parseInt(args[3]) : 99;
+
+        Solver solver = new Solver();
+        solver.setExactGuesses(!local);
+        // Warm up the JIT before timing.
+        for (int seed = 0; seed < Math.min(games, 10_000); seed++) {
+            solver.play(Game.firstClickSafe(rows, cols, mines, -1 - seed,
+                true));
+        }
+
+        int wins = 0;
+        long totalGuesses = 0;
+        long start = System.nanoTime();
+        for (int seed = 0; seed < games; seed++) {
+            if (solver.play(Game.firstClickSafe(rows, cols, mines, seed,
+                true)) == Game.Status.WON) {
+                wins++;
+            }
+            totalGuesses += solver.getGuesses();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf(Locale.ROOT,
+            "%d games of %dx%d with %d mines in %.2f s%n", games, rows, cols,
+            mines, seconds);
+        System.out.printf(Locale.ROOT, "games/second: %.0f%n",
+            games / seconds);
+        System.out.printf(Locale.ROOT, "win rate: %.2f%%%n",
+            100.0 * wins / games);
+        System.out.printf(Locale.ROOT, "guesses/game: %.2f%n",
+            (double) totalGuesses / games);
+    }
+
+}
@@ -0,0 +1,82 @@
+import static org.junit.Assert.assertEquals;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import org.junit.Test;
+
+public class BoardRendererTest
+{
+    private static final String NL = System.lineSeparator();
+
+
+    @Test
+    public void testShowBoard()
+    {
+        int[][] field = { { 0, 1, -1 }, { 0, 1, 1 } };
+        boolean[][] exposed = { { true, true, true }, { false, true, false } };
+        String expected = "          1    -1 " + NL
+            + "    *     1     * " + NL;
+        assertEquals(expected, BoardRenderer.showBoard(field, exposed));
+        assertEquals(expected, MineField.showBoard(field, exposed));
+    }
+
+
+    @Test
+    public void testFieldToString()
+    {
+        int[][] field = { { 0, 1, -1 }, { 8, 1, 1 } };
+        String expected = "  0   1  -1 " + NL + "  8   1   1 " + NL;
+        assertEquals(expected, BoardRenderer.fieldToString(field));
+        assertEquals(expected, MineField.fieldToString(field));
+    }
+
+
+    @Test
+    public void testStreams() throws IOException
+    {
+        for (int i = 0; i < 20; i++)
+        {
+            int[][] field = MineField.createMineField(9, 11, 20);
+            boolean[][] exposed = MineField.setUpExposed(9, 11);
+            MineField.exposeCell(i % 9, i % 11, field, exposed);
+
+            StringWriter writer = new StringWriter();
+            BoardRenderer.writeBoard(writer, field, exposed);
+            assertEquals(
+                BoardRenderer.showBoard(field, exposed),
+                writer.toString());
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            BoardRenderer.writeBoardAscii(bytes, field, exposed);
+            assertEquals(
+                BoardRenderer.showBoard(field, exposed),
+                bytes.toString("US-ASCII"));
+
+            bytes = new ByteArrayOutputStream();
+            BoardRenderer.writeFieldAscii(bytes, field);
+            assertEquals(
+                BoardRenderer.fieldToString(field),
+                bytes.toString("US-ASCII"));
+        }
+    }
+
+
+    @Test
+    public void testPackedBoard()
+    {
+        int[][] field = { { 0, 1, -1 }, { 0, 1, 1 } };
+        boolean[][] exposed = { { true, true, false }, { false, true, false } };
+        PackedBoard board = PackedBoard.fromField(field, exposed);
+        assertEquals(
+            MineField.showBoard(field, exposed),
+            BoardRenderer.showBoard(board));
+        board.setFlagged(0, 2, true);
+        String expected = "          1     F " + NL
+            + "    *     1     * " + NL;
+        assertEquals(
+            "flagged cells should be drawn as F",
+            expected,
+            BoardRenderer.showBoard(board));
+    }
+
+}
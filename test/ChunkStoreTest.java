@@ -0,0 +1,100 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Test;
+
+public class ChunkStoreTest
+{
+    @Test
+    public void testEvictAndReload() throws IOException
+    {
+        try (ChunkStore store = new ChunkStore(3 * ChunkStore.CHUNK_BYTES))
+        {
+            assertEquals(3, store.getMaxChunks());
+            InfiniteMineField small = new InfiniteMineField(5L, 500, 1000,
+                store);
+            InfiniteMineField big = new InfiniteMineField(5L, 500, 1000);
+            for (int i = 0; i < 12; i++)
+            {
+                int row = i * 70;
+                int col = -i * 130;
+                small.exposeCell(row, col);
+                big.exposeCell(row, col);
+                small.setFlagged(row + 2, col + 2, true);
+                big.setFlagged(row + 2, col + 2, true);
+                assertTrue(store.size() <= 3);
+            }
+            assertTrue(store.getEvictions() > 0);
+            assertTrue(store.getSpilledChunks() > 0);
+            assertEquals(big.lost(), small.lost());
+
+            // Everything exposed or flagged should come back from the file.
+            for (int i = 0; i < 12; i++)
+            {
+                int row = i * 70 - 10;
+                int col = -i * 130 - 10;
+                assertEquals(
+                    big.showBoard(row, col, 20, 20),
+                    small.showBoard(row, col, 20, 20));
+            }
+            assertTrue(store.getReloads() > 0);
+            assertTrue(store.size() <= 3);
+        }
+    }
+
+
+    @Test
+    public void testBlankChunksArentSpilled() throws IOException
+    {
+        try (ChunkStore store = new ChunkStore(1))
+        {
+            InfiniteMineField field = new InfiniteMineField(2L, 400,
+                InfiniteMineField.DEFAULT_MAX_FLOOD_CELLS, store);
+            for (int i = 0; i < 10; i++)
+            {
+                field.getValue(0, i * InfiniteMineField.CHUNK_SIZE);
+            }
+            assertEquals(1, store.size());
+            assertEquals(9, store.getEvictions());
+            assertEquals(0, store.getSpilledChunks());
+            assertFalse(field.isExposed(0, 0));
+            assertEquals(0, store.getReloads());
+        }
+    }
+
+
+    @Test
+    public void testSpillFile() throws IOException
+    {
+        Path file = Files.createTempFile("ChunkStoreTest", ".spill");
+        try
+        {
+            try (ChunkStore store = new ChunkStore(1, file))
+            {
+                InfiniteMineField field = new InfiniteMineField(2L, 400,
+                    InfiniteMineField.DEFAULT_MAX_FLOOD_CELLS, store);
+                for (int i = 0; i < 5; i++)
+                {
+                    field.setFlagged(0, i * InfiniteMineField.CHUNK_SIZE,
+                        true);
+                }
+                for (int i = 0; i < 5; i++)
+                {
+                    assertTrue(field.isFlagged(0,
+                        i * InfiniteMineField.CHUNK_SIZE));
+                }
+                assertEquals(5, store.getSpilledChunks());
+            }
+            assertTrue("a given file is kept", Files.exists(file));
+            assertEquals(5 * 2 * 8 * InfiniteMineField.CHUNK_SIZE,
+                Files.size(file));
+        }
+        finally
+        {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import org.junit.Test;
+
+public class ConsoleRendererTest
+{
+    private static final String NL = System.lineSeparator();
+
+
+    @Test
+    public void testPlainRedraw()
+    {
+        int[][] field = { { 0, 1, -1 }, { 0, 1, 1 } };
+        PackedBoard board = PackedBoard.fromField(field);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ConsoleRenderer renderer =
+            new ConsoleRenderer(new PrintStream(bytes, true), false, false);
+        boolean[] dirtyRows = new boolean[2];
+        board.setDirtyRows(dirtyRows);
+        board.exposeCell(0, 0);
+        renderer.redraw(board, dirtyRows);
+
+        String expected = NL + "Board:" + NL + board.showBoard() + NL;
+        assertEquals(
+            "without ANSI the whole board should be printed",
+            expected,
+            bytes.toString());
+        assertArrayEquals(new boolean[2], dirtyRows);
+    }
+
+
+    @Test
+    public void testAnsiRedraw()
+    {
+        int[][] field = { { 1, 1, 0 }, { -1, 1, 0 }, { 1, 1, 0 } };
+        PackedBoard board = PackedBoard.fromField(field);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ConsoleRenderer renderer =
+            new ConsoleRenderer(new PrintStream(bytes, true), true, false);
+        renderer.drawFull(board);
+        bytes.reset();
+
+        boolean[] dirtyRows = new boolean[3];
+        board.setDirtyRows(dirtyRows);
+        board.exposeCell(0, 0);
+        renderer.redraw(board, dirtyRows);
+        String out = bytes.toString();
+        assertTrue("row 0 is on line 2", out.startsWith("\033[2;1H"));
+        assertFalse("row 1 didn't change", out.contains("\033[3;1H"));
+        assertTrue(
+            "the cursor should end up under the board",
+            out.endsWith("\033[6;1H\033[J"));
+        assertEquals(
+            "only one row should be drawn",
+            1,
+            out.split(NL, -1).length - 1);
+    }
+
+}
@@ -0,0 +1,217 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.Stream;
+import org.junit.Test;
+
+public class GameFileTest
+{
+    private static final int[][] FIELD = { { 0, 1, 1 }, { 0, 1, -1 },
+        { 1, 2, 1 }, { -1, 2, 1 }, { 2, -1, 1 } };
+
+
+    /**
+     * Write a game to bytes and read it back.
+     */
+    private static Game roundTrip(Game game) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GameFile.write(game, out);
+        return GameFile.read(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+
+    private static void assertSameGame(Game expected, Game actual)
+    {
+        assertEquals(expected.getRows(), actual.getRows());
+        assertEquals(expected.getCols(), actual.getCols());
+        assertEquals(expected.getMines(), actual.getMines());
+        assertEquals(expected.getSeed(), actual.getSeed());
+        assertEquals(expected.isSeeded(), actual.isSeeded());
+        assertEquals(expected.isFirstClickSafe(), actual.isFirstClickSafe());
+        assertEquals(expected.getFirstCell(), actual.getFirstCell());
+        assertEquals(expected.getMoves(), actual.getMoves());
+        assertEquals(expected.getStatus(), actual.getStatus());
+        assertEquals(expected.showBoard(), actual.showBoard());
+        assertEquals(expected.fieldToString(), actual.fieldToString());
+    }
+
+
+    @Test
+    public void testSeededGame() throws IOException
+    {
+        Game game = new Game(16, 30, 99, 12L);
+        game.reveal(8, 15);
+        game.reveal(0, 0);
+        game.flag(15, 29);
+        Game loaded = roundTrip(game);
+        assertSameGame(game, loaded);
+
+        // The loaded game plays on like the original.
+        game.reveal(15, 0);
+        loaded.reveal(15, 0);
+        assertSameGame(game, loaded);
+    }
+
+
+    @Test
+    public void testFirstClickSafeGame() throws IOException
+    {
+        Game before = Game.firstClickSafe(9, 9, 10, 3L, false);
+        before.flag(0, 0);
+        assertSameGame(before, roundTrip(before));
+
+        Game after = Game.firstClickSafe(9, 9, 10, 3L, false);
+        after.flag(0, 0);
+        after.reveal(4, 4);
+        assertSameGame(after, roundTrip(after));
+    }
+
+
+    @Test
+    public void testGivenField() throws IOException
+    {
+        Game game = new Game(FIELD);
+        game.reveal(0, 0);
+        game.flag(1, 2);
+        assertSameGame(game, roundTrip(game));
+
+        game.reveal(3, 0);
+        assertSameGame(game, roundTrip(game));
+    }
+
+
+    @Test
+    public void testMaskEncodings() throws IOException
+    {
+        // One opening on a big board: runs are far smaller than a bitset.
+        Game sparse = new Game(1000, 1000, 1000, 5L);
+        sparse.reveal(500, 500);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GameFile.write(sparse, out);
+        assertTrue(out.size() < 1000 * 1000 / 8 / 4);
+        assertSameGame(sparse, roundTrip(sparse));
+
+        // Flags on every other cell: a bitset is smaller than runs.
+        Game checkered = new Game(20, 20, 40, 6L);
+        for (int r = 0; r < 20; r++)
+        {
+            for (int c = (r & 1); c < 20; c += 2)
+            {
+                checkered.flag(r, c);
+            }
+        }
+        out.reset();
+        GameFile.write(checkered, out);
+        assertTrue(out.size() < 200);
+        assertSameGame(checkered, roundTrip(checkered));
+    }
+
+
+    @Test
+    public void testSaveAndLoad() throws IOException
+    {
+        Path dir = Files.createTempDirectory("GameFileTest");
+        Path file = dir.resolve("game.sav");
+        try
+        {
+            Game first = new Game(9, 9, 10, 1L);
+            GameFile.save(first, file);
+            Game second = new Game(16, 16, 40, 2L);
+            second.reveal(8, 8);
+            GameFile.save(second, file);
+            assertSameGame(second, GameFile.load(file));
+            try (Stream<Path> files = Files.list(dir))
+            {
+                assertEquals("no temporary file is left", 1, files.count());
+            }
+        }
+        finally
+        {
+            try (Stream<Path> files = Files.list(dir))
+            {
+                for (Path path : (Iterable<Path>) files::iterator)
+                {
+                    Files.delete(path);
+                }
+            }
+            Files.delete(dir);
+        }
+    }
+
+
+    @Test
+    public void testDamagedHeader() throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GameFile.write(Game.firstClickSafe(9, 9, 10, 4L, true), out);
+        byte[] saved = out.toByteArray();
+
+        // The first cell follows magic, version, flags, size, mines and
+        // seed; -1 means no first move, anything lower is damage.
+        byte[] badFirstCell = saved.clone();
+        badFirstCell[29] = (byte) 0xFE;
+        assertDamaged(badFirstCell);
+
+        byte[] badMines = saved.clone();
+        badMines[17] = 81;
+        assertDamaged(badMines);
+    }
+
+
+    @Test
+    public void testNegativeRun() throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GameFile.write(new Game(16, 30, 99, 12L), out);
+        byte[] saved = out.toByteArray();
+
+        // Nothing is exposed, so the exposed mask is one run, right after
+        // the moves. Five 0xFF..0x0F bytes read back as -1, and the set run
+        // after it would start before the first cell.
+        byte[] damaged = Arrays.copyOf(saved, 37);
+        damaged[30] = 1;
+        damaged[31] = (byte) 0xFF;
+        damaged[32] = (byte) 0xFF;
+        damaged[33] = (byte) 0xFF;
+        damaged[34] = (byte) 0xFF;
+        damaged[35] = 0x0F;
+        damaged[36] = 1;
+        assertDamaged(damaged);
+    }
+
+
+    private static void assertDamaged(byte[] saved)
+    {
+        try
+        {
+            GameFile.read(new ByteArrayInputStream(saved));
+            fail("a damaged game should not be read");
+        }
+        catch (IOException e)
+        {
+            // expected
+        }
+    }
+
+
+    @Test
+    public void testNotASavedGame()
+    {
+        try
+        {
+            GameFile.read(new ByteArrayInputStream(new byte[64]));
+            fail("zeros aren't a saved game");
+        }
+        catch (IOException e)
+        {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,207 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class GameServerTest
+{
+    private GameServer server;
+
+
+    /**
+     * A loopback client that sends one command and reads its reply.
+     */
+    private class Client implements Closeable
+    {
+        private final Socket socket;
+        private final BufferedReader in;
+        private final PrintWriter out;
+
+
+        Client() throws IOException
+        {
+            socket = new Socket(InetAddress.getLoopbackAddress(),
+                server.getPort());
+            in = new BufferedReader(new InputStreamReader(
+                socket.getInputStream(), StandardCharsets.US_ASCII));
+            out = new PrintWriter(socket.getOutputStream(), true,
+                StandardCharsets.US_ASCII);
+        }
+
+
+        String send(String command) throws IOException
+        {
+            out.println(command);
+            return in.readLine();
+        }
+
+
+        String readLine() throws IOException
+        {
+            return in.readLine();
+        }
+
+
+        @Override
+        public void close() throws IOException
+        {
+            socket.close();
+        }
+    }
+
+
+    @Before
+    public void setUp() throws IOException
+    {
+        server = new GameServer(0);
+    }
+
+
+    @After
+    public void tearDown() throws IOException
+    {
+        server.close();
+    }
+
+
+    @Test
+    public void testGame() throws IOException
+    {
+        Game local = Game.firstClickSafe(9, 9, 10, 4L, true);
+        try (Client client = new Client())
+        {
+            assertTrue(client.send("STATUS").startsWith("ERR"));
+            assertEquals("OK 9 9 10", client.send("NEW 9 9 10 4"));
+            assertEquals("OK " + local.reveal(4, 4),
+                client.send("REVEAL 4 4"));
+            assertEquals("OK PLAYING", client.send("flag 0 0"));
+            local.flag(0, 0);
+            assertEquals("OK " + local.getStatus() + " 2",
+                client.send("STATUS"));
+
+            // The board the server sends is the local game's board.
+            assertEquals("OK 9", client.send("BOARD"));
+            for (int r = 0; r < 9; r++)
+            {
+                String row = client.readLine();
+                for (int c = 0; c < 9; c++)
+                {
+                    int value = local.getVisibleValue(r, c);
+                    char expected = value == Game.HIDDEN ? '.'
+                        : value == Game.FLAG ? 'F'
+                            : value == -1 ? '*' : (char) ('0' + value);
+                    assertEquals(expected, row.charAt(c));
+                }
+            }
+
+            assertEquals("BYE", client.send("QUIT"));
+            assertEquals(null, client.readLine());
+        }
+    }
+
+
+    @Test
+    public void testErrors() throws IOException
+    {
+        try (Client client = new Client())
+        {
+            assertTrue(client.send("JUMP").startsWith("ERR unknown"));
+            assertTrue(client.send("REVEAL 0 0").startsWith("ERR no game"));
+            assertTrue(client.send("NEW 9 9").startsWith("ERR usage"));
+            assertTrue(client.send("NEW 9 x 10").startsWith("ERR"));
+            assertTrue(client.send("NEW 100000 100000 1").startsWith("ERR"));
+            assertEquals("OK 9 9 10", client.send("NEW 9 9 10"));
+            assertTrue(client.send("REVEAL 9 0").startsWith("ERR"));
+            assertTrue(client.send("CHORD 1").startsWith("ERR usage"));
+
+            // The session is still usable after errors.
+            assertTrue(client.send("REVEAL 0 0").startsWith("OK "));
+        }
+    }
+
+
+    @Test
+    public void testManySessions() throws Exception
+    {
+        int players = 64;
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        try
+        {
+            List<Future<String>> results = new ArrayList<>();
+            for (int p = 0; p < players; p++)
+            {
+                long seed = p;
+                results.add(pool.submit(() -> {
+                    // Every session plays the same moves on its own board.
+                    try (Client client = new Client())
+                    {
+                        client.send("NEW 16 16 40 " + seed);
+                        String status = null;
+                        for (int c = 0; c < 16; c++)
+                        {
+                            status = client.send("REVEAL 8 " + c);
+                        }
+                        return status;
+                    }
+                }));
+            }
+
+            for (int p = 0; p < players; p++)
+            {
+                Game local = Game.firstClickSafe(16, 16, 40, p, true);
+                for (int c = 0; c < 16; c++)
+                {
+                    local.reveal(8, c);
+                }
+                assertEquals("OK " + local.getStatus(),
+                    results.get(p).get());
+            }
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+
+        GameServer.Stats stats = server.getStats();
+        assertEquals(players, stats.getSessions());
+        assertTrue(stats.getMoves() > players);
+        assertTrue(stats.getMovesPerSecond() > 0);
+        assertTrue(stats.getP50() > 0);
+        assertTrue(stats.getP50() <= stats.getP99());
+        assertTrue(stats.getP99() <= stats.getP999());
+        try (Client client = new Client())
+        {
+            assertTrue(client.send("STATS").startsWith("OK active="));
+        }
+    }
+
+
+    @Test
+    public void testBuckets()
+    {
+        long previous = 0;
+        for (long nanos = 1; nanos < 1L << 40; nanos = nanos * 3 / 2 + 1)
+        {
+            int bucket = GameServer.bucket(nanos);
+            assertTrue(GameServer.bucketTop(bucket) >= nanos);
+            // Each bucket is at most an eighth of its value wide.
+            assertTrue(GameServer.bucketTop(bucket) <= nanos + nanos / 8);
+            assertTrue(bucket >= previous);
+            previous = bucket;
+        }
+    }
+}
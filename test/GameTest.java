@@ -0,0 +1,330 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import org.junit.Test;
+
+public class GameTest
+{
+    private static final int[][] FIELD = { { 0, 1, 1 }, { 0, 1, -1 },
+        { 1, 2, 1 }, { -1, 2, 1 }, { 2, -1, 1 } };
+
+
+    @Test
+    public void testRevealToWin()
+    {
+        Game game = new Game(FIELD);
+        assertEquals(Game.Status.PLAYING, game.getStatus());
+        assertEquals(Game.Status.PLAYING, game.reveal(0, 0));
+        assertEquals(0, game.getVisibleValue(0, 0));
+        assertEquals(1, game.getVisibleValue(1, 1));
+        assertEquals(Game.HIDDEN, game.getVisibleValue(0, 2));
+
+        int[][] safe = { { 0, 2 }, { 2, 2 }, { 3, 1 }, { 3, 2 }, { 4, 0 } };
+        for (int[] cell : safe)
+        {
+            assertEquals(Game.Status.PLAYING, game.reveal(cell[0], cell[1]));
+        }
+        assertEquals(Game.Status.WON, game.reveal(4, 2));
+        assertEquals(7, game.getMoves());
+
+        assertEquals(
+            "moves after the game is over are ignored",
+            Game.Status.WON,
+            game.reveal(1, 2));
+        assertEquals(7, game.getMoves());
+    }
+
+
+    @Test
+    public void testRevealMine()
+    {
+        Game game = new Game(FIELD);
+        assertEquals(Game.Status.LOST, game.reveal(3, 0));
+        assertEquals(-1, game.getVisibleValue(3, 0));
+        assertEquals(Game.Status.LOST, game.reveal(0, 0));
+        assertEquals(1, game.getMoves());
+    }
+
+
+    @Test
+    public void testFlag()
+    {
+        Game game = new Game(FIELD);
+        game.flag(1, 2);
+        assertEquals(Game.FLAG, game.getVisibleValue(1, 2));
+        assertEquals(
+            "flagged cells can't be revealed",
+            Game.Status.PLAYING,
+            game.reveal(1, 2));
+        game.flag(1, 2);
+        assertEquals(Game.HIDDEN, game.getVisibleValue(1, 2));
+
+        game.reveal(0, 0);
+        game.flag(0, 0);
+        assertEquals(
+            "exposed cells can't be flagged",
+            0,
+            game.getVisibleValue(0, 0));
+        assertEquals(3, game.getMoves());
+        game.reveal(0, 0);
+        assertEquals(
+            "revealing an exposed cell isn't a move",
+            3,
+            game.getMoves());
+    }
+
+
+    @Test
+    public void testChord()
+    {
+        Game game = new Game(FIELD);
+        game.reveal(2, 2);
+        game.chord(2, 2);
+        assertEquals(
+            "chording without enough flags does nothing",
+            Game.HIDDEN,
+            game.getVisibleValue(1, 1));
+
+        game.flag(1, 2);
+        assertEquals(Game.Status.PLAYING, game.chord(2, 2));
+        assertEquals(1, game.getVisibleValue(1, 1));
+        assertEquals(2, game.getVisibleValue(3, 1));
+        assertEquals(Game.FLAG, game.getVisibleValue(1, 2));
+        int moves = game.getMoves();
+        game.chord(2, 2);
+        assertEquals(
+            "a chord that exposes nothing isn't a move",
+            moves,
+            game.getMoves());
+
+        Game wrong = new Game(FIELD);
+        wrong.reveal(2, 2);
+        wrong.flag(1, 1);
+        assertEquals(
+            "chording with a wrong flag reveals the mine",
+            Game.Status.LOST,
+            wrong.chord(2, 2));
+    }
+
+
+    @Test
+    public void testRevealAll()
+    {
+        Game game = new Game(FIELD);
+        game.flag(2, 2);
+        // (0, 0) opens 6 cells, (0, 1) is already open, (2, 2) is flagged,
+        // (3, 0) is a mine, and (4, 2) comes after the mine.
+        Game.BatchResult result = game.revealAll(new int[] { 0, 1, 8, 9, 14 });
+        assertEquals(Game.Status.LOST, result.getStatus());
+        int[] exposed = result.getExposedCells().clone();
+        Arrays.sort(exposed);
+        assertArrayEquals(new int[] { 0, 1, 3, 4, 6, 7, 9 }, exposed);
+        assertEquals(
+            "the batch should stop at the mine",
+            Game.HIDDEN,
+            game.getVisibleValue(4, 2));
+        assertEquals("revealing open (0, 1) isn't a move", 3, game.getMoves());
+    }
+
+
+    @Test
+    public void testRevealAllMatchesReveal()
+    {
+        SplittableRandom random = new SplittableRandom(3);
+        for (int i = 0; i < 50; i++)
+        {
+            long seed = random.nextLong();
+            Game batch = new Game(20, 20, 30, seed);
+            Game single = new Game(20, 20, 30, seed);
+            int[] cells = new int[25];
+            for (int j = 0; j < cells.length; j++)
+            {
+                cells[j] = random.nextInt(400);
+            }
+
+            Game.BatchResult result = batch.revealAll(cells);
+            for (int cell : cells)
+            {
+                if (single.getStatus() == Game.Status.PLAYING)
+                {
+                    single.reveal(cell / 20, cell % 20);
+                }
+            }
+            assertEquals(single.showBoard(), batch.showBoard());
+            assertEquals(single.getStatus(), result.getStatus());
+            assertEquals(single.getMoves(), batch.getMoves());
+
+            int exposedCount = 0;
+            for (int cell = 0; cell < 400; cell++)
+            {
+                if (batch.getVisibleValue(cell / 20, cell % 20) >= -1)
+                {
+                    exposedCount++;
+                }
+            }
+            assertEquals(exposedCount, result.getExposedCells().length);
+        }
+    }
+
+
+    @Test
+    public void testStatusMatchesWon()
+    {
+        SplittableRandom rand = new SplittableRandom(12);
+        int wins = 0;
+        for (int i = 0; i < 100; i++)
+        {
+            Game game = new Game(8, 9, 10, rand.nextLong());
+            int[][] field = game.board().toField();
+            while (game.getStatus() == Game.Status.PLAYING)
+            {
+                int row = rand.nextInt(8);
+                int col = rand.nextInt(9);
+                int type = rand.nextInt(10);
+                if (type == 0)
+                {
+                    game.flag(row, col);
+                }
+                else if (type == 1)
+                {
+                    game.chord(row, col);
+                }
+                // Mostly avoid mines, so some games are won.
+                else if (field[row][col] != -1 || rand.nextInt(40) == 0)
+                {
+                    game.reveal(row, col);
+                }
+
+                boolean[][] exposed = game.board().toExposed();
+                boolean mineExposed = false;
+                for (int r = 0; r < 8; r++)
+                {
+                    for (int c = 0; c < 9; c++)
+                    {
+                        mineExposed |= field[r][c] == -1 && exposed[r][c];
+                    }
+                }
+                assertEquals(
+                    "the running counts should agree with MineField.won",
+                    MineField.won(field, exposed),
+                    game.getStatus() == Game.Status.WON);
+                assertEquals(mineExposed,
+                    game.getStatus() == Game.Status.LOST);
+            }
+            if (game.getStatus() == Game.Status.WON)
+            {
+                wins++;
+            }
+        }
+        assertTrue("won " + wins + " of 100", wins > 0);
+    }
+
+
+    @Test
+    public void testSeed()
+    {
+        Game first = new Game(16, 30, 99, 12345L);
+        Game second = new Game(16, 30, 99, 12345L);
+        assertEquals(first.fieldToString(), second.fieldToString());
+        assertEquals(99, first.getMines());
+        assertTrue(first.isSeeded());
+        assertFalse(new Game(FIELD).isSeeded());
+        assertArrayEquals(
+            "a seed should give the same layout as createMineField",
+            MineField.createMineField(16, 30, 99, 12345L),
+            first.board().toField());
+    }
+
+
+    @Test
+    public void testFirstClickSafe()
+    {
+        for (int seed = 0; seed < 100; seed++)
+        {
+            Game game = Game.firstClickSafe(9, 9, 30, seed, true);
+            assertFalse(game.minesPlaced());
+            assertEquals(30, game.getMines());
+            assertEquals(-1, game.getFirstCell());
+
+            int row = seed % 9;
+            int col = seed / 9 % 9;
+            assertEquals(Game.Status.PLAYING, game.reveal(row, col));
+            assertTrue(game.minesPlaced());
+            assertEquals(row * 9 + col, game.getFirstCell());
+            assertEquals(
+                "the first cell should open an area",
+                0,
+                game.getVisibleValue(row, col));
+            assertEquals(30, game.board().getMineCount());
+        }
+
+        // Without clearing the neighbors, only the first cell is safe.
+        for (int seed = 0; seed < 20; seed++)
+        {
+            Game game = Game.firstClickSafe(3, 3, 8, seed, false);
+            assertEquals(Game.Status.WON, game.reveal(1, 1));
+            assertEquals(8, game.getVisibleValue(1, 1));
+        }
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFirstClickSafeNeedsSafeCell()
+    {
+        Game.firstClickSafe(3, 3, 9, 0L, false);
+    }
+
+
+    @Test
+    public void testFirstClickSafeSeed()
+    {
+        Game first = Game.firstClickSafe(16, 30, 99, 5L, true);
+        Game second = Game.firstClickSafe(16, 30, 99, 5L, true);
+        first.reveal(3, 4);
+        second.reveal(3, 4);
+        assertEquals(first.fieldToString(), second.fieldToString());
+
+        Game third = Game.firstClickSafe(16, 30, 99, 5L, true);
+        third.revealAll(new int[] { 3 * 30 + 4 });
+        assertEquals(
+            "revealAll should place the mines the same way",
+            first.fieldToString(),
+            third.fieldToString());
+    }
+
+
+    @Test
+    public void testFlagBeforeFirstClick()
+    {
+        Game game = Game.firstClickSafe(9, 9, 10, 1L, true);
+        boolean[] dirtyRows = new boolean[9];
+        game.setDirtyRows(dirtyRows);
+        game.flag(8, 8);
+        game.reveal(0, 0);
+        assertEquals(Game.FLAG, game.getVisibleValue(8, 8));
+        assertTrue(
+            "the new board should still mark dirty rows",
+            dirtyRows[0]);
+    }
+
+
+    @Test
+    public void testCreateEveryDensity()
+    {
+        for (int mines = 0; mines <= 30; mines++)
+        {
+            PackedBoard board = PackedBoard.create(5, 6, mines,
+                new SplittableRandom(mines));
+            assertArrayEquals(
+                MineField.createMineField(5, 6, mines,
+                    new SplittableRandom(mines)),
+                board.toField());
+            assertEquals(mines, board.getMineCount());
+            assertEquals(30 - mines, board.getHiddenSafeCells());
+        }
+    }
+
+}
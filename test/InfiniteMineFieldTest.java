@@ -0,0 +1,238 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class InfiniteMineFieldTest
+{
+    @Test
+    public void testSameSeedSameField()
+    {
+        InfiniteMineField first = new InfiniteMineField(11L, 600);
+        InfiniteMineField second = new InfiniteMineField(11L, 600);
+        InfiniteMineField other = new InfiniteMineField(12L, 600);
+        // Visit the chunks of second in a different order.
+        second.getValue(200, 200);
+        boolean differs = false;
+        for (int r = -70; r < 70; r += 3)
+        {
+            for (int c = -70; c < 70; c += 3)
+            {
+                assertEquals(first.getValue(r, c), second.getValue(r, c));
+                differs |= first.getValue(r, c) != other.getValue(r, c);
+            }
+        }
+        assertTrue("another seed should give another field", differs);
+    }
+
+
+    @Test
+    public void testMinesPerChunk()
+    {
+        for (int chunk = -2; chunk <= 2; chunk++)
+        {
+            long[] mines = InfiniteMineField.mineLayout(5L, chunk, -chunk,
+                400);
+            int count = 0;
+            for (long row : mines)
+            {
+                count += Long.bitCount(row);
+            }
+            assertEquals(400, count);
+        }
+    }
+
+
+    @Test
+    public void testHintsAcrossChunks()
+    {
+        InfiniteMineField field = new InfiniteMineField(3L, 700);
+        for (int r = -80; r < 80; r++)
+        {
+            for (int c = -80; c < 80; c++)
+            {
+                if (field.isMine(r, c))
+                {
+                    assertEquals(-1, field.getValue(r, c));
+                    continue;
+                }
+                int count = 0;
+                for (int dr = -1; dr <= 1; dr++)
+                {
+                    for (int dc = -1; dc <= 1; dc++)
+                    {
+                        if (field.isMine(r + dr, c + dc))
+                        {
+                            count++;
+                        }
+                    }
+                }
+                assertEquals(
+                    "hint at " + r + ", " + c,
+                    count,
+                    field.getValue(r, c));
+            }
+        }
+    }
+
+
+    @Test
+    public void testHintsDontDependOnLoadOrder()
+    {
+        // A chunk generated before its neighbors must get the same edge
+        // hints as one generated after them.
+        InfiniteMineField lonely = new InfiniteMineField(8L, 500);
+        int[] edge = new int[InfiniteMineField.CHUNK_SIZE];
+        for (int c = 0; c < edge.length; c++)
+        {
+            edge[c] = lonely.getValue(63, c);
+        }
+        InfiniteMineField crowded = new InfiniteMineField(8L, 500);
+        crowded.getValue(64, 0);
+        crowded.getValue(-1, -1);
+        int[] again = new int[InfiniteMineField.CHUNK_SIZE];
+        for (int c = 0; c < again.length; c++)
+        {
+            again[c] = crowded.getValue(63, c);
+        }
+        assertArrayEquals(edge, again);
+    }
+
+
+    @Test
+    public void testExposeOpening()
+    {
+        InfiniteMineField field = new InfiniteMineField(21L, 700);
+        int row = 0;
+        while (field.getValue(row, 63) != 0)
+        {
+            row++;
+        }
+
+        int exposed = field.exposeCell(row, 63);
+        assertFalse(field.lost());
+        assertFalse(field.wasTruncated());
+        assertEquals(exposed, field.getExposedCells());
+        assertTrue(field.isExposed(row, 64));
+        int counted = 0;
+        for (int r = row - 400; r <= row + 400; r++)
+        {
+            for (int c = -400; c <= 400; c++)
+            {
+                if (!field.isExposed(r, c))
+                {
+                    continue;
+                }
+                counted++;
+                assertFalse(field.isMine(r, c));
+                if (field.getValue(r, c) == 0)
+                {
+                    for (int dr = -1; dr <= 1; dr++)
+                    {
+                        for (int dc = -1; dc <= 1; dc++)
+                        {
+                            assertTrue(
+                                "the opening should be complete",
+                                field.isExposed(r + dr, c + dc));
+                        }
+                    }
+                }
+            }
+        }
+        assertEquals(exposed, counted);
+        assertEquals("nothing new to expose", 0, field.exposeCell(row, 63));
+    }
+
+
+    @Test
+    public void testFloodLimit()
+    {
+        InfiniteMineField field = new InfiniteMineField(1L, 0, 10_000);
+        assertEquals(10_000, field.exposeCell(0, 0));
+        assertTrue(field.wasTruncated());
+        assertTrue("the fill should cross chunks", field.getLoadedChunks() > 1);
+        assertEquals(
+            "exposing it again carries on",
+            10_000,
+            field.exposeCell(0, 0));
+        assertEquals(20_000, field.getExposedCells());
+    }
+
+
+    @Test
+    public void testFlagsAndMines()
+    {
+        InfiniteMineField field = new InfiniteMineField(1L, 0, 10);
+        field.setFlagged(0, 1, true);
+        assertTrue(field.isFlagged(0, 1));
+        field.exposeCell(0, 0);
+        assertFalse("the fill skips flags", field.isExposed(0, 1));
+        field.setFlagged(0, 0, true);
+        assertFalse("exposed cells can't be flagged", field.isFlagged(0, 0));
+
+        InfiniteMineField mined = new InfiniteMineField(4L, 200);
+        int col = 0;
+        while (!mined.isMine(-5, col))
+        {
+            col++;
+        }
+        assertEquals(1, mined.exposeCell(-5, col));
+        assertTrue(mined.lost());
+    }
+
+
+    @Test
+    public void testMemoryFollowsExploredArea()
+    {
+        InfiniteMineField field = new InfiniteMineField(9L, 4000);
+        assertFalse(field.isExposed(2_000_000_000, -2_000_000_000));
+        assertEquals("looking doesn't generate", 0, field.getLoadedChunks());
+        int[][] cells = { { 2_000_000_000, -2_000_000_000 },
+            { Integer.MAX_VALUE, Integer.MIN_VALUE } };
+        for (int[] cell : cells)
+        {
+            int col = cell[1];
+            while (field.getValue(cell[0], col) == -1)
+            {
+                col++;
+            }
+            field.exposeCell(cell[0], col);
+        }
+        assertFalse(field.lost());
+        assertEquals(2, field.getLoadedChunks());
+    }
+
+
+    @Test
+    public void testShowBoard()
+    {
+        InfiniteMineField field = new InfiniteMineField(6L, 500);
+        int row = 0;
+        while (field.getValue(row, 0) != 0)
+        {
+            row++;
+        }
+        field.exposeCell(row, 0);
+        field.setFlagged(row - 3, -3, true);
+
+        int[][] values = new int[7][7];
+        boolean[][] exposed = new boolean[7][7];
+        for (int r = 0; r < 7; r++)
+        {
+            for (int c = 0; c < 7; c++)
+            {
+                values[r][c] = field.getValue(row - 3 + r, c - 3);
+                exposed[r][c] = field.isExposed(row - 3 + r, c - 3);
+            }
+        }
+        String expected = MineField.showBoard(values, exposed);
+        if (!exposed[0][0])
+        {
+            int end = expected.indexOf('*');
+            expected = expected.substring(0, end) + "F"
+                + expected.substring(end + 1);
+        }
+        assertEquals(expected, field.showBoard(row - 3, -3, 7, 7));
+    }
+}
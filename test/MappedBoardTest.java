@@ -0,0 +1,177 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import org.junit.Test;
+
+public class MappedBoardTest
+{
+    @Test
+    public void testMatchesPackedBoard() throws IOException
+    {
+        Path file = Files.createTempFile("MappedBoardTest", ".board");
+        // Small regions so cells and neighbors fall in different mappings.
+        try (MappedBoard mapped = MappedBoard.create(file, 30, 40, 8))
+        {
+            mapped.placeMines(120, new SplittableRandom(4));
+            mapped.setHint();
+            PackedBoard packed = new PackedBoard(30, 40);
+            for (int r = 0; r < 30; r++)
+            {
+                for (int c = 0; c < 40; c++)
+                {
+                    if (mapped.isMine(r, c))
+                    {
+                        packed.setMine(r, c);
+                    }
+                }
+            }
+            packed.setHint();
+            assertEquals(120, mapped.getMineCount());
+            assertEquals(packed.toField().length, mapped.getRows());
+
+            mapped.setFlagged(3, 3, true);
+            packed.setFlagged(3, 3, true);
+            SplittableRandom rand = new SplittableRandom(8);
+            for (int move = 0; move < 40 && !packed.lost(); move++)
+            {
+                int r = rand.nextInt(30);
+                int c = rand.nextInt(40);
+                if (packed.isMine(r, c))
+                {
+                    continue;
+                }
+                assertEquals(packed.exposeCell(r, c), mapped.exposeCell(r, c));
+            }
+            assertEquals(packed.getHiddenSafeCells(),
+                mapped.getHiddenSafeCells());
+            assertEquals(packed.showBoard(), mapped.showBoard(0, 0, 30, 40));
+            assertEquals(packed.won(), mapped.won());
+        }
+        finally
+        {
+            Files.deleteIfExists(file);
+        }
+    }
+
+
+    @Test
+    public void testPlaceMinesNeedsFreshBoard() throws IOException
+    {
+        Path file = Files.createTempFile("MappedBoardTest", ".board");
+        try (MappedBoard board = MappedBoard.create(file, 9, 9))
+        {
+            board.placeMines(81, new SplittableRandom(2));
+            assertEquals(81, board.getMineCount());
+            assertEquals(0, board.getHiddenSafeCells());
+            try
+            {
+                board.placeMines(0, new SplittableRandom(2));
+                fail("a board with mines should be rejected");
+            }
+            catch (IllegalStateException e)
+            {
+                assertEquals(81, board.getMineCount());
+            }
+        }
+        finally
+        {
+            Files.deleteIfExists(file);
+        }
+    }
+
+
+    @Test
+    public void testReopen() throws IOException
+    {
+        Path file = Files.createTempFile("MappedBoardTest", ".board");
+        try
+        {
+            String before;
+            try (MappedBoard board = MappedBoard.create(file, 9, 9))
+            {
+                board.setMine(0, 0);
+                board.setMine(8, 8);
+                board.setHint();
+                board.setFlagged(8, 8, true);
+                assertEquals(79, board.exposeCell(4, 4));
+                assertTrue(board.won());
+                before = board.showBoard(0, 0, 9, 9);
+            }
+
+            try (MappedBoard board = MappedBoard.open(file))
+            {
+                assertEquals(9, board.getRows());
+                assertEquals(2, board.getMineCount());
+                assertEquals(0, board.getHiddenSafeCells());
+                assertTrue(board.won());
+                assertTrue(board.isFlagged(8, 8));
+                assertEquals(before, board.showBoard(0, 0, 9, 9));
+                assertEquals(
+                    "the viewport is clipped to the board",
+                    board.showBoard(7, 7, 2, 2),
+                    board.showBoard(7, 7, 10, 10));
+
+                board.exposeCell(0, 0);
+                assertTrue(board.lost());
+            }
+            try (MappedBoard board = MappedBoard.open(file))
+            {
+                assertTrue(board.lost());
+                assertFalse(board.won());
+            }
+        }
+        finally
+        {
+            Files.deleteIfExists(file);
+        }
+    }
+
+
+    @Test
+    public void testNotABoard() throws IOException
+    {
+        Path file = Files.createTempFile("MappedBoardTest", ".board");
+        try
+        {
+            Files.write(file, new byte[100]);
+            MappedBoard.open(file);
+            fail("a file of zeros isn't a board");
+        }
+        catch (IOException e)
+        {
+            // expected
+        }
+        finally
+        {
+            Files.deleteIfExists(file);
+        }
+    }
+
+
+    @Test
+    public void testMoreCellsThanAnInt() throws IOException
+    {
+        Path file = Files.createTempFile("MappedBoardTest", ".board");
+        // The file is sparse, so only the pages written take up space.
+        try (MappedBoard board = MappedBoard.create(file, 50_000, 50_000))
+        {
+            assertEquals(2_500_000_000L, board.getCellCount());
+            assertEquals(2_499_999_999L, board.index(49_999, 49_999));
+            board.setMine(49_999, 49_999);
+            board.setFlagged(49_999, 49_998, true);
+            assertTrue(board.isMine(49_999, 49_999));
+            assertFalse(board.isMine(0, 0));
+            assertTrue(board.isFlagged(49_999, 49_998));
+            assertEquals(2_499_999_999L, board.getHiddenSafeCells());
+        }
+        finally
+        {
+            Files.deleteIfExists(file);
+        }
+    }
+}
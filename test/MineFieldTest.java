@@ -2,7 +2,10 @@ import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import java.awt.Point;
+import java.util.Arrays;
+import java.util.SplittableRandom;
 import org.junit.Test;
 
 public class MineFieldTest
@@ -71,22 +74,15 @@ public class MineFieldTest
             "Should be array with all 0s",
             field3Expected,
             field3Actual);
-        int[][] field4Actual = MineField.createMineField(3, 43, -1);
+        int[][] field4Actual = MineField.createMineField(3, 43, 0);
         int[][] field4Expected = new int[3][43];
-        for (int i = 0; i < field4Expected.length; i++)
-        {
-            for (int j = 0; j < field4Expected[0].length; j++)
-            {
-                field4Expected[i][j] = 0;
-            }
-        }
         assertArrayEquals(
             "Should be array with all 0s",
             field4Expected,
             field4Actual);
-        int[][] field6Actual = MineField.createMineField(3, 43, 300);
+        int[][] field6Actual = MineField.createMineField(3, 43, 129);
         int[][] field6Expected = new int[3][43];
-        for (int i = 0; i < field4Expected.length; i++)
+        for (int i = 0; i < field6Expected.length; i++)
         {
             for (int j = 0; j < field6Expected[0].length; j++)
             {
@@ -114,6 +110,85 @@ public class MineFieldTest
     }
 
 
+    @Test
+    public void testCreateMineFieldEveryDensity()
+    {
+        for (int mines = 0; mines <= 20; mines++)
+        {
+            int[][] field = MineField.createMineField(4, 5, mines);
+            assertEquals(
+                "createMineField should place exactly the mines asked for",
+                mines,
+                count(field, -1));
+            int[][] hints = new int[4][5];
+            for (int r = 0; r < 4; r++)
+            {
+                for (int c = 0; c < 5; c++)
+                {
+                    hints[r][c] = field[r][c] == -1 ? -1 : 0;
+                }
+            }
+            MineField.setHint(hints);
+            assertArrayEquals("hints should be set", hints, field);
+        }
+    }
+
+
+    @Test
+    public void testCreateMineFieldRejectsMineCount()
+    {
+        assertEquals(20, count(MineField.createMineField(4, 5, 20), -1));
+        for (int mines : new int[] { -1, 21 })
+        {
+            try
+            {
+                MineField.createMineField(4, 5, mines);
+                fail(mines + " mines should not fit on a 4 x 5 field");
+            }
+            catch (IllegalArgumentException e)
+            {
+                // expected
+            }
+        }
+    }
+
+
+    @Test
+    public void testCreateMineFieldSeeded()
+    {
+        int[][] first = MineField.createMineField(16, 30, 99, 42L);
+        int[][] second = MineField.createMineField(16, 30, 99, 42L);
+        assertArrayEquals(
+            "the same seed should give the same field",
+            first,
+            second);
+        assertEquals(99, count(first, -1));
+        int[][] other = MineField.createMineField(16, 30, 99, 43L);
+        assertFalse(
+            "different seeds should give different fields",
+            Arrays.deepEquals(first, other));
+        assertArrayEquals(
+            "a seeded generator should give the same field as its seed",
+            first,
+            MineField.createMineField(16, 30, 99,
+                new SplittableRandom(42L)));
+    }
+
+
+    @Test
+    public void testCreateNoGuessMineField()
+    {
+        int[][] field = MineField.createNoGuessMineField(16, 30, 99, 0, 0, 3L);
+        assertEquals(99, count(field, -1));
+        assertEquals(0, field[0][0]);
+        assertArrayEquals(
+            field,
+            MineField.createNoGuessMineField(16, 30, 99, 0, 0, 3L));
+        assertTrue(
+            new Solver().solveWithoutGuessing(new Game(field), 0, 0));
+    }
+
+
     @Test
     public void testShowBoard()
     {
@@ -380,6 +455,101 @@ public class MineFieldTest
     }
 
 
+    @Test
+    public void testSetHintParallel()
+    {
+        // Large enough to be split across threads.
+        int[][] parallel = new int[1500][800];
+        int[][] sequential = new int[1500][800];
+        SplittableRandom random = new SplittableRandom(7);
+        for (int r = 0; r < parallel.length; r++)
+        {
+            for (int c = 0; c < parallel[0].length; c++)
+            {
+                if (random.nextInt(5) == 0)
+                {
+                    parallel[r][c] = -1;
+                    sequential[r][c] = -1;
+                }
+            }
+        }
+        MineField.setHint(sequential);
+        MineField.setHintParallel(parallel);
+        assertArrayEquals(
+            "parallel hints should match sequential hints",
+            sequential,
+            parallel);
+
+        int[][] small = { { 0, 0, 0 }, { 0, 0, -1 }, { 0, 0, 0 },
+            { -1, 0, 0 }, { 0, -1, 0 } };
+        int[][] smallExpected = { { 0, 1, 1 }, { 0, 1, -1 }, { 1, 2, 1 },
+            { -1, 2, 1 }, { 2, -1, 1 } };
+        MineField.setHintParallel(small);
+        assertArrayEquals(smallExpected, small);
+    }
+
+
+    @Test
+    public void testSetHintFromMines()
+    {
+        int[][] field = { { 0, 0, 0 }, { 0, 0, -1 }, { 0, 0, 0 },
+            { -1, 0, 0 }, { 0, -1, 0 } };
+        int[][] expected = { { 0, 1, 1 }, { 0, 1, -1 }, { 1, 2, 1 },
+            { -1, 2, 1 }, { 2, -1, 1 } };
+        MineField.setHintFromMines(field, new int[] { 5, 9, 13 });
+        assertArrayEquals(
+            "mine-centric hints should match setHint",
+            expected,
+            field);
+
+        // Sparse enough that createMineField counts from the mines.
+        for (int i = 0; i < 20; i++)
+        {
+            int[][] sparse = MineField.createMineField(40, 50, 30);
+            int[][] hints = new int[40][50];
+            for (int r = 0; r < 40; r++)
+            {
+                for (int c = 0; c < 50; c++)
+                {
+                    hints[r][c] = sparse[r][c] == -1 ? -1 : 0;
+                }
+            }
+            MineField.setHint(hints);
+            assertArrayEquals(hints, sparse);
+        }
+    }
+
+
+    @Test
+    public void testFloodExpose()
+    {
+        int[][] field = { { 0, 1, 1 }, { 0, 1, -1 }, { 1, 2, 1 }, { -1, 2, 1 },
+            { 2, -1, 1 } };
+        boolean[][] exposed = MineField.setUpExposed(5, 3);
+        assertEquals(
+            "zero cell should expose its opening",
+            6,
+            MineField.floodExpose(0, 0, field, exposed));
+        assertEquals(
+            "already exposed cells should not be counted again",
+            0,
+            MineField.floodExpose(1, 0, field, exposed));
+        assertEquals(
+            "a hint cell only exposes itself",
+            1,
+            MineField.floodExpose(2, 2, field, exposed));
+
+        // A large empty field would overflow the stack with recursion.
+        int[][] empty = new int[1000][1000];
+        boolean[][] emptyExposed = MineField.setUpExposed(1000, 1000);
+        assertEquals(
+            "every cell of an empty field should be exposed",
+            1000000,
+            MineField.floodExpose(500, 500, empty, emptyExposed));
+        assertTrue(MineField.won(empty, emptyExposed));
+    }
+
+
     @Test
     public void testSetExposed()
     {
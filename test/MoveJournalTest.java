@@ -0,0 +1,66 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Test;
+
+public class MoveJournalTest
+{
+    @Test
+    public void testGroupFlush() throws IOException
+    {
+        Path file = Files.createTempFile("MoveJournalTest", ".journal");
+        try
+        {
+            Game game = new Game(16, 30, 99, 4L);
+            MoveJournal journal = MoveJournal.create(file, game, 3);
+            long header = Files.size(file);
+            game.flag(0, 0);
+            game.flag(0, 1);
+            assertEquals("moves wait for their group", header,
+                Files.size(file));
+            game.flag(0, 0);
+            assertEquals("a full group is written", header + 3,
+                Files.size(file));
+
+            game.flag(15, 29);
+            journal.flush();
+            // Cell 479 << 2 | FLAG takes two bytes.
+            assertEquals(header + 5, Files.size(file));
+            assertEquals(4, journal.getMoves());
+            journal.close();
+        }
+        finally
+        {
+            Files.deleteIfExists(file);
+        }
+    }
+
+
+    @Test
+    public void testOnlyMovesThatCountAreRecorded() throws IOException
+    {
+        Path file = Files.createTempFile("MoveJournalTest", ".journal");
+        try
+        {
+            Game game = new Game(new int[][] { { 0, 1 }, { 1, -1 } });
+            try (MoveJournal journal = MoveJournal.create(file, game))
+            {
+                game.chord(0, 0);
+                game.reveal(0, 0);
+                game.reveal(0, 0);
+                game.flag(0, 0);
+                assertEquals(game.getMoves(), journal.getMoves());
+                game.setJournal(null);
+                game.flag(1, 1);
+                assertEquals(1, journal.getMoves());
+            }
+            assertTrue(new Replay(file).getMoveCount() == 1);
+        }
+        finally
+        {
+            Files.deleteIfExists(file);
+        }
+    }
+}
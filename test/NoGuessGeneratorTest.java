@@ -0,0 +1,64 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class NoGuessGeneratorTest
+{
+    @Test
+    public void testGenerate()
+    {
+        NoGuessGenerator generator = new NoGuessGenerator(16, 30, 99);
+        for (int seed = 0; seed < 5; seed++)
+        {
+            NoGuessGenerator.Result result = generator.generate(8, 15, seed);
+            PackedBoard board = result.getBoard();
+            assertEquals(99, board.getMineCount());
+            assertEquals(0, board.getValue(8, 15));
+            assertTrue(result.getAttempts() >= 1);
+
+            assertTrue(
+                "the board should be solvable without guessing",
+                new Solver().solveWithoutGuessing(new Game(board), 8, 15));
+            assertArrayEquals(
+                "the attempt seed should make the board again",
+                result.getBoard().toField(),
+                NoGuessGenerator.createAttempt(16, 30, 99,
+                    result.getAttemptSeed(), 8, 15).toField());
+        }
+
+        assertEquals(5, generator.getBoards());
+        assertTrue(generator.getAttemptsPerBoard() >= 1);
+        assertTrue(generator.getMeanNanos() > 0);
+        assertTrue(generator.getMaxNanos() >= generator.getMeanNanos());
+    }
+
+
+    @Test
+    public void testSameSeedSameBoard()
+    {
+        int[][] first = new NoGuessGenerator(9, 9, 10).generate(4, 4, 7L)
+            .getBoard().toField();
+        int[][] second = new NoGuessGenerator(9, 9, 10).generate(4, 4, 7L)
+            .getBoard().toField();
+        assertArrayEquals(first, second);
+    }
+
+
+    @Test(expected = IllegalStateException.class)
+    public void testGiveUp()
+    {
+        // With the left half kept clear, the mine is always a 50/50 in the
+        // right two columns.
+        new NoGuessGenerator(2, 4, 1, 50).generate(0, 0, 1L);
+    }
+
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testWorkerErrorIsThrown()
+    {
+        // Each worker fails on the first move; that isn't "no board found".
+        new NoGuessGenerator(9, 9, 10, 50).generate(9, 0, 1L);
+    }
+}
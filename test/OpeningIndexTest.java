@@ -0,0 +1,101 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import java.util.SplittableRandom;
+import org.junit.Test;
+
+public class OpeningIndexTest
+{
+    private static final int[][] FIELD = { { 0, 1, 1 }, { 0, 1, -1 },
+        { 1, 2, 1 }, { -1, 2, 1 }, { 2, -1, 1 } };
+
+
+    @Test
+    public void testOpenings()
+    {
+        OpeningIndex index = OpeningIndex.build(PackedBoard.fromField(FIELD));
+        assertEquals(1, index.getOpeningCount());
+        assertEquals(0, index.openingOf(0));
+        assertEquals(0, index.openingOf(3));
+        assertEquals(-1, index.openingOf(1));
+        assertArrayEquals(new int[] { 0, 3, 1, 4, 6, 7 }, index.getCells(0));
+
+        int[][] two = { { 0, 1, -1, 1, 0 }, { 0, 1, 1, 1, 0 } };
+        index = OpeningIndex.build(PackedBoard.fromField(two));
+        assertEquals(2, index.getOpeningCount());
+        assertArrayEquals(new int[] { 0, 5, 1, 6 }, index.getCells(0));
+        assertArrayEquals(new int[] { 4, 9, 3, 8 }, index.getCells(1));
+        assertEquals(1, index.openingOf(9));
+    }
+
+
+    @Test
+    public void testSameAsFloodFill()
+    {
+        SplittableRandom rand = new SplittableRandom(21);
+        for (int game = 0; game < 40; game++)
+        {
+            int rows = 5 + rand.nextInt(40);
+            int cols = 5 + rand.nextInt(40);
+            int mines = rand.nextInt(rows * cols / 5 + 1);
+            long seed = rand.nextLong();
+            PackedBoard filled = PackedBoard.create(rows, cols, mines,
+                new SplittableRandom(seed));
+            PackedBoard indexed = PackedBoard.create(rows, cols, mines,
+                new SplittableRandom(seed));
+            indexed.setOpeningIndex(OpeningIndex.build(indexed));
+
+            // Flags come and go between reveals, so some openings are
+            // revealed from the index and some are filled.
+            for (int move = 0; move < 60 && !filled.lost(); move++)
+            {
+                int r = rand.nextInt(rows);
+                int c = rand.nextInt(cols);
+                if (rand.nextInt(3) == 0)
+                {
+                    boolean flag = !filled.isFlagged(r, c);
+                    filled.setFlagged(r, c, flag);
+                    indexed.setFlagged(r, c, flag);
+                }
+                else
+                {
+                    assertEquals(filled.exposeCell(r, c),
+                        indexed.exposeCell(r, c));
+                }
+            }
+            assertArrayEquals(filled.toExposed(), indexed.toExposed());
+            assertEquals(filled.getHiddenSafeCells(),
+                indexed.getHiddenSafeCells());
+            assertEquals(filled.lost(), indexed.lost());
+        }
+    }
+
+
+    @Test
+    public void testGame()
+    {
+        Game plain = Game.firstClickSafe(30, 30, 90, 8L, true);
+        Game indexed = Game.firstClickSafe(30, 30, 90, 8L, true);
+        indexed.setOpeningIndex(true);
+        int[][] moves = { { 15, 15 }, { 0, 0 }, { 29, 29 }, { 0, 29 },
+            { 29, 0 }, { 7, 22 } };
+        for (int[] move : moves)
+        {
+            assertEquals(plain.reveal(move[0], move[1]),
+                indexed.reveal(move[0], move[1]));
+            assertEquals(plain.showBoard(), indexed.showBoard());
+        }
+    }
+
+
+    @Test
+    public void testIndexDroppedWhenLayoutChanges()
+    {
+        PackedBoard board = PackedBoard.fromField(FIELD);
+        board.setOpeningIndex(OpeningIndex.build(board));
+        board.setMine(0, 0);
+        board.setHint();
+
+        // (1, 0) is a 1 now; the stale index would have opened it.
+        assertEquals(1, board.exposeCell(1, 0));
+    }
+}
@@ -0,0 +1,270 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import java.util.SplittableRandom;
+import org.junit.Test;
+
+public class PackedBoardTest
+{
+    @Test
+    public void testRoundTrip()
+    {
+        int[][] field = { { 0, 1, 1 }, { 0, 1, -1 }, { 1, 2, 1 }, { -1, 2, 1 },
+            { 2, -1, 1 } };
+        boolean[][] exposed = { { true, false, false }, { false, false, true },
+            { false, false, false }, { false, true, false },
+            { false, false, false } };
+        PackedBoard board = PackedBoard.fromField(field, exposed);
+        assertArrayEquals("field should survive packing", field, board.toField());
+        assertArrayEquals(
+            "exposed should survive packing",
+            exposed,
+            board.toExposed());
+        assertEquals(3, board.getMineCount());
+        assertTrue("an exposed bomb is a loss", board.lost());
+        assertEquals(
+            MineField.showBoard(field, exposed),
+            board.showBoard());
+    }
+
+
+    @Test
+    public void testSetHint()
+    {
+        int[][] field = { { -1, -1, -1 }, { -1, 0, -1 }, { -1, -1, -1 },
+            { 0, 0, 0 } };
+        PackedBoard board = new PackedBoard(4, 3);
+        for (int r = 0; r < 4; r++)
+        {
+            for (int c = 0; c < 3; c++)
+            {
+                if (field[r][c] == -1)
+                {
+                    board.setMine(r, c);
+                }
+            }
+        }
+        board.setHint();
+        MineField.setHint(field);
+        assertArrayEquals("hints should match MineField", field, board.toField());
+        assertEquals(8, board.getMineCount());
+        assertEquals(4, board.getHiddenSafeCells());
+    }
+
+
+    @Test
+    public void testExposeCell()
+    {
+        for (int game = 0; game < 50; game++)
+        {
+            int[][] field = MineField.createMineField(12, 15, 20);
+            boolean[][] exposed = MineField.setUpExposed(12, 15);
+            PackedBoard board = PackedBoard.fromField(field);
+            for (int r = 0; r < 12; r++)
+            {
+                for (int c = 0; c < 15; c++)
+                {
+                    if (field[r][c] == -1)
+                    {
+                        continue;
+                    }
+                    int expected = MineField.floodExpose(r, c, field, exposed);
+                    assertEquals(expected, board.exposeCell(r, c));
+                    assertArrayEquals(exposed, board.toExposed());
+                    assertEquals(MineField.won(field, exposed), board.won());
+                }
+            }
+            assertTrue(board.won());
+        }
+    }
+
+
+    @Test
+    public void testFlagged()
+    {
+        int[][] field = { { 0, 0, 0 }, { 0, 0, 0 } };
+        PackedBoard board = PackedBoard.fromField(field);
+        board.setFlagged(1, 2, true);
+        assertTrue(board.isFlagged(1, 2));
+        assertEquals("flagged cells are skipped by the fill", 5,
+            board.exposeCell(0, 0));
+        assertFalse(board.isExposed(1, 2));
+        assertFalse(board.won());
+        board.setFlagged(1, 2, false);
+        assertEquals(1, board.exposeCell(1, 2));
+        assertTrue(board.won());
+    }
+
+
+    @Test
+    public void testCreateWithSafeCell()
+    {
+        for (int seed = 0; seed < 50; seed++)
+        {
+            PackedBoard board = PackedBoard.create(9, 9, 30,
+                new SplittableRandom(seed), 0, 4);
+            assertEquals(30, board.getMineCount());
+            for (int r = 0; r <= 1; r++)
+            {
+                for (int c = 3; c <= 5; c++)
+                {
+                    assertFalse(board.isMine(r, c));
+                }
+            }
+            assertEquals(0, board.getValue(0, 4));
+            int[][] field = board.toField();
+            int[][] recounted = new int[9][];
+            for (int r = 0; r < 9; r++)
+            {
+                recounted[r] = field[r].clone();
+            }
+            MineField.setHint(recounted);
+            assertArrayEquals(field, recounted);
+        }
+
+        // Too many mines to keep the neighbors free: only the cell is.
+        PackedBoard dense = PackedBoard.create(3, 3, 8,
+            new SplittableRandom(1), 1, 1);
+        assertEquals(8, dense.getMineCount());
+        assertFalse(dense.isMine(1, 1));
+        assertEquals(8, dense.getValue(1, 1));
+    }
+
+
+    @Test
+    public void testCreateRejectsMineCount()
+    {
+        assertEquals(9, PackedBoard.create(3, 3, 9, new SplittableRandom(1))
+            .getMineCount());
+        for (int mines : new int[] { -1, 10 })
+        {
+            try
+            {
+                PackedBoard.create(3, 3, mines, new SplittableRandom(1));
+                fail(mines + " mines should not fit on a 3 x 3 board");
+            }
+            catch (IllegalArgumentException e)
+            {
+                // expected
+            }
+        }
+        for (int mines : new int[] { -1, 9 })
+        {
+            try
+            {
+                PackedBoard.create(3, 3, mines, new SplittableRandom(1), 0, 0);
+                fail(mines + " mines should leave a safe cell");
+            }
+            catch (IllegalArgumentException e)
+            {
+                // expected
+            }
+        }
+    }
+
+
+    @Test
+    public void testDirtyRows()
+    {
+        int[][] field = { { 0, 1, 1 }, { 0, 1, -1 }, { 1, 2, 1 }, { -1, 2, 1 },
+            { 2, -1, 1 } };
+        PackedBoard board = PackedBoard.fromField(field);
+        boolean[] dirtyRows = new boolean[5];
+        board.setDirtyRows(dirtyRows);
+        board.exposeCell(0, 0);
+        assertArrayEquals(
+            "rows 0-2 should be marked as changed",
+            new boolean[] { true, true, true, false, false },
+            dirtyRows);
+
+        dirtyRows = new boolean[5];
+        board.setDirtyRows(dirtyRows);
+        board.exposeCell(0, 0);
+        assertArrayEquals(
+            "nothing changes when the cells are already exposed",
+            new boolean[5],
+            dirtyRows);
+
+        board.exposeCell(4, 2);
+        assertArrayEquals(
+            "a single cell marks only its row",
+            new boolean[] { false, false, false, false, true },
+            dirtyRows);
+    }
+
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testOutOfBounds()
+    {
+        new PackedBoard(2, 2).isMine(2, 0);
+    }
+
+
+    @Test
+    public void testParallelFill()
+    {
+        // A sparse board opens almost entirely from one click.
+        PackedBoard sequential = PackedBoard.create(400, 300, 600,
+            new SplittableRandom(11));
+        PackedBoard parallel = PackedBoard.create(400, 300, 600,
+            new SplittableRandom(11));
+        sequential.setParallelThreshold(Integer.MAX_VALUE);
+        parallel.setParallelThreshold(100);
+        for (int r = 0; r < 400; r += 37)
+        {
+            sequential.setFlagged(r, 150, true);
+            parallel.setFlagged(r, 150, true);
+        }
+        boolean[] dirtyRows = new boolean[400];
+        parallel.setDirtyRows(dirtyRows);
+
+        int[] clicks = { 0, 200 * 300 + 150, 399 * 300 + 299, 1234 };
+        int[] expected = sequential.exposeCells(clicks);
+        int[] actual = parallel.exposeCells(clicks);
+        assertTrue("the fill should have gone parallel",
+            expected.length > 1000);
+        assertEquals(expected.length, actual.length);
+        assertArrayEquals(sequential.toExposed(), parallel.toExposed());
+        assertEquals(sequential.getHiddenSafeCells(),
+            parallel.getHiddenSafeCells());
+        assertEquals(sequential.lost(), parallel.lost());
+
+        boolean[] seen = new boolean[400 * 300];
+        for (int cell : actual)
+        {
+            assertFalse("each cell is listed once", seen[cell]);
+            seen[cell] = true;
+            assertTrue(dirtyRows[cell / 300]);
+        }
+    }
+
+
+    @Test
+    public void testBatchIsOnlyKeptUntilRead()
+    {
+        PackedBoard sequential = PackedBoard.create(200, 200, 100,
+            new SplittableRandom(5));
+        PackedBoard parallel = PackedBoard.create(200, 200, 100,
+            new SplittableRandom(5));
+        sequential.setParallelThreshold(Integer.MAX_VALUE);
+        parallel.setParallelThreshold(50);
+        assertEquals(
+            "a parallel fill outside a batch still counts every cell",
+            sequential.exposeCell(100, 100),
+            parallel.exposeCell(100, 100));
+        assertArrayEquals(sequential.toExposed(), parallel.toExposed());
+        assertEquals(
+            "cells exposed outside a batch aren't listed",
+            0,
+            parallel.batchExposed().length);
+
+        sequential.exposeCells(new int[] { 0, 199 * 200 });
+        assertEquals(
+            "the batch is dropped once it has been read",
+            0,
+            sequential.batchExposed().length);
+    }
+
+}
@@ -0,0 +1,263 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import org.junit.Test;
+
+public class ProbabilityEngineTest
+{
+    private static final int H = Game.HIDDEN;
+
+
+    @Test
+    public void testSimpleChances()
+    {
+        // The 1 has one mine on either side.
+        ProbabilityEngine engine = new ProbabilityEngine();
+        double[] chance = engine.probabilities(1, 3, new int[] { H, 1, H },
+            null, 1);
+        assertEquals(0.5, chance[0], 1e-12);
+        assertEquals(0, chance[1], 0);
+        assertEquals(0.5, chance[2], 1e-12);
+        assertTrue(engine.wasExact());
+    }
+
+
+    @Test
+    public void testMatchesEnumeration()
+    {
+        SplittableRandom rand = new SplittableRandom(5);
+        ProbabilityEngine engine = new ProbabilityEngine();
+        int checked = 0;
+        for (int seed = 0; seed < 300; seed++)
+        {
+            int rows = 3 + rand.nextInt(3);
+            int cols = 3 + rand.nextInt(3);
+            int mines = 1 + rand.nextInt(rows * cols / 3);
+            int[] visible = playSomeMoves(rows, cols, mines, seed, rand);
+            if (visible == null)
+            {
+                continue;
+            }
+            boolean[] knownMine = new boolean[rows * cols];
+            if (rand.nextBoolean())
+            {
+                knownMine[firstMine(rows, cols, mines, seed)] = true;
+            }
+
+            double[] expected = enumerate(rows, cols, visible, knownMine,
+                mines);
+            double[] chance = engine.probabilities(rows, cols, visible,
+                knownMine, mines);
+            for (int cell = 0; cell < chance.length; cell++)
+            {
+                assertEquals(
+                    "seed " + seed + " cell " + cell,
+                    expected[cell],
+                    chance[cell],
+                    1e-9);
+            }
+            checked++;
+        }
+        assertTrue(checked > 100);
+    }
+
+
+    @Test
+    public void testSampledChancesAddUp()
+    {
+        // With one state per layer every big layer is sampled; the chances
+        // are estimates, but still a distribution over the mines left.
+        ProbabilityEngine engine = new ProbabilityEngine(1, 3L);
+        Game game = new Game(16, 30, 99, 11L);
+        new Solver().play(game);
+        int[] visible = new int[16 * 30];
+        int hiddenCells = 0;
+        for (int cell = 0; cell < visible.length; cell++)
+        {
+            visible[cell] = game.getVisibleValue(cell / 30, cell % 30);
+            if (visible[cell] == -1)
+            {
+                visible[cell] = H;
+            }
+            if (visible[cell] == H)
+            {
+                hiddenCells++;
+            }
+        }
+        if (hiddenCells == 99)
+        {
+            return;
+        }
+
+        double[] chance = engine.probabilities(16, 30, visible, null, 99);
+        double sum = 0;
+        for (double c : chance)
+        {
+            assertTrue(c >= 0 && c <= 1);
+            sum += c;
+        }
+        assertEquals(99, sum, 1e-6);
+        assertFalse(engine.wasExact());
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoLayoutFits()
+    {
+        new ProbabilityEngine().probabilities(1, 3, new int[] { H, 2, H },
+            null, 1);
+    }
+
+
+    @Test
+    public void testKnownMines()
+    {
+        boolean[] knownMine = { true, false, false };
+        double[] chance = new ProbabilityEngine().probabilities(1, 3,
+            new int[] { H, 1, H }, knownMine, 1);
+        assertEquals(1, chance[0], 0);
+        assertEquals(0, chance[2], 0);
+    }
+
+
+    /**
+     * Reveal a few random safe cells of a seeded game and return what is
+     * visible, or null if the game ended or too many cells are hidden to
+     * enumerate.
+     */
+    private static int[] playSomeMoves(int rows, int cols, int mines,
+        long seed, SplittableRandom rand)
+    {
+        Game game = new Game(rows, cols, mines, seed);
+        int cells = rows * cols;
+        for (int i = 0; i < 3; i++)
+        {
+            int cell = rand.nextInt(cells);
+            if (!game.board().isMine(cell / cols, cell % cols))
+            {
+                game.reveal(cell / cols, cell % cols);
+            }
+        }
+        if (game.getStatus() != Game.Status.PLAYING)
+        {
+            return null;
+        }
+
+        int[] visible = new int[cells];
+        int hidden = 0;
+        for (int cell = 0; cell < cells; cell++)
+        {
+            visible[cell] = game.getVisibleValue(cell / cols, cell % cols);
+            if (visible[cell] == H)
+            {
+                hidden++;
+            }
+        }
+        return hidden > 20 ? null : visible;
+    }
+
+
+    private static int firstMine(int rows, int cols, int mines, long seed)
+    {
+        Game game = new Game(rows, cols, mines, seed);
+        int cell = 0;
+        while (!game.board().isMine(cell / cols, cell % cols))
+        {
+            cell++;
+        }
+        return cell;
+    }
+
+
+    /**
+     * Work out the chances by trying every layout of the hidden cells.
+     */
+    private static double[] enumerate(int rows, int cols, int[] visible,
+        boolean[] knownMine, int mines)
+    {
+        int cells = rows * cols;
+        List<Integer> unknown = new ArrayList<>();
+        int minesLeft = mines;
+        for (int cell = 0; cell < cells; cell++)
+        {
+            if (knownMine[cell])
+            {
+                minesLeft--;
+            }
+            else if (visible[cell] == H)
+            {
+                unknown.add(cell);
+            }
+        }
+
+        double[] count = new double[cells];
+        double total = 0;
+        for (long layout = 0; layout < 1L << unknown.size(); layout++)
+        {
+            if (Long.bitCount(layout) != minesLeft)
+            {
+                continue;
+            }
+            boolean[] mine = knownMine.clone();
+            for (int i = 0; i < unknown.size(); i++)
+            {
+                mine[unknown.get(i)] = (layout >> i & 1) != 0;
+            }
+            if (!fits(rows, cols, visible, mine))
+            {
+                continue;
+            }
+            total++;
+            for (int i = 0; i < unknown.size(); i++)
+            {
+                if (mine[unknown.get(i)])
+                {
+                    count[unknown.get(i)]++;
+                }
+            }
+        }
+
+        double[] chance = new double[cells];
+        for (int cell = 0; cell < cells; cell++)
+        {
+            chance[cell] = knownMine[cell] ? 1 : count[cell] / total;
+        }
+        return chance;
+    }
+
+
+    private static boolean fits(int rows, int cols, int[] visible,
+        boolean[] mine)
+    {
+        for (int cell = 0; cell < visible.length; cell++)
+        {
+            if (visible[cell] < 0)
+            {
+                continue;
+            }
+            int r = cell / cols;
+            int c = cell % cols;
+            int around = 0;
+            for (int nr = Math.max(r - 1, 0); nr <= Math.min(r + 1, rows - 1);
+                nr++)
+            {
+                for (int nc = Math.max(c - 1, 0); nc <= Math.min(c + 1,
+                    cols - 1); nc++)
+                {
+                    if (mine[nr * cols + nc])
+                    {
+                        around++;
+                    }
+                }
+            }
+            if (around != visible[cell])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+}
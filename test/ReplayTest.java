@@ -0,0 +1,146 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import org.junit.Test;
+
+public class ReplayTest
+{
+    /**
+     * Play random moves on a journaled game, returning the board after each
+     * move that counted.
+     */
+    private static List<String> play(Game game, Path file, long seed)
+        throws IOException
+    {
+        List<String> boards = new ArrayList<>();
+        boards.add(game.showBoard());
+        SplittableRandom rand = new SplittableRandom(seed);
+        try (MoveJournal journal = MoveJournal.create(file, game, 16))
+        {
+            for (int i = 0; i < 3000
+                && game.getStatus() == Game.Status.PLAYING; i++)
+            {
+                int row = rand.nextInt(game.getRows());
+                int col = rand.nextInt(game.getCols());
+                int moves = game.getMoves();
+                int type = rand.nextInt(10);
+                if (type < 2)
+                {
+                    // Mostly avoid mines, so games last a while.
+                    if (!game.minesPlaced() || !game.board().isMine(row, col)
+                        || rand.nextInt(20) == 0)
+                    {
+                        game.reveal(row, col);
+                    }
+                }
+                else if (type < 7)
+                {
+                    game.flag(row, col);
+                }
+                else
+                {
+                    game.chord(row, col);
+                }
+                if (game.getMoves() != moves)
+                {
+                    boards.add(game.showBoard());
+                }
+            }
+            assertEquals(boards.size() - 1, journal.getMoves());
+        }
+        return boards;
+    }
+
+
+    @Test
+    public void testSeekToEveryMove() throws IOException
+    {
+        Path file = Files.createTempFile("ReplayTest", ".journal");
+        try
+        {
+            Game game = Game.firstClickSafe(16, 30, 99, 9L, true);
+            List<String> boards = play(game, file, 1L);
+            Replay replay = new Replay(file, 10);
+            assertEquals(boards.size() - 1, replay.getMoveCount());
+            assertTrue(replay.getMoveCount() > 20);
+            for (int move = replay.getMoveCount(); move >= 0; move--)
+            {
+                assertEquals(
+                    "board after move " + move,
+                    boards.get(move),
+                    replay.seek(move).showBoard());
+            }
+            assertEquals(replay.getMoveCount() / 10 + 1, replay.getSnapshots());
+
+            Game end = replay.seek(replay.getMoveCount());
+            assertEquals(game.getStatus(), end.getStatus());
+            assertEquals(game.getMoves(), end.getMoves());
+            assertEquals(game.fieldToString(), end.fieldToString());
+        }
+        finally
+        {
+            Files.deleteIfExists(file);
+        }
+    }
+
+
+    @Test
+    public void testGivenBoardMidGame() throws IOException
+    {
+        Path file = Files.createTempFile("ReplayTest", ".journal");
+        try
+        {
+            Game game = new Game(MineField.createMineField(12, 12, 20));
+            game.flag(0, 0);
+            List<String> boards = play(game, file, 2L);
+            Replay replay = new Replay(file);
+            assertEquals(boards.get(0), replay.seek(0).showBoard());
+            assertEquals(
+                boards.get(boards.size() - 1),
+                replay.seek(replay.getMoveCount()).showBoard());
+        }
+        finally
+        {
+            Files.deleteIfExists(file);
+        }
+    }
+
+
+    @Test
+    public void testTornLastMove() throws IOException
+    {
+        Path file = Files.createTempFile("ReplayTest", ".journal");
+        try
+        {
+            Game game = new Game(100, 100, 10, 3L);
+            try (MoveJournal journal = MoveJournal.create(file, game))
+            {
+                game.flag(0, 1);
+                game.flag(99, 99);
+                assertEquals(2, journal.getMoves());
+            }
+            // Cut the second move (three bytes) short.
+            try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.WRITE))
+            {
+                channel.truncate(channel.size() - 1);
+            }
+            Replay replay = new Replay(file);
+            assertEquals(1, replay.getMoveCount());
+            assertEquals(MoveJournal.FLAG, replay.getType(0));
+            assertEquals(1, replay.getCell(0));
+            assertTrue(replay.seek(1).getVisibleValue(0, 1) == Game.FLAG);
+        }
+        finally
+        {
+            Files.deleteIfExists(file);
+        }
+    }
+}
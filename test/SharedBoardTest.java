@@ -0,0 +1,154 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Test;
+
+public class SharedBoardTest
+{
+    private static final int[][] FIELD = { { 0, 1, 1 }, { 0, 1, -1 },
+        { 1, 2, 1 }, { -1, 2, 1 }, { 2, -1, 1 } };
+
+
+    @Test
+    public void testRevealMatchesPackedBoard()
+    {
+        PackedBoard expected = PackedBoard.create(40, 40, 200,
+            new Random(3));
+        SharedBoard shared = new SharedBoard(PackedBoard.create(40, 40, 200,
+            new Random(3)));
+        Random rand = new Random(4);
+        for (int i = 0; i < 30; i++)
+        {
+            int r = rand.nextInt(40);
+            int c = rand.nextInt(40);
+            if (expected.isMine(r, c))
+            {
+                continue;
+            }
+            assertEquals(expected.exposeCell(r, c), shared.reveal(0, r, c));
+        }
+
+        for (int r = 0; r < 40; r++)
+        {
+            for (int c = 0; c < 40; c++)
+            {
+                assertEquals(expected.isExposed(r, c),
+                    shared.isExposed(r, c));
+            }
+        }
+        assertEquals(expected.getHiddenSafeCells(),
+            shared.getHiddenSafeCells());
+    }
+
+
+    @Test
+    public void testConcurrentReveals() throws Exception
+    {
+        int size = 300;
+        PackedBoard board = PackedBoard.create(size, size, 2000,
+            new Random(9));
+        List<Integer> safe = new ArrayList<>();
+        for (int i = 0; i < size * size; i++)
+        {
+            if (!board.isMine(i / size, i % size))
+            {
+                safe.add(i);
+            }
+        }
+
+        // Every player reveals every safe cell, each in their own order, so
+        // the fills overlap all the time.
+        SharedBoard shared = new SharedBoard(board);
+        int players = 8;
+        CountDownLatch go = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(players);
+        List<Future<Integer>> exposedBy = new ArrayList<>();
+        for (int p = 0; p < players; p++)
+        {
+            int player = p;
+            List<Integer> order = new ArrayList<>(safe);
+            Collections.shuffle(order, new Random(p));
+            exposedBy.add(pool.submit(() -> {
+                go.await();
+                int exposed = 0;
+                for (int cell : order)
+                {
+                    exposed += shared.reveal(player, cell / size,
+                        cell % size);
+                }
+                return exposed;
+            }));
+        }
+        go.countDown();
+        int total = 0;
+        for (Future<Integer> f : exposedBy)
+        {
+            total += f.get();
+        }
+        pool.shutdown();
+
+        assertEquals(safe.size(), total);
+        assertEquals(Game.Status.WON, shared.getStatus());
+        assertEquals(0, shared.getHiddenSafeCells());
+
+        // Every safe cell is in exactly one event, events are numbered in
+        // order, and only the last one has won.
+        List<SharedBoard.Event> events = shared.eventsSince(0);
+        assertEquals(events.size(), shared.getLastSequence());
+        boolean[] seen = new boolean[size * size];
+        int cells = 0;
+        for (int i = 0; i < events.size(); i++)
+        {
+            SharedBoard.Event event = events.get(i);
+            assertEquals(i + 1, event.getSequence());
+            assertEquals(i == events.size() - 1 ? Game.Status.WON
+                : Game.Status.PLAYING, event.getStatus());
+            for (int cell : event.getCells())
+            {
+                assertFalse(seen[cell]);
+                seen[cell] = true;
+                cells++;
+            }
+        }
+        assertEquals(safe.size(), cells);
+        assertEquals(events.subList(10, events.size()),
+            shared.eventsSince(10));
+    }
+
+
+    @Test
+    public void testLossAndFlags()
+    {
+        SharedBoard shared = new SharedBoard(PackedBoard.fromField(FIELD));
+        assertTrue(shared.setFlagged(1, 2, true));
+        assertFalse(shared.setFlagged(1, 2, true));
+        assertEquals(0, shared.reveal(0, 1, 2));
+        assertEquals(Game.FLAG, shared.getVisibleValue(1, 2));
+
+        // The fill stops at flags.
+        assertTrue(shared.setFlagged(2, 0, true));
+        assertEquals(5, shared.reveal(1, 0, 0));
+        assertEquals(Game.FLAG, shared.getVisibleValue(2, 0));
+        assertEquals(2, shared.getVisibleValue(2, 1));
+        assertEquals(Game.Status.PLAYING, shared.getStatus());
+
+        assertEquals(1, shared.reveal(2, 3, 0));
+        assertEquals(Game.Status.LOST, shared.getStatus());
+        assertEquals(-1, shared.getVisibleValue(3, 0));
+        assertEquals(0, shared.reveal(0, 4, 2));
+        assertFalse(shared.setFlagged(4, 2, true));
+
+        List<SharedBoard.Event> events = shared.eventsSince(0);
+        assertEquals(2, events.size());
+        assertEquals(1, events.get(0).getPlayer());
+        assertEquals(Game.Status.LOST, events.get(1).getStatus());
+    }
+}
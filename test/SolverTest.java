@@ -0,0 +1,133 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class SolverTest
+{
+    @Test
+    public void testSingleCellRule()
+    {
+        // (1, 1) has one hidden neighbor, so it is the mine, and then (1, 3)
+        // has found its mine, so (0, 3) is safe.
+        int[][] field = { { 0, 1, -1, 1 }, { 0, 1, 1, 1 }, { 0, 0, 0, 0 } };
+        Solver solver = new Solver();
+        assertEquals(Game.Status.WON, solver.play(new Game(field)));
+        assertEquals(1, solver.getGuesses());
+    }
+
+
+    @Test
+    public void testSubsetRule()
+    {
+        // After the opening on the left, the 1-2-1 along the bottom can only
+        // be solved by comparing neighboring hints.
+        int[][] field = { { 0, 0, 0, 0, 0 }, { 0, 0, 0, 0, 0 },
+            { 1, 1, 2, 1, 1 }, { 1, -1, 2, -1, 1 } };
+        Solver solver = new Solver();
+        assertEquals(Game.Status.WON, solver.play(new Game(field)));
+        assertEquals(1, solver.getGuesses());
+    }
+
+
+    @Test
+    public void testMineCount()
+    {
+        // No hint touches the right column; it is safe because the wall of
+        // mines in the middle column is every mine on the board.
+        int[][] field = { { 0, 2, -1, 2 }, { 0, 3, -1, 3 },
+            { 0, 2, -1, 2 } };
+        Solver solver = new Solver();
+        assertEquals(Game.Status.WON, solver.play(new Game(field)));
+        assertEquals(1, solver.getGuesses());
+    }
+
+
+    @Test
+    public void testSolveWithoutGuessing()
+    {
+        int[][] field = { { 0, 0, 0, 0, 0 }, { 0, 0, 0, 0, 0 },
+            { 1, 1, 2, 1, 1 }, { 1, -1, 2, -1, 1 } };
+        assertTrue(new Solver().solveWithoutGuessing(new Game(field), 0, 4));
+
+        // The last two cells are a 50/50.
+        int[][] coinFlip = { { 0, 1, -1 }, { 0, 1, 1 } };
+        Game game = new Game(coinFlip);
+        assertFalse(new Solver().solveWithoutGuessing(game, 0, 0));
+        assertEquals(
+            "it should stop rather than guess",
+            Game.Status.PLAYING,
+            game.getStatus());
+    }
+
+
+    @Test
+    public void testOnlyGuessesLose()
+    {
+        Solver solver = new Solver();
+        int wins = 0;
+        for (int seed = 0; seed < 2000; seed++)
+        {
+            Game game = new Game(9, 9, 10, seed);
+            Game.Status status = solver.play(game);
+            assertNotEquals(Game.Status.PLAYING, status);
+            if (status == Game.Status.WON)
+            {
+                wins++;
+            }
+            else if (solver.getGuesses() == 1)
+            {
+                assertTrue(
+                    "without a guess, only the first move can lose",
+                    game.board().isMine(0, 0));
+            }
+        }
+        assertTrue("won " + wins + " of 2000", wins > 1400);
+    }
+
+
+    @Test
+    public void testReuseAcrossSizes()
+    {
+        Solver solver = new Solver();
+        int[][] sizes = { { 9, 9, 10 }, { 16, 30, 99 }, { 1, 1, 0 },
+            { 9, 9, 10 }, { 30, 16, 99 } };
+        for (int[] size : sizes)
+        {
+            Game game = new Game(size[0], size[1], size[2], 7L);
+            Game.Status status = solver.play(game);
+            assertNotEquals(Game.Status.PLAYING, status);
+            assertEquals(status, game.getStatus());
+        }
+    }
+
+
+    @Test
+    public void testLocalGuesses()
+    {
+        Solver exact = new Solver();
+        Solver local = new Solver();
+        local.setExactGuesses(false);
+        int exactWins = 0;
+        int localWins = 0;
+        for (int seed = 0; seed < 500; seed++)
+        {
+            if (exact.play(new Game(9, 9, 10, seed)) == Game.Status.WON)
+            {
+                exactWins++;
+            }
+            Game game = new Game(9, 9, 10, seed);
+            Game.Status status = local.play(game);
+            assertNotEquals(Game.Status.PLAYING, status);
+            if (status == Game.Status.WON)
+            {
+                localWins++;
+            }
+        }
+        assertTrue("won " + localWins + " of 500", localWins > 300);
+        assertTrue(
+            "the engine should win at least as often",
+            exactWins >= localWins);
+    }
+}